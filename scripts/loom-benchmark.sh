@@ -0,0 +1,42 @@
+#!/usr/bin/env bash
+# Compares platform-thread and virtual-thread request handling under cold-miss load.
+# Requires JDK 21 on the PATH (the loom build targets release 21).
+#
+#   scripts/loom-benchmark.sh [concurrency] [requests] [upstreamLatencyMs]
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+CONCURRENCY=${1:-1000}
+REQUESTS=${2:-2000}
+LATENCY_MS=${3:-200}
+STUB_PORT=8089
+APP_PORT=8080
+CP=target/test-classes
+JAR=target/cm-coding-challenge-0.0.1-SNAPSHOT.jar
+
+run_mode() {
+  local mode=$1 jar=$2 profiles=$3
+  java -Djdk.tracePinnedThreads=short -jar "$jar" --server.port=$APP_PORT \
+       --spring.profiles.active="$profiles" \
+       --bundesbank.api.base-url=http://localhost:$STUB_PORT \
+       --bundesbank.archive.enabled=false --snapshot.enabled=false --admission.enabled=false \
+       --spring.datasource.url="jdbc:h2:mem:bench-$mode" > "target/bench-$mode.log" 2>&1 &
+  local app=$!
+  until curl -sf "http://localhost:$APP_PORT/api/v1/currencies" > /dev/null; do sleep 1; done
+  echo "== $mode =="
+  java -cp $CP com.crewmeister.cmcodingchallenge.benchmark.ColdMissLoadBenchmark \
+       "http://localhost:$APP_PORT" "$CONCURRENCY" "$REQUESTS"
+  kill $app; wait $app 2>/dev/null || true
+}
+
+mvn -B -q test-compile package -DskipTests && cp $JAR target/bench-default.jar
+mvn -B -q -Ploom package -DskipTests && cp $JAR target/bench-loom.jar
+
+java -cp $CP com.crewmeister.cmcodingchallenge.benchmark.StubBundesBankServer $STUB_PORT "$LATENCY_MS" &
+STUB=$!
+trap 'kill $STUB 2>/dev/null || true' EXIT
+
+run_mode default target/bench-default.jar default
+run_mode loom target/bench-loom.jar loom
+
+echo "Pinned-thread traces (if any): grep -c 'onPinned\|<== monitors' target/bench-loom.log"
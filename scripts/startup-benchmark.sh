@@ -0,0 +1,63 @@
+#!/usr/bin/env bash
+# Compares startup time and RSS of the fat jar against the exploded class path with an
+# AppCDS archive, built the same way as in the Dockerfile.
+#
+#   scripts/startup-benchmark.sh [runs]
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+RUNS=${1:-5}
+PORT=8081
+STUB_PORT=8089
+WORK=target/startup-bench
+MAIN_CLASS=com.crewmeister.cmcodingchallenge.CmCodingChallengeApplication
+APP_ARGS="--server.port=$PORT --spring.datasource.url=jdbc:h2:mem:startup --bundesbank.archive.enabled=false --snapshot.enabled=false --bundesbank.api.base-url=http://localhost:$STUB_PORT"
+
+mvn -B -q package -DskipTests
+JAR=target/cm-coding-challenge-0.0.1-SNAPSHOT.jar
+
+# Upstream stand-in, so startup does not depend on Bundesbank being reachable
+java -cp target/test-classes com.crewmeister.cmcodingchallenge.benchmark.StubBundesBankServer $STUB_PORT 0 > /dev/null &
+STUB=$!
+trap 'kill $STUB 2>/dev/null || true' EXIT
+
+rm -rf "$WORK" && mkdir -p "$WORK/exploded"
+(cd "$WORK/exploded" && jar -xf "../../../$JAR")
+jar -cf "$WORK/application.jar" -C "$WORK/exploded/BOOT-INF/classes" .
+mv "$WORK/exploded/BOOT-INF/lib" "$WORK/lib"
+CP="$WORK/application.jar:$WORK/lib/*"
+
+java -XX:DumpLoadedClassList="$WORK/app.classlist" -cp "$CP" $MAIN_CLASS $APP_ARGS --startup.training-run=true \
+    > "$WORK/training.log" 2>&1 || { echo "Training run did not reach ready state, see $WORK/training.log" >&2; exit 1; }
+java -Xshare:dump -XX:SharedClassListFile="$WORK/app.classlist" -XX:SharedArchiveFile="$WORK/app.jsa" -cp "$CP" \
+    > "$WORK/dump.log" 2>&1
+
+# Starts the command, waits for health, prints "<ms to healthy> <RSS kB>" and stops it
+measure() {
+  local start end pid rss
+  start=$(date +%s%N)
+  "$@" $APP_ARGS > "$WORK/run.log" 2>&1 &
+  pid=$!
+  until curl -sf "http://localhost:$PORT/actuator/health" > /dev/null; do
+    kill -0 $pid 2>/dev/null || { echo "Startup failed, see $WORK/run.log" >&2; exit 1; }
+    sleep 0.05
+  done
+  end=$(date +%s%N)
+  rss=$(awk '/VmRSS/ {print $2}' "/proc/$pid/status")
+  kill $pid; wait $pid 2>/dev/null || true
+  echo "$(( (end - start) / 1000000 )) $rss"
+}
+
+report() {
+  local name=$1; shift
+  local total_ms=0 total_rss=0 ms rss
+  for _ in $(seq "$RUNS"); do
+    read -r ms rss < <(measure "$@")
+    total_ms=$((total_ms + ms)); total_rss=$((total_rss + rss))
+  done
+  printf "%-10s healthy after %5d ms, RSS %6d MB (mean of %d runs)\n" \
+      "$name" $((total_ms / RUNS)) $((total_rss / RUNS / 1024)) "$RUNS"
+}
+
+report "fat jar" java -jar "$JAR"
+report "AppCDS" java -XX:SharedArchiveFile="$WORK/app.jsa" -Xshare:auto -cp "$CP" $MAIN_CLASS
@@ -3,9 +3,11 @@ package com.crewmeister.cmcodingchallenge;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.retry.annotation.EnableRetry;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableRetry
+@EnableScheduling
 public class CmCodingChallengeApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,132 @@
+package com.crewmeister.cmcodingchallenge.admission;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission for {@code /api/**}: every client gets a token bucket, and at most
+ * {@code admission.max-concurrent} requests run at once. A client over its budget gets
+ * 429 right away; a request that cannot start within {@code admission.queue-timeout-ms}
+ * gets 503, so under overload clients are told quickly instead of queueing in Tomcat.
+ * Requests that go to Bundesbank are additionally limited by {@link UpstreamBulkhead}.
+ * Rejections write a constant body and never reach the controllers or the exception
+ * handler.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "admission.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    private static final String API_PREFIX = "/api/";
+    private static final String FORWARDED_FOR = "X-Forwarded-For";
+    private static final byte[] TOO_MANY_REQUESTS_BODY = errorBody(HttpStatus.TOO_MANY_REQUESTS,
+            "Request rate limit exceeded");
+    private static final byte[] OVERLOADED_BODY = errorBody(HttpStatus.SERVICE_UNAVAILABLE,
+            "Server is busy, retry shortly");
+
+    private final Cache<String, TokenBucket> buckets;
+    private final Semaphore inFlight;
+    private final double ratePerSecond;
+    private final int burst;
+    private final long queueTimeoutMs;
+    private final boolean trustForwardedFor;
+    private final String retryAfter;
+
+    public AdmissionFilter(@Value("${admission.client.rate-per-second:50}") double ratePerSecond,
+                           @Value("${admission.client.burst:100}") int burst,
+                           @Value("${admission.client.max-tracked:100000}") long maxTrackedClients,
+                           @Value("${admission.client.trust-forwarded-for:false}") boolean trustForwardedFor,
+                           @Value("${admission.max-concurrent:64}") int maxConcurrent,
+                           @Value("${admission.queue-timeout-ms:50}") long queueTimeoutMs) {
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxTrackedClients)
+                .expireAfterAccess(Duration.ofMinutes(10))
+                .build();
+        this.inFlight = new Semaphore(maxConcurrent);
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+        this.queueTimeoutMs = queueTimeoutMs;
+        this.trustForwardedFor = trustForwardedFor;
+        this.retryAfter = String.valueOf((long) Math.max(1, Math.ceil(1 / ratePerSecond)));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(API_PREFIX);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String client = clientOf(request);
+        TokenBucket bucket = buckets.get(client, key -> new TokenBucket(burst, ratePerSecond, System.nanoTime()));
+        if (!bucket.tryTake(System.nanoTime())) {
+            log.debug("Client {} over its request rate", client);
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, TOO_MANY_REQUESTS_BODY);
+            return;
+        }
+        if (!admit()) {
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, OVERLOADED_BODY);
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    private boolean admit() {
+        try {
+            return inFlight.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * The remote address, or the first X-Forwarded-For hop when a trusted proxy sets it.
+     */
+    String clientOf(HttpServletRequest request) {
+        if (trustForwardedFor) {
+            String forwarded = request.getHeader(FORWARDED_FOR);
+            if (forwarded != null && !forwarded.isBlank()) {
+                int comma = forwarded.indexOf(',');
+                return (comma < 0 ? forwarded : forwarded.substring(0, comma)).trim();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, byte[] body) throws IOException {
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static byte[] errorBody(HttpStatus status, String message) {
+        return String.format("{\"status\":%d,\"error\":\"%s\",\"message\":\"%s\"}",
+                status.value(), status.getReasonPhrase(), message).getBytes(StandardCharsets.UTF_8);
+    }
+}
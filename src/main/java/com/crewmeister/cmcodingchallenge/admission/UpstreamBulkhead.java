@@ -0,0 +1,64 @@
+package com.crewmeister.cmcodingchallenge.admission;
+
+import com.crewmeister.cmcodingchallenge.exception.ServiceOverloadedException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Caps concurrent Bundesbank calls separately from the request limit in
+ * {@link AdmissionFilter}, so cold misses waiting on the upstream cannot occupy every
+ * slot that cached (warm) requests need. A call that cannot get a permit within
+ * {@code admission.upstream.queue-timeout-ms} fails with
+ * {@link ServiceOverloadedException}, which the API answers with 503 and Retry-After.
+ * With {@code admission.enabled=false} calls pass straight through.
+ */
+@Component
+public class UpstreamBulkhead {
+
+    private final boolean enabled;
+    private final Semaphore permits;
+    private final long queueTimeoutMs;
+    private final long retryAfterSeconds;
+
+    public UpstreamBulkhead(@Value("${admission.enabled:true}") boolean enabled,
+                            @Value("${admission.upstream.max-concurrent:8}") int maxConcurrent,
+                            @Value("${admission.upstream.queue-timeout-ms:250}") long queueTimeoutMs,
+                            @Value("${admission.upstream.retry-after-seconds:2}") long retryAfterSeconds) {
+        this.enabled = enabled;
+        this.permits = new Semaphore(maxConcurrent);
+        this.queueTimeoutMs = queueTimeoutMs;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public <T> T call(Supplier<T> upstreamCall) {
+        if (!enabled) {
+            return upstreamCall.get();
+        }
+        if (!acquire()) {
+            throw new ServiceOverloadedException("Too many pending Bundesbank requests, retry shortly",
+                    retryAfterSeconds);
+        }
+        try {
+            return upstreamCall.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    private boolean acquire() {
+        try {
+            return permits.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
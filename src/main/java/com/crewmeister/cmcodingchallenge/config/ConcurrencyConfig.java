@@ -0,0 +1,123 @@
+package com.crewmeister.cmcodingchallenge.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.TaskSchedulerBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+@Configuration
+public class ConcurrencyConfig {
+
+    /**
+     * Dedicated pool for CPU-bound history work (series parsing, date-block grouping),
+     * kept apart from the common pool so request threads never compete with unrelated
+     * parallel streams. Defaults to the processors visible to the container.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool historyForkJoinPool(@Value("${history.parallelism:0}") int parallelism) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        log.info("History fork/join pool parallelism: {}", threads);
+        return new ForkJoinPool(threads, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("history-fj-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Single writer for the rate aggregates. Serializes their read-modify-write across
+     * concurrent ingests and keeps that work, and its DB connection, off request threads.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService aggregateExecutor() {
+        return Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-aggregates");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * The shared scheduler behind {@code @Scheduled} jobs, sized by
+     * {@code spring.task.scheduling.*}. Declared here because Boot backs off its own as soon
+     * as any {@link ScheduledExecutorService} bean exists, and the jobs would then land on
+     * one of the dedicated threads below.
+     */
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(TaskSchedulerBuilder builder) {
+        return builder.build();
+    }
+
+    /**
+     * Renews the cluster leader lease. Its own thread, because a lease renewal queued behind
+     * an upstream sync on the shared scheduler can expire and let a second node take over.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService clusterHeartbeatScheduler() {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cluster-heartbeat");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MAX_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * Flushes the write-behind queue. Its own thread, so a slow store cannot hold the shared
+     * scheduler and jobs queued there cannot delay storing fetched rates.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService writeBehindScheduler() {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-behind-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Background pool for history prefetching. Small and with a short bounded queue that
+     * rejects when full, so speculative work backs off instead of piling up behind
+     * foreground requests for CPU and DB connections.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ThreadPoolExecutor historyPrefetchExecutor(@Value("${history.prefetch.threads:1}") int threads,
+                                                      @Value("${history.prefetch.queue-capacity:8}") int queueCapacity) {
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "history-prefetch-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Delivers rate feed events. A few threads, because a slow client can block a send until
+     * its socket drains; the bounded queue makes fan-out fail fast instead of piling up.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ThreadPoolExecutor rateFeedExecutor(@Value("${feed.send-threads:4}") int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(1024), runnable -> {
+                    Thread thread = new Thread(runnable, "rate-feed-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -0,0 +1,34 @@
+package com.crewmeister.cmcodingchallenge.config;
+
+import com.crewmeister.cmcodingchallenge.dto.ConversionResult;
+import com.crewmeister.cmcodingchallenge.dto.ExchangeRatesHistoryResponse;
+import com.crewmeister.cmcodingchallenge.dto.ExchangeRatesOnDateResponse;
+import com.crewmeister.cmcodingchallenge.dto.RateLookupResponse;
+import com.crewmeister.cmcodingchallenge.dto.RateSeriesResponse;
+import com.crewmeister.cmcodingchallenge.json.CachedWriterHttpMessageConverter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Puts the pre-resolved writers for the hottest response DTOs ahead of the general
+ * Jackson converter. They use the application's {@link ObjectMapper}, so spring.jackson.*
+ * settings still apply.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class JsonWriterConfig implements WebMvcConfigurer {
+
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(0, new CachedWriterHttpMessageConverter(objectMapper,
+                ExchangeRatesOnDateResponse.class, ExchangeRatesHistoryResponse.class, ConversionResult.class,
+                RateSeriesResponse.class, RateLookupResponse.class));
+    }
+}
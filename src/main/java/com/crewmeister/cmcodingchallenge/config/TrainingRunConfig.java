@@ -0,0 +1,27 @@
+package com.crewmeister.cmcodingchallenge.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Exits as soon as the application is ready. Used by the image build to start the app once
+ * and record the classes it loads for the AppCDS archive.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "startup.training-run", havingValue = "true")
+public class TrainingRunConfig {
+
+    @Bean
+    public ApplicationListener<ApplicationReadyEvent> exitAfterStartup() {
+        return event -> {
+            log.info("Training run complete, exiting");
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+        };
+    }
+}
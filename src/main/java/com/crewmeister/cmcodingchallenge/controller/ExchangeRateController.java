@@ -1,9 +1,13 @@
 package com.crewmeister.cmcodingchallenge.controller;
 
 import com.crewmeister.cmcodingchallenge.dto.ConversionResult;
+import com.crewmeister.cmcodingchallenge.dto.ExchangeRatesHistoryColumnarResponse;
 import com.crewmeister.cmcodingchallenge.dto.ExchangeRatesHistoryResponse;
 import com.crewmeister.cmcodingchallenge.dto.ExchangeRatesOnDateResponse;
+import com.crewmeister.cmcodingchallenge.dto.RateLookupRequest;
+import com.crewmeister.cmcodingchallenge.dto.RateLookupResponse;
 import com.crewmeister.cmcodingchallenge.entity.Currency;
+import com.crewmeister.cmcodingchallenge.exception.InvalidRequestException;
 import com.crewmeister.cmcodingchallenge.service.ExchangeRateService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -38,7 +42,9 @@ public class ExchangeRateController {
     @Operation(summary = "Get paginated exchange rate history")
     @GetMapping("/exchange-rates/history")
     public ResponseEntity<ExchangeRatesHistoryResponse> getExchangeRatesHistory(
+            @RequestParam(name = "base", required = false) String base,
             @RequestParam(name = "currency", defaultValue = "EUR") String currency,
+            @RequestParam(name = "symbols", required = false) List<String> symbols,
             @RequestParam(name = "from_date", defaultValue = "2020-01-01")
                         @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
             @RequestParam(name = "to_date", required = false)
@@ -47,17 +53,49 @@ public class ExchangeRateController {
             @RequestParam(name = "size", defaultValue = "20") int size) {
         LocalDate endDate = (toDate != null) ? toDate : LocalDate.now();
         if (fromDate.isAfter(endDate)) {
-            throw new IllegalArgumentException("from_date must be before or equal to toDate");
+            throw new InvalidRequestException("from_date must be before or equal to toDate");
         }
-        return ResponseEntity.ok(exchangeRateService.getExchangeRatesHistory(currency, fromDate, endDate, page, size));
+        return ResponseEntity.ok(exchangeRateService.getExchangeRatesHistory(
+                baseOrLegacy(base, currency), fromDate, endDate, page, size, symbols));
     }
 
-    @Operation(summary = "Get all exchange rates on a specific date")
+    @Operation(summary = "Get paginated exchange rate history in columnar form (JSON or CBOR)")
+    @GetMapping(value = "/exchange-rates/history", produces = {
+            ExchangeRatesHistoryColumnarResponse.MEDIA_TYPE,
+            ExchangeRatesHistoryColumnarResponse.CBOR_MEDIA_TYPE})
+    public ResponseEntity<ExchangeRatesHistoryColumnarResponse> getExchangeRatesHistoryColumnar(
+            @RequestParam(name = "base", required = false) String base,
+            @RequestParam(name = "currency", defaultValue = "EUR") String currency,
+            @RequestParam(name = "symbols", required = false) List<String> symbols,
+            @RequestParam(name = "from_date", defaultValue = "2020-01-01")
+                        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+            @RequestParam(name = "to_date", required = false)
+                        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
+            @RequestParam(name = "page", defaultValue = "0") int page,
+            @RequestParam(name = "size", defaultValue = "20") int size) {
+        LocalDate endDate = (toDate != null) ? toDate : LocalDate.now();
+        if (fromDate.isAfter(endDate)) {
+            throw new InvalidRequestException("from_date must be before or equal to toDate");
+        }
+        return ResponseEntity.ok(exchangeRateService.getExchangeRatesHistoryColumnar(
+                baseOrLegacy(base, currency), fromDate, endDate, page, size, symbols));
+    }
+
+    @Operation(summary = "Get all exchange rates on a specific date against a base currency")
     @GetMapping("/exchange-rates/{on_date}")
     public ResponseEntity<ExchangeRatesOnDateResponse> getExchangeRatesOnDate(
+            @RequestParam(name = "base", required = false) String base,
             @RequestParam(defaultValue = "EUR", name = "currency") String currency,
+            @RequestParam(name = "symbols", required = false) List<String> symbols,
             @PathVariable(name = "on_date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate onDate) {
-        return ResponseEntity.ok(exchangeRateService.getExchangeRatesOnDate(currency, onDate));
+        return ResponseEntity.ok(exchangeRateService.getExchangeRatesOnDate(baseOrLegacy(base, currency), onDate, symbols));
+    }
+
+    @Operation(summary = "Get rates on many dates in one call (up to 1000 dates)")
+    @PostMapping("/exchange-rates/lookup")
+    public ResponseEntity<RateLookupResponse> lookupExchangeRates(@RequestBody RateLookupRequest request) {
+        String base = (request.getBase() != null) ? request.getBase() : "EUR";
+        return ResponseEntity.ok(exchangeRateService.lookupRates(base, request.getDates(), request.getCurrencies()));
     }
 
     @Operation(summary = "Convert amount between currencies on a date")
@@ -66,12 +104,20 @@ public class ExchangeRateController {
             @RequestParam("from_currency") @NotBlank String fromCurrency,
             @RequestParam(name = "to_currency", defaultValue = "EUR") @NotBlank String toCurrency,
             @RequestParam(defaultValue = "1") @Positive BigDecimal amount,
-            @RequestParam(name = "on_date", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate onDate) {
+            @RequestParam(name = "on_date", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate onDate,
+            @RequestParam(name = "mode", defaultValue = "exact") String mode) {
         LocalDate date = (onDate != null) ? onDate : LocalDate.now();
         if (date.isAfter(LocalDate.now())) {
-            throw new IllegalArgumentException("on_date must be before or equal today");
+            throw new InvalidRequestException("on_date must be before or equal today");
         }
-        return ResponseEntity.ok(exchangeRateService.convertCurrency(fromCurrency, toCurrency, amount, date));
+        return ResponseEntity.ok(exchangeRateService.convertCurrency(fromCurrency, toCurrency, amount, date, mode));
     }
 
+    /**
+     * {@code currency} predates {@code base} and is still honoured as the base when
+     * {@code base} is absent.
+     */
+    private static String baseOrLegacy(String base, String currency) {
+        return base != null ? base : currency;
+    }
 }
@@ -0,0 +1,26 @@
+package com.crewmeister.cmcodingchallenge.controller;
+
+import com.crewmeister.cmcodingchallenge.service.RateFeed;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@Tag(name = "Exchange Rate Feed", description = "Push channel for newly published EUR-FX rates")
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1")
+public class RateFeedController {
+
+    private final RateFeed rateFeed;
+
+    @Operation(summary = "Server-sent events: one 'rates' event per newly published day, with the date as event id")
+    @GetMapping(value = "/exchange-rates/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream() {
+        return rateFeed.subscribe();
+    }
+}
@@ -0,0 +1,35 @@
+package com.crewmeister.cmcodingchallenge.controller;
+
+import com.crewmeister.cmcodingchallenge.dto.RateSeriesResponse;
+import com.crewmeister.cmcodingchallenge.service.RateSeriesService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+@Tag(name = "Exchange Rate Series", description = "Single-currency EUR-FX series for charting")
+@Validated
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1")
+public class RateSeriesController {
+
+    private final RateSeriesService rateSeriesService;
+
+    @Operation(summary = "Get one currency's rates as [epochDay, ...] rows, downsampled per day, week or month")
+    @GetMapping("/exchange-rates/{currency}/series")
+    public ResponseEntity<RateSeriesResponse> getSeries(
+            @PathVariable(name = "currency") String currency,
+            @RequestParam(name = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(name = "resolution", defaultValue = "day") String resolution,
+            @RequestParam(name = "agg", defaultValue = "last") String aggregation) {
+        LocalDate endDate = (to != null) ? to : LocalDate.now();
+        return ResponseEntity.ok(rateSeriesService.getSeries(currency, from, endDate, resolution, aggregation));
+    }
+}
@@ -0,0 +1,34 @@
+package com.crewmeister.cmcodingchallenge.controller;
+
+import com.crewmeister.cmcodingchallenge.dto.RateStatisticsResponse;
+import com.crewmeister.cmcodingchallenge.service.RateStatisticsService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+@Tag(name = "Exchange Rate Statistics", description = "Aggregated EUR-FX statistics over calendar windows")
+@Validated
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1")
+public class RateStatisticsController {
+
+    private final RateStatisticsService rateStatisticsService;
+
+    @Operation(summary = "Get min/max/avg/volatility of a currency per month, per year or over the whole range")
+    @GetMapping("/exchange-rates/{currency}/stats")
+    public ResponseEntity<RateStatisticsResponse> getStatistics(
+            @PathVariable(name = "currency") String currency,
+            @RequestParam(name = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(name = "window", defaultValue = "month") String window) {
+        LocalDate endDate = (to != null) ? to : LocalDate.now();
+        return ResponseEntity.ok(rateStatisticsService.getStatistics(currency, from, endDate, window));
+    }
+}
@@ -19,4 +19,6 @@ public class ConversionResult {
     private BigDecimal convertedAmount;
     private BigDecimal exchangeRate;
     private LocalDate date;
+    // Day the rate was published on; earlier than date when resolved as-of a holiday
+    private LocalDate rateDate;
 }
@@ -0,0 +1,35 @@
+package com.crewmeister.cmcodingchallenge.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Columnar variant of {@link ExchangeRatesHistoryResponse}: every date and currency
+ * code appears once and {@code rates[i][j]} holds the rate of {@code currencies[j]}
+ * on {@code dates[i]}, or {@code null} when no rate was published.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExchangeRatesHistoryColumnarResponse {
+    public static final String MEDIA_TYPE = "application/vnd.crewmeister.history-columnar+json";
+    public static final String CBOR_MEDIA_TYPE = "application/cbor";
+
+    private String baseCurrency;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private List<String> dates;
+    private List<String> currencies;
+    private BigDecimal[][] rates; // dates x currencies
+    private int page;
+    private int size;
+    private long totalElements;
+    private int totalPages;
+}
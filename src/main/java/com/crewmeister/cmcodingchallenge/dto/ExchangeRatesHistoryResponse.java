@@ -1,5 +1,7 @@
 package com.crewmeister.cmcodingchallenge.dto;
 
+import com.crewmeister.cmcodingchallenge.json.RateMapSerializer;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -10,13 +12,14 @@ import java.time.LocalDate;
 import java.util.Map;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class ExchangeRatesHistoryResponse {
     private String baseCurrency;
     private LocalDate startDate;
     private LocalDate endDate;
+    @JsonSerialize(contentUsing = RateMapSerializer.class)
     private Map<String, Map<String, BigDecimal>> rates; // date -> targetCurrency -> rate
     private int page;
     private int size;
@@ -1,5 +1,7 @@
 package com.crewmeister.cmcodingchallenge.dto;
 
+import com.crewmeister.cmcodingchallenge.json.RateMapSerializer;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -16,6 +18,7 @@ import java.util.Map;
 public class ExchangeRatesOnDateResponse {
     private String baseCurrency;
     private LocalDate date;
+    @JsonSerialize(using = RateMapSerializer.class)
     private Map<String, BigDecimal> rates; // targetCurrency -> rate
     private String message;
 }
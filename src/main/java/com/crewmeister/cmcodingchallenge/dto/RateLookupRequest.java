@@ -0,0 +1,19 @@
+package com.crewmeister.cmcodingchallenge.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RateLookupRequest {
+    private List<LocalDate> dates;
+    private String base;
+    private List<String> currencies; // optional filter, all currencies when empty
+}
@@ -0,0 +1,28 @@
+package com.crewmeister.cmcodingchallenge.dto;
+
+import com.crewmeister.cmcodingchallenge.json.RateMapSerializer;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rates for every requested date that has any, plus the requested dates without rates
+ * (weekends, holidays, or days Bundesbank has not published yet).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RateLookupResponse {
+    private String baseCurrency;
+    @JsonSerialize(contentUsing = RateMapSerializer.class)
+    private Map<String, Map<String, BigDecimal>> rates; // date -> targetCurrency -> rate
+    private List<LocalDate> missingDates;
+}
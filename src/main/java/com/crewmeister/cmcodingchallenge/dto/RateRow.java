@@ -0,0 +1,22 @@
+package com.crewmeister.cmcodingchallenge.dto;
+
+import com.crewmeister.cmcodingchallenge.entity.ExchangeRate;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Immutable read model for a single stored rate. Filled directly by JPQL
+ * constructor projections so read paths never materialise managed entities.
+ */
+@Value
+public class RateRow {
+    LocalDate date;
+    String targetCurrency;
+    BigDecimal rate;
+
+    public static RateRow from(ExchangeRate rate) {
+        return new RateRow(rate.getDate(), rate.getTargetCurrency(), rate.getRate());
+    }
+}
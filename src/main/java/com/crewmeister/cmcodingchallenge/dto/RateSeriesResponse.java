@@ -0,0 +1,28 @@
+package com.crewmeister.cmcodingchallenge.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * One currency's rates as compact rows. {@code fields} names the row columns: the first
+ * is always the epoch day of the bucket (or of the observation at day resolution).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RateSeriesResponse {
+    private String baseCurrency;
+    private String currency;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private String resolution;
+    private String aggregation;
+    private List<String> fields;
+    private Number[][] points;
+}
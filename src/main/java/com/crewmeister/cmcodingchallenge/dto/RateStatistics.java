@@ -0,0 +1,25 @@
+package com.crewmeister.cmcodingchallenge.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RateStatistics {
+    private LocalDate periodStart;
+    private LocalDate periodEnd;
+    private long count;
+    private BigDecimal min;
+    private BigDecimal max;
+    private BigDecimal average;
+    private BigDecimal first;
+    private BigDecimal last;
+    private BigDecimal volatility; // standard deviation of the daily rates in the period
+}
@@ -0,0 +1,22 @@
+package com.crewmeister.cmcodingchallenge.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RateStatisticsResponse {
+    private String baseCurrency;
+    private String currency;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private String window;
+    private List<RateStatistics> periods;
+}
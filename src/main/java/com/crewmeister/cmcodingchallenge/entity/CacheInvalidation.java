@@ -0,0 +1,46 @@
+package com.crewmeister.cmcodingchallenge.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * One entry of the DB-polled invalidation bus: the date range an instance just ingested.
+ */
+@Entity
+@Table(
+    name = "cache_invalidations",
+    indexes = {
+        @Index(name = "idx_invalidation_created_at", columnList = "created_at")
+    }
+)
+@Data
+@NoArgsConstructor
+public class CacheInvalidation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "min_date", nullable = false)
+    private LocalDate minDate;
+
+    @Column(name = "max_date", nullable = false)
+    private LocalDate maxDate;
+
+    @Column(nullable = false)
+    private String origin;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    public CacheInvalidation(LocalDate minDate, LocalDate maxDate, String origin, Instant createdAt) {
+        this.minDate = minDate;
+        this.maxDate = maxDate;
+        this.origin = origin;
+        this.createdAt = createdAt;
+    }
+}
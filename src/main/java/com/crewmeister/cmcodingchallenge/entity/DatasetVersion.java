@@ -0,0 +1,34 @@
+package com.crewmeister.cmcodingchallenge.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.Instant;
+
+/**
+ * Single-row counter bumped in every transaction that ingests rates, so replicas sharing
+ * the database can detect new data by polling one row.
+ */
+@Entity
+@Table(name = "dataset_version")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DatasetVersion {
+
+    public static final long SINGLETON_ID = 1L;
+
+    @Id
+    private Long id;
+
+    @Column(nullable = false)
+    private long version;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+}
@@ -17,7 +17,8 @@ import java.time.LocalDate;
     indexes = {
         @Index(name = "idx_base_date", columnList = "base_currency,date"),
         @Index(name = "idx_date", columnList = "date"),
-        @Index(name = "idx_base_target_date", columnList = "base_currency,target_currency,date")
+        @Index(name = "idx_base_target_date", columnList = "base_currency,target_currency,date"),
+        @Index(name = "idx_target_date", columnList = "target_currency,date")
     }
 )
 @Data
@@ -0,0 +1,89 @@
+package com.crewmeister.cmcodingchallenge.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Running statistics of one currency over one calendar month or year, maintained
+ * incrementally as rates are ingested.
+ */
+@Entity
+@Table(
+    name = "rate_aggregates",
+    uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"target_currency", "period", "period_start"})
+    },
+    indexes = {
+        @Index(name = "idx_aggregate_period_start", columnList = "period_start")
+    }
+)
+@Data
+@NoArgsConstructor
+public class RateAggregate {
+
+    public enum Period {
+        MONTH, YEAR;
+
+        public LocalDate startOf(LocalDate date) {
+            return this == MONTH ? date.withDayOfMonth(1) : date.withDayOfYear(1);
+        }
+
+        public LocalDate endOf(LocalDate date) {
+            return this == MONTH
+                    ? date.with(TemporalAdjusters.lastDayOfMonth())
+                    : date.with(TemporalAdjusters.lastDayOfYear());
+        }
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "target_currency", nullable = false)
+    private String targetCurrency;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    private Period period;
+
+    @Column(name = "period_start", nullable = false)
+    private LocalDate periodStart;
+
+    @Column(name = "obs_count", nullable = false)
+    private long count;
+
+    @Column(name = "rate_sum", nullable = false)
+    private double sum;
+
+    @Column(name = "rate_sum_sq", nullable = false)
+    private double sumOfSquares;
+
+    @Column(name = "min_rate", precision = 19, scale = 6)
+    private BigDecimal min;
+
+    @Column(name = "max_rate", precision = 19, scale = 6)
+    private BigDecimal max;
+
+    @Column(name = "first_date")
+    private LocalDate firstDate;
+
+    @Column(name = "first_rate", precision = 19, scale = 6)
+    private BigDecimal first;
+
+    @Column(name = "last_date")
+    private LocalDate lastDate;
+
+    @Column(name = "last_rate", precision = 19, scale = 6)
+    private BigDecimal last;
+
+    public RateAggregate(String targetCurrency, Period period, LocalDate periodStart) {
+        this.targetCurrency = targetCurrency;
+        this.period = period;
+        this.periodStart = periodStart;
+    }
+}
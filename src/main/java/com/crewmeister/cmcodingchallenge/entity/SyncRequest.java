@@ -0,0 +1,47 @@
+package com.crewmeister.cmcodingchallenge.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * A date range a follower could not serve from the shared database and asks the leader
+ * to fetch from Bundesbank.
+ */
+@Entity
+@Table(
+    name = "sync_requests",
+    uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"start_date", "end_date"})
+    }
+)
+@Data
+@NoArgsConstructor
+public class SyncRequest {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "start_date", nullable = false)
+    private LocalDate startDate;
+
+    @Column(name = "end_date", nullable = false)
+    private LocalDate endDate;
+
+    @Column(name = "requested_by", nullable = false)
+    private String requestedBy;
+
+    @Column(name = "requested_at", nullable = false)
+    private Instant requestedAt;
+
+    public SyncRequest(LocalDate startDate, LocalDate endDate, String requestedBy, Instant requestedAt) {
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.requestedBy = requestedBy;
+        this.requestedAt = requestedAt;
+    }
+}
@@ -0,0 +1,12 @@
+package com.crewmeister.cmcodingchallenge.event;
+
+import lombok.Value;
+
+/**
+ * Published locally when another replica changed the shared dataset, identified by the
+ * new value of the shared version counter.
+ */
+@Value
+public class DatasetChangedEvent {
+    long version;
+}
@@ -0,0 +1,34 @@
+package com.crewmeister.cmcodingchallenge.event;
+
+import com.crewmeister.cmcodingchallenge.dto.RateRow;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Published inside the ingesting transaction with the rows that were actually inserted,
+ * i.e. rows already present in storage are not repeated here.
+ */
+@Getter
+public class RatesIngestedEvent {
+
+    private final List<RateRow> rows;
+    private final LocalDate minDate;
+    private final LocalDate maxDate;
+
+    public RatesIngestedEvent(List<RateRow> rows) {
+        if (rows.isEmpty()) {
+            throw new IllegalArgumentException("RatesIngestedEvent requires at least one row");
+        }
+        this.rows = List.copyOf(rows);
+        LocalDate min = rows.get(0).getDate();
+        LocalDate max = min;
+        for (RateRow row : rows) {
+            if (row.getDate().isBefore(min)) min = row.getDate();
+            if (row.getDate().isAfter(max)) max = row.getDate();
+        }
+        this.minDate = min;
+        this.maxDate = max;
+    }
+}
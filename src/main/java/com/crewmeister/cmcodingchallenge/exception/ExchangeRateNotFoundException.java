@@ -8,7 +8,8 @@ public class ExchangeRateNotFoundException extends RuntimeException {
     private final LocalDate date;
 
     public ExchangeRateNotFoundException(String currency, LocalDate date) {
-        super(String.format("Exchange rate not found for %s on %s. This might be a weekend or holiday.", currency, date));
+        super(String.format("Exchange rate not found for %s on %s. This might be a weekend or holiday.", currency, date),
+            null, false, false);
         this.currency = currency;
         this.date = date;
     }
@@ -2,8 +2,11 @@ package com.crewmeister.cmcodingchallenge.exception;
 
 import com.crewmeister.cmcodingchallenge.dto.ErrorResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -16,10 +19,31 @@ import javax.validation.ConstraintViolationException;
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+    private final LogThrottle notFoundLog;
+    private final LogThrottle invalidCurrencyLog;
+    private final LogThrottle upstreamLog;
+    private final LogThrottle overloadLog;
+    private final LogThrottle unexpectedLog;
+
+    /**
+     * Each kind of failure gets its own budget, so a flood of bad requests cannot hide
+     * upstream or unexpected errors.
+     */
+    public GlobalExceptionHandler(@Value("${errors.log.max-per-second:10}") int maxPerSecond) {
+        this.notFoundLog = new LogThrottle(maxPerSecond);
+        this.invalidCurrencyLog = new LogThrottle(maxPerSecond);
+        this.upstreamLog = new LogThrottle(maxPerSecond);
+        this.overloadLog = new LogThrottle(maxPerSecond);
+        this.unexpectedLog = new LogThrottle(maxPerSecond);
+    }
+
     @ExceptionHandler(ExchangeRateNotFoundException.class)
     public ResponseEntity<ErrorResponse> handleExchangeRateNotFound(
             ExchangeRateNotFoundException ex, HttpServletRequest request) {
-        log.warn("Exchange rate not found: {}", ex.getMessage());
+        int dropped = notFoundLog.acquire();
+        if (dropped != LogThrottle.SUPPRESS) {
+            log.warn("Exchange rate not found: {} ({} similar suppressed)", ex.getMessage(), dropped);
+        }
         return ResponseEntity.status(HttpStatus.NOT_FOUND)
             .body(ErrorResponse.builder()
                 .status(HttpStatus.NOT_FOUND.value())
@@ -32,7 +56,10 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(InvalidCurrencyException.class)
     public ResponseEntity<ErrorResponse> handleInvalidCurrency(
             InvalidCurrencyException ex, HttpServletRequest request) {
-        log.warn("Invalid currency: {}", ex.getCurrency());
+        int dropped = invalidCurrencyLog.acquire();
+        if (dropped != LogThrottle.SUPPRESS) {
+            log.warn("Invalid currency: {} ({} similar suppressed)", ex.getCurrency(), dropped);
+        }
         return ResponseEntity.badRequest()
             .body(ErrorResponse.builder()
                 .status(HttpStatus.BAD_REQUEST.value())
@@ -45,7 +72,10 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(BundesBankApiException.class)
     public ResponseEntity<ErrorResponse> handleBundesBankApiError(
             BundesBankApiException ex, HttpServletRequest request) {
-        log.error("Bundesbank API error: {}", ex.getMessage());
+        int dropped = upstreamLog.acquire();
+        if (dropped != LogThrottle.SUPPRESS) {
+            log.error("Bundesbank API error: {} ({} similar suppressed)", ex.getMessage(), dropped);
+        }
         HttpStatus status = ex.getStatusCode() >= 500
             ? HttpStatus.SERVICE_UNAVAILABLE
             : HttpStatus.BAD_GATEWAY;
@@ -62,8 +92,28 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(CurrencyLoadException.class)
     public ResponseEntity<ErrorResponse> handleCurrencyLoadError(
             CurrencyLoadException ex, HttpServletRequest request) {
-        log.error("Currency load error: {}", ex.getMessage());
+        int dropped = upstreamLog.acquire();
+        if (dropped != LogThrottle.SUPPRESS) {
+            log.error("Currency load error: {} ({} similar suppressed)", ex.getMessage(), dropped);
+        }
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .body(ErrorResponse.builder()
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .error("Service Unavailable")
+                .message(ex.getMessage())
+                .path(request.getRequestURI())
+                .build());
+    }
+
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<ErrorResponse> handleOverloaded(
+            ServiceOverloadedException ex, HttpServletRequest request) {
+        int dropped = overloadLog.acquire();
+        if (dropped != LogThrottle.SUPPRESS) {
+            log.warn("Shedding request to {}: {} ({} similar suppressed)", request.getRequestURI(), ex.getMessage(), dropped);
+        }
         return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
             .body(ErrorResponse.builder()
                 .status(HttpStatus.SERVICE_UNAVAILABLE.value())
                 .error("Service Unavailable")
@@ -111,6 +161,18 @@ public class GlobalExceptionHandler {
                 .build());
     }
 
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<ErrorResponse> handleUnreadableBody(
+            HttpMessageNotReadableException ex, HttpServletRequest request) {
+        return ResponseEntity.badRequest()
+            .body(ErrorResponse.builder()
+                .status(HttpStatus.BAD_REQUEST.value())
+                .error("Bad Request")
+                .message("Request body is missing or malformed")
+                .path(request.getRequestURI())
+                .build());
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<ErrorResponse> handleIllegalArgument(
             IllegalArgumentException ex, HttpServletRequest request) {
@@ -126,7 +188,10 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorResponse> handleGenericError(
             Exception ex, HttpServletRequest request) {
-        log.error("Unexpected error", ex);
+        int dropped = unexpectedLog.acquire();
+        if (dropped != LogThrottle.SUPPRESS) {
+            log.error("Unexpected error ({} similar suppressed)", dropped, ex);
+        }
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
             .body(ErrorResponse.builder()
                 .status(HttpStatus.INTERNAL_SERVER_ERROR.value())
@@ -5,7 +5,7 @@ public class InvalidCurrencyException extends RuntimeException {
     private final String currency;
 
     public InvalidCurrencyException(String currency) {
-        super(String.format("Invalid currency code: %s", currency));
+        super(String.format("Invalid currency code: %s", currency), null, false, false);
         this.currency = currency;
     }
 
@@ -0,0 +1,17 @@
+package com.crewmeister.cmcodingchallenge.exception;
+
+/**
+ * A request parameter the API rejects with 400. Thrown on every malformed request, so it
+ * carries no stack trace; the message says all there is to say.
+ */
+public class InvalidRequestException extends IllegalArgumentException {
+
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,50 @@
+package com.crewmeister.cmcodingchallenge.exception;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Caps one kind of log line at a fixed number per second. Lines over the cap are only
+ * counted, and the count is reported with the next line that gets through, so a client
+ * hammering the API with bad requests cannot turn logging into the bottleneck.
+ */
+final class LogThrottle {
+
+    static final int SUPPRESS = -1;
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int perSecond;
+    private final LongSupplier nanoClock;
+    private final AtomicLong windowStart;
+    private final AtomicInteger logged = new AtomicInteger();
+    private final AtomicInteger suppressed = new AtomicInteger();
+
+    LogThrottle(int perSecond) {
+        this(perSecond, System::nanoTime);
+    }
+
+    LogThrottle(int perSecond, LongSupplier nanoClock) {
+        this.perSecond = perSecond;
+        this.nanoClock = nanoClock;
+        this.windowStart = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    /**
+     * Returns {@link #SUPPRESS} when the line should be dropped, otherwise how many lines
+     * were dropped since the last one logged.
+     */
+    int acquire() {
+        long now = nanoClock.getAsLong();
+        long start = windowStart.get();
+        if (now - start >= WINDOW_NANOS && windowStart.compareAndSet(start, now)) {
+            logged.set(0);
+        }
+        if (logged.incrementAndGet() > perSecond) {
+            suppressed.incrementAndGet();
+            return SUPPRESS;
+        }
+        return suppressed.getAndSet(0);
+    }
+}
@@ -0,0 +1,61 @@
+package com.crewmeister.cmcodingchallenge.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.time.LocalDate;
+
+/**
+ * A history page cache lookup or range invalidation. Off unless a settings file such as
+ * {@code jfr/rates.jfc} enables it, since every history request looks up a page.
+ */
+@Name("com.crewmeister.cmcodingchallenge.HistoryCache")
+@Label("History Cache")
+@Category({"Exchange Rates", "Cache"})
+@Description("History page cache lookup or invalidation")
+@StackTrace(false)
+@Enabled(false)
+public final class HistoryCacheEvent extends Event {
+
+    public static final String HIT = "hit";
+    public static final String MISS = "miss";
+    public static final String INVALIDATE = "invalidate";
+
+    @Label("Outcome")
+    @Description("hit or miss for lookups, invalidate for range invalidations")
+    String outcome;
+
+    @Label("Start Date")
+    String startDate;
+
+    @Label("End Date")
+    String endDate;
+
+    @Label("Page")
+    @Description("-1 for invalidations")
+    int page;
+
+    @Label("Page Size")
+    int size;
+
+    @Label("Entries Removed")
+    int removed;
+
+    public void record(String outcome, LocalDate startDate, LocalDate endDate, int page, int size, int removed) {
+        if (!shouldCommit()) {
+            return;
+        }
+        this.outcome = outcome;
+        this.startDate = startDate.toString();
+        this.endDate = endDate.toString();
+        this.page = page;
+        this.size = size;
+        this.removed = removed;
+        commit();
+    }
+}
@@ -0,0 +1,67 @@
+package com.crewmeister.cmcodingchallenge.jfr;
+
+import com.crewmeister.cmcodingchallenge.dto.RateRow;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * One insert of rates into the rate store, including its commit.
+ */
+@Name("com.crewmeister.cmcodingchallenge.RateIngest")
+@Label("Rate Ingest")
+@Category({"Exchange Rates", "Storage"})
+@Description("Insert of fetched rates into the rate store")
+@StackTrace(false)
+public final class RateIngestEvent extends Event {
+
+    public static final String FLUSH = "flush";
+    public static final String BACKPRESSURE = "backpressure";
+    public static final String DIRECT = "direct";
+    public static final String REPLAY = "replay";
+
+    @Label("Source")
+    @Description("flush, backpressure or direct from the write-behind queue; replay from the archive")
+    String source;
+
+    @Label("Rows Offered")
+    int rowsOffered;
+
+    @Label("Rows Inserted")
+    @Description("Rows the store did not have yet")
+    int rowsInserted;
+
+    @Label("First Date")
+    String firstDate;
+
+    @Label("Last Date")
+    String lastDate;
+
+    public void record(String source, List<RateRow> offered, int rowsInserted) {
+        if (!shouldCommit()) {
+            return;
+        }
+        LocalDate first = null;
+        LocalDate last = null;
+        for (RateRow row : offered) {
+            if (first == null || row.getDate().isBefore(first)) {
+                first = row.getDate();
+            }
+            if (last == null || row.getDate().isAfter(last)) {
+                last = row.getDate();
+            }
+        }
+        this.source = source;
+        this.rowsOffered = offered.size();
+        this.rowsInserted = rowsInserted;
+        this.firstDate = first != null ? first.toString() : null;
+        this.lastDate = last != null ? last.toString() : null;
+        commit();
+    }
+}
@@ -0,0 +1,54 @@
+package com.crewmeister.cmcodingchallenge.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Conversion of one SDMX rates document into rate entities.
+ */
+@Name("com.crewmeister.cmcodingchallenge.RateParse")
+@Label("Rate XML Parse")
+@Category({"Exchange Rates", "Parsing"})
+@Description("Parsing of a Bundesbank exchange rates document")
+@StackTrace(false)
+public final class RateParseEvent extends Event {
+
+    @Label("Input Size")
+    @DataAmount
+    long inputSize;
+
+    @Label("Series")
+    int seriesCount;
+
+    @Label("Observations")
+    int observationCount;
+
+    @Label("Rates")
+    @Description("Observations that became rates; the rest had no value")
+    int rateCount;
+
+    @Label("Parallel")
+    boolean parallel;
+
+    @Label("Failed")
+    boolean failed;
+
+    public void record(String xml, int seriesCount, int observationCount, int rateCount,
+                       boolean parallel, boolean failed) {
+        if (!shouldCommit()) {
+            return;
+        }
+        this.inputSize = xml != null ? xml.length() : 0;
+        this.seriesCount = seriesCount;
+        this.observationCount = observationCount;
+        this.rateCount = rateCount;
+        this.parallel = parallel;
+        this.failed = failed;
+        commit();
+    }
+}
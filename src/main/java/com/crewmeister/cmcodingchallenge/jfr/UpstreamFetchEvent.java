@@ -0,0 +1,66 @@
+package com.crewmeister.cmcodingchallenge.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One HTTP request to the Bundesbank SDMX API, retries included as separate events.
+ * Fields are only derived from the request path when the event is recorded.
+ */
+@Name("com.crewmeister.cmcodingchallenge.UpstreamFetch")
+@Label("Bundesbank Fetch")
+@Category({"Exchange Rates", "Upstream"})
+@Description("HTTP request to the Bundesbank SDMX API")
+@StackTrace(false)
+public final class UpstreamFetchEvent extends Event {
+
+    @Label("Series Key")
+    @Description("Dataflow and series key, or the metadata path")
+    String seriesKey;
+
+    @Label("Start Period")
+    String startPeriod;
+
+    @Label("End Period")
+    String endPeriod;
+
+    @Label("HTTP Status")
+    @Description("0 when the request failed")
+    int status;
+
+    @Label("Response Size")
+    @DataAmount
+    long responseSize;
+
+    @Label("Unchanged")
+    @Description("Answered 304, or 200 with the archived content hash")
+    boolean unchanged;
+
+    public void record(String path, int status, String body, boolean unchanged) {
+        if (!shouldCommit()) {
+            return;
+        }
+        int query = path.indexOf('?');
+        String resource = query < 0 ? path : path.substring(0, query);
+        this.seriesKey = resource.startsWith("/data/") ? resource.substring("/data/".length()) : resource;
+        if (query >= 0) {
+            for (String parameter : path.substring(query + 1).split("&")) {
+                if (parameter.startsWith("startPeriod=")) {
+                    this.startPeriod = parameter.substring("startPeriod=".length());
+                } else if (parameter.startsWith("endPeriod=")) {
+                    this.endPeriod = parameter.substring("endPeriod=".length());
+                }
+            }
+        }
+        this.status = status;
+        // The SDMX XML is ASCII, so characters are bytes
+        this.responseSize = body != null ? body.length() : 0;
+        this.unchanged = unchanged;
+        commit();
+    }
+}
@@ -0,0 +1,61 @@
+package com.crewmeister.cmcodingchallenge.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes a fixed set of response types as JSON through {@link ObjectWriter}s resolved once
+ * at startup, skipping the per-response writer setup, view and filter handling of the
+ * general Jackson converter. Everything else falls through to the regular converters.
+ * Response advice may swap the body for {@link PreEncodedJson}, which is written as is.
+ */
+public class CachedWriterHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+    private final Map<Class<?>, ObjectWriter> writers = new HashMap<>();
+
+    public CachedWriterHttpMessageConverter(ObjectMapper objectMapper, Class<?>... types) {
+        super(MediaType.APPLICATION_JSON);
+        for (Class<?> type : types) {
+            writers.put(type, objectMapper.writerFor(type).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET));
+        }
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return writers.containsKey(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Response-only converter", inputMessage);
+    }
+
+    @Override
+    protected Long getContentLength(Object body, MediaType contentType) {
+        return body instanceof PreEncodedJson ? (long) ((PreEncodedJson) body).getBytes().length : null;
+    }
+
+    @Override
+    protected void writeInternal(Object body, HttpOutputMessage outputMessage) throws IOException {
+        if (body instanceof PreEncodedJson) {
+            outputMessage.getBody().write(((PreEncodedJson) body).getBytes());
+            return;
+        }
+        writers.get(body.getClass()).writeValue(outputMessage.getBody(), body);
+    }
+}
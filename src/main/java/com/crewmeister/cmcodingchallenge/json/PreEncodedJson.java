@@ -0,0 +1,18 @@
+package com.crewmeister.cmcodingchallenge.json;
+
+/**
+ * Response bytes serialized (and possibly compressed) ahead of time;
+ * {@link CachedWriterHttpMessageConverter} copies them out unchanged.
+ */
+public final class PreEncodedJson {
+
+    private final byte[] bytes;
+
+    public PreEncodedJson(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    public byte[] getBytes() {
+        return bytes;
+    }
+}
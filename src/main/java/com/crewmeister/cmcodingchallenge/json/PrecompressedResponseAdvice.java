@@ -0,0 +1,160 @@
+package com.crewmeister.cmcodingchallenge.json;
+
+import com.crewmeister.cmcodingchallenge.dto.ExchangeRatesHistoryResponse;
+import com.crewmeister.cmcodingchallenge.dto.ExchangeRatesOnDateResponse;
+import com.crewmeister.cmcodingchallenge.service.EncodedResponseCache;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Serves on-date and history responses for days before today from
+ * {@link EncodedResponseCache}: their JSON is produced once, and gzip-compressed once
+ * for clients that accept it, instead of per request. Tomcat leaves bodies that already
+ * carry a Content-Encoding alone.
+ */
+@ControllerAdvice
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "response.precompress.enabled", havingValue = "true", matchIfMissing = true)
+public class PrecompressedResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    private static final String GZIP = "gzip";
+    private static final String GENERATION_ATTRIBUTE = PrecompressedResponseAdvice.class.getName() + ".generation";
+
+    private final EncodedResponseCache cache;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return CachedWriterHttpMessageConverter.class.isAssignableFrom(converterType);
+    }
+
+    /**
+     * Runs before every handler, so the cache generation is read before the handler reads
+     * any rates: a body built across an invalidation is then not cached.
+     */
+    @ModelAttribute
+    public void captureGeneration(HttpServletRequest request) {
+        request.setAttribute(GENERATION_ATTRIBUTE, cache.generation());
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        EncodedResponseCache.Key key = keyFor(body, symbolsOf(request), LocalDate.now());
+        Long generation = generationOf(request);
+        if (key == null || generation == null) {
+            return body;
+        }
+        EncodedResponseCache.Entry entry = cache.get(key, generation, () -> serialize(body));
+        if (entry.getGzip() == null) {
+            return new PreEncodedJson(entry.getIdentity());
+        }
+        response.getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (acceptsGzip(request.getHeaders().get(HttpHeaders.ACCEPT_ENCODING))) {
+            response.getHeaders().set(HttpHeaders.CONTENT_ENCODING, GZIP);
+            return new PreEncodedJson(entry.getGzip());
+        }
+        return new PreEncodedJson(entry.getIdentity());
+    }
+
+    /**
+     * Only responses that can no longer change get a key: rates for days before today,
+     * and only when there are rates, since an empty day may still be fetched later.
+     */
+    static EncodedResponseCache.Key keyFor(Object body, String symbols, LocalDate today) {
+        if (body instanceof ExchangeRatesOnDateResponse) {
+            ExchangeRatesOnDateResponse onDate = (ExchangeRatesOnDateResponse) body;
+            if (onDate.getDate() == null || !onDate.getDate().isBefore(today)
+                    || onDate.getRates() == null || onDate.getRates().isEmpty()) {
+                return null;
+            }
+            return new EncodedResponseCache.Key("on-date", onDate.getBaseCurrency() + "|" + symbols,
+                    onDate.getDate(), onDate.getDate(), 0, 0);
+        }
+        if (body instanceof ExchangeRatesHistoryResponse) {
+            ExchangeRatesHistoryResponse history = (ExchangeRatesHistoryResponse) body;
+            if (history.getEndDate() == null || !history.getEndDate().isBefore(today)
+                    || history.getTotalElements() == 0) {
+                return null;
+            }
+            return new EncodedResponseCache.Key("history", history.getBaseCurrency() + "|" + symbols,
+                    history.getStartDate(), history.getEndDate(), history.getPage(), history.getSize());
+        }
+        return null;
+    }
+
+    /**
+     * The symbols filter as sorted, upper-case codes, whether it came as one comma-separated
+     * parameter or as repeated ones.
+     */
+    static String symbolsOf(ServerHttpRequest request) {
+        List<String> values = UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams().get("symbols");
+        if (values == null) {
+            return "";
+        }
+        TreeSet<String> symbols = new TreeSet<>();
+        for (String value : values) {
+            for (String symbol : value.split(",")) {
+                if (!symbol.isBlank()) {
+                    symbols.add(symbol.trim().toUpperCase());
+                }
+            }
+        }
+        return String.join(",", symbols);
+    }
+
+    private static Long generationOf(ServerHttpRequest request) {
+        if (!(request instanceof ServletServerHttpRequest)) {
+            return null;
+        }
+        return (Long) ((ServletServerHttpRequest) request).getServletRequest().getAttribute(GENERATION_ATTRIBUTE);
+    }
+
+    static boolean acceptsGzip(List<String> acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String header : acceptEncoding) {
+            for (String coding : header.split(",")) {
+                String[] parts = coding.split(";");
+                String name = parts[0].trim();
+                if (!GZIP.equalsIgnoreCase(name) && !"*".equals(name)) {
+                    continue;
+                }
+                boolean refused = parts.length > 1 && parts[1].trim().replace(" ", "").matches("q=0(\\.0*)?");
+                if (!refused) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private byte[] serialize(Object body) {
+        try {
+            return objectMapper.writerFor(body.getClass()).writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.crewmeister.cmcodingchallenge.json;
+
+import com.crewmeister.cmcodingchallenge.util.SortedArrayMap;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Currency-to-rate maps, the bulk of every rates response. Walks {@link SortedArrayMap} by
+ * index and writes rates straight to the generator, skipping the generic map serializer's
+ * per-entry key and value serializer dispatch. Rates still go through
+ * {@link JsonGenerator#writeNumber(BigDecimal)}: {@code BigDecimal} caches its string form,
+ * so cached responses format each rate only once. Output matches Jackson's default.
+ */
+public class RateMapSerializer extends StdSerializer<Map<String, BigDecimal>> {
+
+    public RateMapSerializer() {
+        super(TypeFactory.defaultInstance().constructMapType(Map.class, String.class, BigDecimal.class));
+    }
+
+    @Override
+    public void serialize(Map<String, BigDecimal> rates, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(rates, rates.size());
+        if (rates instanceof SortedArrayMap) {
+            SortedArrayMap<BigDecimal> sorted = (SortedArrayMap<BigDecimal>) rates;
+            for (int i = 0; i < sorted.size(); i++) {
+                writeField(gen, sorted.keyAt(i), sorted.valueAt(i));
+            }
+        } else {
+            for (Map.Entry<String, BigDecimal> entry : rates.entrySet()) {
+                writeField(gen, entry.getKey(), entry.getValue());
+            }
+        }
+        gen.writeEndObject();
+    }
+
+    private static void writeField(JsonGenerator gen, String currency, BigDecimal rate) throws IOException {
+        gen.writeFieldName(currency);
+        if (rate == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(rate);
+        }
+    }
+}
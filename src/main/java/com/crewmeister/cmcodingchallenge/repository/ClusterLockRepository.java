@@ -0,0 +1,39 @@
+package com.crewmeister.cmcodingchallenge.repository;
+
+import com.crewmeister.cmcodingchallenge.entity.ClusterLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface ClusterLockRepository extends JpaRepository<ClusterLock, String> {
+
+    /**
+     * Renews the lease when already held by the owner, or takes it over once expired. Expiry
+     * is computed and compared on the database clock, so skew between nodes cannot let two of
+     * them hold the lease at once.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE cluster_locks SET owner = :owner, expires_at = CURRENT_TIMESTAMP + CAST(:leaseSeconds AS INTEGER) * INTERVAL '1' SECOND"
+            + " WHERE name = :name AND (owner = :owner OR expires_at < CURRENT_TIMESTAMP)", nativeQuery = true)
+    int tryAcquire(@Param("name") String name,
+                   @Param("owner") String owner,
+                   @Param("leaseSeconds") long leaseSeconds);
+
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO cluster_locks (name, owner, expires_at)"
+            + " VALUES (:name, :owner, CURRENT_TIMESTAMP + CAST(:leaseSeconds AS INTEGER) * INTERVAL '1' SECOND)", nativeQuery = true)
+    int insert(@Param("name") String name,
+               @Param("owner") String owner,
+               @Param("leaseSeconds") long leaseSeconds);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ClusterLock l WHERE l.name = :name AND l.owner = :owner")
+    int release(@Param("name") String name, @Param("owner") String owner);
+}
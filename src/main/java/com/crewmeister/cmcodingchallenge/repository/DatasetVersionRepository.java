@@ -0,0 +1,26 @@
+package com.crewmeister.cmcodingchallenge.repository;
+
+import com.crewmeister.cmcodingchallenge.entity.DatasetVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface DatasetVersionRepository extends JpaRepository<DatasetVersion, Long> {
+
+    @Modifying
+    @Query("UPDATE DatasetVersion v SET v.version = v.version + 1, v.updatedAt = :now WHERE v.id = :id")
+    int increment(@Param("id") Long id, @Param("now") Instant now);
+
+    /**
+     * Reads the counter from the database rather than the persistence context, so it sees
+     * an {@link #increment} made earlier in the same transaction.
+     */
+    @Query("SELECT v.version FROM DatasetVersion v WHERE v.id = :id")
+    Optional<Long> findVersion(@Param("id") Long id);
+}
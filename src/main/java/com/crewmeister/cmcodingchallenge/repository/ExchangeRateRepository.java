@@ -1,5 +1,6 @@
 package com.crewmeister.cmcodingchallenge.repository;
 
+import com.crewmeister.cmcodingchallenge.dto.RateRow;
 import com.crewmeister.cmcodingchallenge.entity.ExchangeRate;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -41,12 +42,35 @@ public interface ExchangeRateRepository extends JpaRepository<ExchangeRate, Long
             @Param("startDate") LocalDate startDate,
             @Param("endDate") LocalDate endDate);
 
-    List<ExchangeRate> findByBaseCurrencyAndDateIn(String baseCurrency, List<LocalDate> dates);
+    @Query("SELECT new com.crewmeister.cmcodingchallenge.dto.RateRow(e.date, e.targetCurrency, e.rate) FROM ExchangeRate e WHERE e.baseCurrency = :baseCurrency AND e.date IN :dates")
+    List<RateRow> findRowsByBaseCurrencyAndDateIn(
+            @Param("baseCurrency") String baseCurrency,
+            @Param("dates") List<LocalDate> dates);
+
+    // Range scan on idx_target_date; only EUR-based rates are stored
+    @Query("SELECT new com.crewmeister.cmcodingchallenge.dto.RateRow(e.date, e.targetCurrency, e.rate) FROM ExchangeRate e WHERE e.targetCurrency = :targetCurrency AND e.date BETWEEN :startDate AND :endDate ORDER BY e.date")
+    List<RateRow> findRowsByTargetCurrencyAndDateBetween(
+            @Param("targetCurrency") String targetCurrency,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT new com.crewmeister.cmcodingchallenge.dto.RateRow(e.date, e.targetCurrency, e.rate) FROM ExchangeRate e WHERE e.baseCurrency = :baseCurrency AND e.targetCurrency = :targetCurrency AND e.date BETWEEN :startDate AND :endDate ORDER BY e.date")
+    List<RateRow> findSeriesRows(
+            @Param("baseCurrency") String baseCurrency,
+            @Param("targetCurrency") String targetCurrency,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT new com.crewmeister.cmcodingchallenge.dto.RateRow(e.date, e.targetCurrency, e.rate) FROM ExchangeRate e WHERE e.baseCurrency = :baseCurrency")
+    List<RateRow> findAllRowsByBaseCurrency(@Param("baseCurrency") String baseCurrency);
 
     Optional<ExchangeRate> findByBaseCurrencyAndTargetCurrencyAndDate(
             String baseCurrency, String targetCurrency, LocalDate date);
 
-    List<ExchangeRate> findByBaseCurrencyAndDate(String baseCurrency, LocalDate date);
+    @Query("SELECT new com.crewmeister.cmcodingchallenge.dto.RateRow(e.date, e.targetCurrency, e.rate) FROM ExchangeRate e WHERE e.baseCurrency = :baseCurrency AND e.date = :date")
+    List<RateRow> findRowsByBaseCurrencyAndDate(
+            @Param("baseCurrency") String baseCurrency,
+            @Param("date") LocalDate date);
 
     List<ExchangeRate> findByBaseCurrencyAndDateBetween(
             String baseCurrency, LocalDate startDate, LocalDate endDate);
@@ -0,0 +1,19 @@
+package com.crewmeister.cmcodingchallenge.repository;
+
+import com.crewmeister.cmcodingchallenge.entity.RateAggregate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface RateAggregateRepository extends JpaRepository<RateAggregate, Long> {
+
+    List<RateAggregate> findByTargetCurrencyAndPeriodAndPeriodStartBetween(
+            String targetCurrency, RateAggregate.Period period, LocalDate startDate, LocalDate endDate);
+
+    List<RateAggregate> findByTargetCurrencyInAndPeriodStartIn(
+            Collection<String> targetCurrencies, Collection<LocalDate> periodStarts);
+}
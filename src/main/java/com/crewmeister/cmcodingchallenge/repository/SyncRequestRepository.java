@@ -0,0 +1,16 @@
+package com.crewmeister.cmcodingchallenge.repository;
+
+import com.crewmeister.cmcodingchallenge.entity.SyncRequest;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface SyncRequestRepository extends JpaRepository<SyncRequest, Long> {
+
+    boolean existsByStartDateAndEndDate(LocalDate startDate, LocalDate endDate);
+
+    List<SyncRequest> findTop20ByOrderByRequestedAtAsc();
+}
@@ -0,0 +1,61 @@
+package com.crewmeister.cmcodingchallenge.service;
+
+import com.crewmeister.cmcodingchallenge.entity.ExchangeRate;
+import com.crewmeister.cmcodingchallenge.store.ArchivedResponse;
+import com.crewmeister.cmcodingchallenge.store.RawResponseArchive;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Re-ingests archived Bundesbank data responses without touching the network, e.g. into a
+ * fresh database after a schema change.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ArchiveReplayService {
+
+    private static final String DATA_PATH_PREFIX = "/data/";
+
+    private final RawResponseArchive archive;
+    private final BundesBankParser parser;
+    private final ExchangeRateService exchangeRateService;
+
+    @Value("${bundesbank.archive.replay-on-startup:false}")
+    private boolean replayOnStartup;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void replayOnStartup() {
+        if (replayOnStartup) {
+            replay();
+        }
+    }
+
+    public int replay() {
+        int inserted = 0;
+        List<ArchivedResponse> responses = archive.list();
+        for (ArchivedResponse response : responses) {
+            if (!response.getPath().startsWith(DATA_PATH_PREFIX)) {
+                continue;
+            }
+            Optional<String> body = archive.readBody(response);
+            if (body.isEmpty()) {
+                continue;
+            }
+            List<ExchangeRate> rates = parser.parseExchangeRates(body.get());
+            if (!rates.isEmpty()) {
+                inserted += exchangeRateService.ingestRates(rates);
+                archive.markIngested(response.getPath(), response.getContentHash());
+            }
+        }
+        log.info("Replayed {} archived responses, inserted {} rates", responses.size(), inserted);
+        return inserted;
+    }
+}
@@ -1,6 +1,10 @@
 package com.crewmeister.cmcodingchallenge.service;
 
+import com.crewmeister.cmcodingchallenge.admission.UpstreamBulkhead;
 import com.crewmeister.cmcodingchallenge.exception.BundesBankApiException;
+import com.crewmeister.cmcodingchallenge.jfr.UpstreamFetchEvent;
+import com.crewmeister.cmcodingchallenge.store.ArchivedResponse;
+import com.crewmeister.cmcodingchallenge.store.RawResponseArchive;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -16,6 +20,7 @@ import org.springframework.web.reactive.function.client.WebClientResponseExcepti
 
 import java.time.Duration;
 import java.time.LocalDate;
+import java.util.Optional;
 
 @Slf4j
 @Component
@@ -23,11 +28,17 @@ public class BundesBankClient {
 
     private final WebClient webClient;
     private final String baseUrl;
+    private final RawResponseArchive archive;
+    private final UpstreamBulkhead upstreamBulkhead;
     private static final Duration TIMEOUT = Duration.ofSeconds(30);
 
     public BundesBankClient(WebClient.Builder webClientBuilder,
-                            @Value("${bundesbank.api.base-url}") String baseUrl) {
+                            @Value("${bundesbank.api.base-url}") String baseUrl,
+                            RawResponseArchive archive,
+                            UpstreamBulkhead upstreamBulkhead) {
         this.baseUrl = baseUrl;
+        this.archive = archive;
+        this.upstreamBulkhead = upstreamBulkhead;
         this.webClient = webClientBuilder
             .baseUrl(baseUrl)
             .build();
@@ -47,9 +58,32 @@ public class BundesBankClient {
 
     public String fetchExchangeRatesHistory(String currency, LocalDate startDate, LocalDate endDate) {
         log.debug("Fetching exchange rates for {} from {} to {}", currency, startDate, endDate);
-        String path = String.format("/data/BBEX3/D..%s.BB.AC.000?startPeriod=%s&endPeriod=%s",
+        return executeGet(historyPath(currency, startDate, endDate));
+    }
+
+    /**
+     * Like {@link #fetchExchangeRatesHistory} but returns empty when the archived response for
+     * the same range is still current (304, or a 200 with an identical content hash) and was
+     * marked ingested through {@link #markHistoryIngested}, so the caller can skip parsing
+     * data it has already stored.
+     */
+    public Optional<String> fetchExchangeRatesHistoryIfModified(String currency, LocalDate startDate, LocalDate endDate) {
+        log.debug("Conditionally fetching exchange rates for {} from {} to {}", currency, startDate, endDate);
+        UpstreamResponse response = exchange(historyPath(currency, startDate, endDate));
+        return response.isUnchanged() ? Optional.empty() : Optional.ofNullable(response.getBody());
+    }
+
+    /**
+     * Records that the rates of this history response are stored; call only once they are
+     * committed, not when they were merely parsed or queued.
+     */
+    public void markHistoryIngested(String currency, LocalDate startDate, LocalDate endDate, String body) {
+        archive.markIngested(historyPath(currency, startDate, endDate), RawResponseArchive.contentHash(body));
+    }
+
+    private String historyPath(String currency, LocalDate startDate, LocalDate endDate) {
+        return String.format("/data/BBEX3/D..%s.BB.AC.000?startPeriod=%s&endPeriod=%s",
             currency.toUpperCase(), startDate, endDate);
-        return executeGet(path);
     }
 
     public String fetchExchangeRatesOnDate(LocalDate date) {
@@ -66,18 +100,69 @@ public class BundesBankClient {
     )
     @CircuitBreaker(name = "bundesbank")
     private String executeGet(String path) {
+        return exchange(path).getBody();
+    }
+
+    /**
+     * Issues the GET with If-None-Match/If-Modified-Since taken from the archived response, and
+     * serves the archived body when Bundesbank answers 304 Not Modified. The response is only
+     * reported unchanged when that body was also ingested. Runs under the upstream bulkhead,
+     * so a saturated upstream sheds the call instead of queueing it.
+     */
+    private UpstreamResponse exchange(String path) {
+        return upstreamBulkhead.call(() -> exchangeAdmitted(path));
+    }
+
+    private UpstreamResponse exchangeAdmitted(String path) {
+        UpstreamFetchEvent event = new UpstreamFetchEvent();
+        event.begin();
+        UpstreamResponse response = null;
+        try {
+            response = fetch(path);
+            return response;
+        } finally {
+            if (response != null) {
+                event.record(path, response.getStatus(), response.getBody(), response.isUnchanged());
+            } else {
+                event.record(path, 0, null, false);
+            }
+        }
+    }
+
+    private UpstreamResponse fetch(String path) {
         String fullUrl = baseUrl + path;
         log.info("Executing Bundesbank API request: {}", fullUrl);
+        Optional<ArchivedResponse> archived = archive.find(path);
         try {
             ResponseEntity<String> response = webClient.get()
                 .uri(path)
+                .headers(headers -> archived.ifPresent(a -> {
+                    if (a.getEtag() != null) headers.setIfNoneMatch(a.getEtag());
+                    if (a.getLastModified() != null) headers.set(HttpHeaders.IF_MODIFIED_SINCE, a.getLastModified());
+                }))
                 .retrieve()
                 .toEntity(String.class)
                 .doOnNext(resp -> logRateLimitHeaders(resp.getHeaders()))
                 .timeout(TIMEOUT)
                 .block();
 
-            return response != null ? response.getBody() : null;
+            if (response == null) {
+                return new UpstreamResponse(null, false, 0);
+            }
+            if (response.getStatusCode() == HttpStatus.NOT_MODIFIED && archived.isPresent()) {
+                Optional<String> body = archive.readBody(archived.get());
+                if (body.isPresent()) {
+                    log.debug("Bundesbank returned 304 for {}, serving archived response", path);
+                    return new UpstreamResponse(body.get(), archived.get().isIngested(), HttpStatus.NOT_MODIFIED.value());
+                }
+                // Archived body is gone; ask again without validators
+                return new UpstreamResponse(fetchUnconditionally(path), false, HttpStatus.OK.value());
+            }
+
+            String body = response.getBody();
+            ArchivedResponse stored = archive.store(path, body, response.getHeaders().getETag(),
+                response.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED));
+            return new UpstreamResponse(body, stored.isIngested(), response.getStatusCodeValue());
         } catch (WebClientResponseException e) {
             log.error("Bundesbank API error: {} - {}", e.getStatusCode(), e.getResponseBodyAsString());
             if (e.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS) {
@@ -96,6 +181,21 @@ public class BundesBankClient {
         }
     }
 
+    private String fetchUnconditionally(String path) {
+        ResponseEntity<String> response = webClient.get()
+            .uri(path)
+            .retrieve()
+            .toEntity(String.class)
+            .timeout(TIMEOUT)
+            .block();
+        String body = response != null ? response.getBody() : null;
+        if (response != null) {
+            archive.store(path, body, response.getHeaders().getETag(),
+                response.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED));
+        }
+        return body;
+    }
+
     private void logRateLimitHeaders(HttpHeaders headers) {
         String rateLimit = headers.getFirst("X-RateLimit-Limit");
         String remaining = headers.getFirst("X-RateLimit-Remaining");
@@ -114,4 +214,27 @@ public class BundesBankClient {
         }
     }
 
+    private static final class UpstreamResponse {
+        private final String body;
+        private final boolean unchanged;
+        private final int status;
+
+        private UpstreamResponse(String body, boolean unchanged, int status) {
+            this.body = body;
+            this.unchanged = unchanged;
+            this.status = status;
+        }
+
+        String getBody() {
+            return body;
+        }
+
+        boolean isUnchanged() {
+            return unchanged;
+        }
+
+        int getStatus() {
+            return status;
+        }
+    }
 }
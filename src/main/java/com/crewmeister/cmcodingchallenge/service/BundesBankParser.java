@@ -4,9 +4,11 @@ import com.crewmeister.cmcodingchallenge.dto.xml.CodeListXml;
 import com.crewmeister.cmcodingchallenge.dto.xml.ExchangeRateDataXml;
 import com.crewmeister.cmcodingchallenge.entity.Currency;
 import com.crewmeister.cmcodingchallenge.entity.ExchangeRate;
+import com.crewmeister.cmcodingchallenge.jfr.RateParseEvent;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
@@ -14,6 +16,7 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -21,11 +24,21 @@ import java.util.stream.Collectors;
 public class BundesBankParser {
 
     private static final String BASE_CURRENCY = "EUR";
+    /** Observation count from which series are converted in parallel. */
+    private static final int PARALLEL_THRESHOLD = 2048;
+
     private final XmlMapper xmlMapper;
+    private final ForkJoinPool forkJoinPool;
 
     public BundesBankParser() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    @Autowired
+    public BundesBankParser(ForkJoinPool historyForkJoinPool) {
         this.xmlMapper = new XmlMapper();
         xmlMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.forkJoinPool = historyForkJoinPool;
     }
 
     public List<Currency> parseCurrencies(String xml) {
@@ -48,33 +61,62 @@ public class BundesBankParser {
     }
 
     public List<ExchangeRate> parseExchangeRates(String xml) {
+        RateParseEvent event = new RateParseEvent();
+        event.begin();
+        int seriesCount = 0;
+        int observations = 0;
+        boolean parallel = false;
         try {
             ExchangeRateDataXml data = xmlMapper.readValue(xml, ExchangeRateDataXml.class);
 
             if (data.getDataSet() == null || data.getDataSet().getSeries() == null) {
+                event.record(xml, 0, 0, 0, false, false);
                 return Collections.emptyList();
             }
 
-            List<ExchangeRate> rates = new ArrayList<>();
-
-            for (ExchangeRateDataXml.SeriesXml series : data.getDataSet().getSeries()) {
-                String currency = series.getCurrency();
-                if (currency == null || series.getObservations() == null) continue;
-
-                for (ExchangeRateDataXml.ObservationXml obs : series.getObservations()) {
-                    ExchangeRate rate = parseObservation(obs, currency);
-                    if (rate != null) {
-                        rates.add(rate);
-                    }
+            List<ExchangeRateDataXml.SeriesXml> series = data.getDataSet().getSeries();
+            seriesCount = series.size();
+            observations = series.stream()
+                    .mapToInt(s -> s.getObservations() == null ? 0 : s.getObservations().size())
+                    .sum();
+
+            List<ExchangeRate> rates;
+            parallel = series.size() > 1 && observations >= PARALLEL_THRESHOLD;
+            if (parallel) {
+                // One task per currency series; collect() keeps the series order
+                rates = forkJoinPool.submit(() -> series.parallelStream()
+                                .flatMap(s -> parseSeries(s).stream())
+                                .collect(Collectors.toList()))
+                        .join();
+            } else {
+                rates = new ArrayList<>(observations);
+                for (ExchangeRateDataXml.SeriesXml s : series) {
+                    rates.addAll(parseSeries(s));
                 }
             }
+            event.record(xml, seriesCount, observations, rates.size(), parallel, false);
             return rates;
         } catch (Exception e) {
             log.error("Failed to parse exchange rates XML", e);
+            event.record(xml, seriesCount, observations, 0, parallel, true);
             return Collections.emptyList();
         }
     }
 
+    private List<ExchangeRate> parseSeries(ExchangeRateDataXml.SeriesXml series) {
+        String currency = series.getCurrency();
+        if (currency == null || series.getObservations() == null) return Collections.emptyList();
+
+        List<ExchangeRate> rates = new ArrayList<>(series.getObservations().size());
+        for (ExchangeRateDataXml.ObservationXml obs : series.getObservations()) {
+            ExchangeRate rate = parseObservation(obs, currency);
+            if (rate != null) {
+                rates.add(rate);
+            }
+        }
+        return rates;
+    }
+
     private ExchangeRate parseObservation(ExchangeRateDataXml.ObservationXml obs, String targetCurrency) {
         try {
             if (obs.getDimension() == null || obs.getObsValue() == null) return null;
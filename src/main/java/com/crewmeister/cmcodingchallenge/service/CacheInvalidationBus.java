@@ -0,0 +1,106 @@
+package com.crewmeister.cmcodingchallenge.service;
+
+import com.crewmeister.cmcodingchallenge.entity.CacheInvalidation;
+import com.crewmeister.cmcodingchallenge.event.RatesIngestedEvent;
+import com.crewmeister.cmcodingchallenge.repository.CacheInvalidationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Propagates invalidations of the history, rebased-rate and encoded response caches between
+ * instances through the shared database: each ingest appends its date range to
+ * {@code cache_invalidations} in the same transaction, and every instance polls for entries
+ * written by others. Enabled with {@code cache.invalidation.bus=db}.
+ * <p>
+ * Ids are assigned at insert but become visible at commit, so a row can appear after one
+ * with a higher id was already read. Each poll therefore re-reads everything created since
+ * the previous poll minus {@code cache.invalidation.overlap-ms}, and skips ids it has
+ * already applied. The overlap has to cover the longest ingest transaction plus clock skew
+ * between instances.
+ */
+@Slf4j
+@Component
+public class CacheInvalidationBus {
+
+    private final CacheInvalidationRepository repository;
+    private final HistoryCache historyCache;
+    private final EncodedResponseCache encodedResponseCache;
+    private final RebasedRateTables rebasedRateTables;
+    private final boolean enabled;
+    private final String origin;
+    private final Duration retention;
+    private final Duration overlap;
+
+    /** Ids applied within the current overlap window, with their creation time for pruning. */
+    private final Map<Long, Instant> applied = new HashMap<>();
+    private Instant lastPoll;
+
+    public CacheInvalidationBus(CacheInvalidationRepository repository,
+                                HistoryCache historyCache,
+                                EncodedResponseCache encodedResponseCache,
+                                RebasedRateTables rebasedRateTables,
+                                ClusterCoordinator clusterCoordinator,
+                                @Value("${cache.invalidation.bus:none}") String bus,
+                                @Value("${cache.invalidation.retention-minutes:60}") long retentionMinutes,
+                                @Value("${cache.invalidation.overlap-ms:60000}") long overlapMs) {
+        this.repository = repository;
+        this.historyCache = historyCache;
+        this.encodedResponseCache = encodedResponseCache;
+        this.rebasedRateTables = rebasedRateTables;
+        this.enabled = "db".equalsIgnoreCase(bus);
+        this.origin = clusterCoordinator.getNodeId();
+        this.retention = Duration.ofMinutes(retentionMinutes);
+        this.overlap = Duration.ofMillis(overlapMs);
+    }
+
+    @PostConstruct
+    public void init() {
+        // Entries written before this instance started cannot concern its empty cache
+        lastPoll = Instant.now();
+    }
+
+    @EventListener
+    public void onRatesIngested(RatesIngestedEvent event) {
+        if (enabled) {
+            repository.save(new CacheInvalidation(event.getMinDate(), event.getMaxDate(), origin, Instant.now()));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cache.invalidation.poll-ms:2000}")
+    public synchronized void poll() {
+        if (!enabled) {
+            return;
+        }
+        Instant pollStart = Instant.now();
+        Instant since = lastPoll.minus(overlap);
+        for (CacheInvalidation entry : repository.findByCreatedAtGreaterThanEqualOrderByIdAsc(since)) {
+            if (applied.putIfAbsent(entry.getId(), entry.getCreatedAt()) == null
+                    && !origin.equals(entry.getOrigin())) {
+                historyCache.invalidateRange(entry.getMinDate(), entry.getMaxDate());
+                encodedResponseCache.invalidateRange(entry.getMinDate(), entry.getMaxDate());
+                rebasedRateTables.invalidateRange(entry.getMinDate(), entry.getMaxDate());
+            }
+        }
+        // Only ids the next window can still return need remembering
+        Instant nextSince = pollStart.minus(overlap);
+        applied.values().removeIf(createdAt -> createdAt.isBefore(nextSince));
+        lastPoll = pollStart;
+    }
+
+    @Scheduled(fixedDelayString = "${cache.invalidation.prune-ms:600000}")
+    public void prune() {
+        if (enabled) {
+            repository.deleteOlderThan(Instant.now().minus(retention));
+        }
+    }
+}
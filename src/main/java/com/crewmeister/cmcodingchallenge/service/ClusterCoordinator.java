@@ -0,0 +1,240 @@
+package com.crewmeister.cmcodingchallenge.service;
+
+import com.crewmeister.cmcodingchallenge.entity.DatasetVersion;
+import com.crewmeister.cmcodingchallenge.entity.SyncRequest;
+import com.crewmeister.cmcodingchallenge.event.DatasetChangedEvent;
+import com.crewmeister.cmcodingchallenge.event.RatesIngestedEvent;
+import com.crewmeister.cmcodingchallenge.repository.ClusterLockRepository;
+import com.crewmeister.cmcodingchallenge.repository.DatasetVersionRepository;
+import com.crewmeister.cmcodingchallenge.repository.SyncRequestRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.NavigableSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coordinates replicas that share one database. A lease row in {@code cluster_locks} elects
+ * the single node allowed to call Bundesbank; followers enqueue the ranges they miss as
+ * {@link SyncRequest}s and learn about new data by polling the {@link DatasetVersion} counter.
+ * With {@code cluster.enabled=false} (the default) every node acts as its own leader.
+ * <p>
+ * The lease is renewed on its own scheduler thread so slow jobs on the shared scheduler
+ * cannot delay it past expiry, and leadership also lapses locally once the last renewal is
+ * older than the lease, even if the heartbeat itself is stuck.
+ */
+@Slf4j
+@Component
+public class ClusterCoordinator {
+
+    static final String LEADER_LOCK = "upstream-sync";
+
+    private final ClusterLockRepository lockRepository;
+    private final DatasetVersionRepository versionRepository;
+    private final SyncRequestRepository syncRequestRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final String nodeId;
+    private final Duration lease;
+    private final long heartbeatMs;
+    private final ScheduledExecutorService heartbeatScheduler;
+    /** Versions bumped by this node's own ingests, which it must not treat as news. */
+    private final NavigableSet<Long> ownVersions = new ConcurrentSkipListSet<>();
+
+    private volatile boolean leader;
+    private volatile long leaseDeadlineNanos;
+    private volatile long lastSeenVersion = -1;
+
+    public ClusterCoordinator(ClusterLockRepository lockRepository,
+                              DatasetVersionRepository versionRepository,
+                              SyncRequestRepository syncRequestRepository,
+                              ApplicationEventPublisher eventPublisher,
+                              @Value("${cluster.enabled:false}") boolean enabled,
+                              @Value("${cluster.node-id:}") String nodeId,
+                              @Value("${cluster.lease-seconds:30}") long leaseSeconds,
+                              @Value("${cluster.heartbeat-ms:5000}") long heartbeatMs,
+                              @Qualifier("clusterHeartbeatScheduler") ScheduledExecutorService heartbeatScheduler) {
+        this.lockRepository = lockRepository;
+        this.versionRepository = versionRepository;
+        this.syncRequestRepository = syncRequestRepository;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.nodeId = nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.heartbeatMs = heartbeatMs;
+        this.heartbeatScheduler = heartbeatScheduler;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            heartbeatScheduler.scheduleWithFixedDelay(this::heartbeat, 0, heartbeatMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isLeader() {
+        return !enabled || (leader && System.nanoTime() - leaseDeadlineNanos < 0);
+    }
+
+    /**
+     * True only for clustered nodes that must not call Bundesbank themselves.
+     */
+    public boolean isFollower() {
+        return !isLeader();
+    }
+
+    /**
+     * How long a follower should tell clients to wait for a requested sync: the leader picks
+     * requests up on its next heartbeat and followers see the new version on theirs.
+     */
+    public long getSyncRetryAfterSeconds() {
+        return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(2 * heartbeatMs));
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Asks the leader to load the range. Identical pending requests are collapsed.
+     */
+    public void requestSync(LocalDate startDate, LocalDate endDate) {
+        if (syncRequestRepository.existsByStartDateAndEndDate(startDate, endDate)) {
+            return;
+        }
+        try {
+            syncRequestRepository.save(new SyncRequest(startDate, endDate, nodeId, Instant.now()));
+            log.info("Follower {} requested sync of {} to {}", nodeId, startDate, endDate);
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Sync of {} to {} already requested", startDate, endDate);
+        }
+    }
+
+    /**
+     * Renews or takes over the lease. Runs on {@code clusterHeartbeatScheduler}.
+     */
+    public void heartbeat() {
+        if (!enabled) {
+            return;
+        }
+        boolean wasLeader = isLeader();
+        long attemptNanos = System.nanoTime();
+        if (tryAcquireLease()) {
+            // Counted from before the round trip, so the local view never outlives the row
+            leaseDeadlineNanos = attemptNanos + lease.toNanos();
+            leader = true;
+        } else {
+            leader = false;
+        }
+        if (isLeader() != wasLeader) {
+            log.info("Node {} is now {}", nodeId, isLeader() ? "leader" : "follower");
+        }
+    }
+
+    /**
+     * Expiry is computed by the database, see {@link ClusterLockRepository#tryAcquire}.
+     */
+    private boolean tryAcquireLease() {
+        long leaseSeconds = lease.getSeconds();
+        try {
+            if (lockRepository.tryAcquire(LEADER_LOCK, nodeId, leaseSeconds) == 1) {
+                return true;
+            }
+            return !lockRepository.existsById(LEADER_LOCK)
+                    && lockRepository.insert(LEADER_LOCK, nodeId, leaseSeconds) == 1;
+        } catch (DataIntegrityViolationException e) {
+            // Another node inserted the lock row first
+            return false;
+        } catch (RuntimeException e) {
+            log.warn("Lease renewal failed, stepping down: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Publishes {@link DatasetChangedEvent} when another node ingested rates. Stays on the
+     * shared scheduler: the listeners rebuild caches and must not hold up lease renewal.
+     */
+    @Scheduled(fixedDelayString = "${cluster.heartbeat-ms:5000}")
+    public void pollVersion() {
+        if (!enabled) {
+            return;
+        }
+        long version = versionRepository.findById(DatasetVersion.SINGLETON_ID)
+                .map(DatasetVersion::getVersion)
+                .orElse(0L);
+        long previous = lastSeenVersion;
+        lastSeenVersion = version;
+        if (previous < 0 || version == previous) {
+            ownVersions.headSet(version, true).clear();
+            return;
+        }
+        // This node already applied its own ingests; only bumps by other nodes are news
+        boolean onlyOwn = version > previous
+                && ownVersions.subSet(previous, false, version, true).size() == version - previous;
+        ownVersions.headSet(version, true).clear();
+        if (!onlyOwn) {
+            log.debug("Dataset version changed {} -> {}", previous, version);
+            eventPublisher.publishEvent(new DatasetChangedEvent(version));
+        }
+    }
+
+    /**
+     * Bumps the shared version inside the ingesting transaction and remembers the value it
+     * wrote, unless that transaction rolls back.
+     */
+    @EventListener
+    public void onRatesIngested(RatesIngestedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        Instant now = Instant.now();
+        long written;
+        if (versionRepository.increment(DatasetVersion.SINGLETON_ID, now) == 0) {
+            versionRepository.save(new DatasetVersion(DatasetVersion.SINGLETON_ID, 1L, now));
+            written = 1L;
+        } else {
+            written = versionRepository.findVersion(DatasetVersion.SINGLETON_ID).orElse(0L);
+        }
+        ownVersions.add(written);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        ownVersions.remove(written);
+                    }
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void stepDown() {
+        heartbeatScheduler.shutdownNow();
+        if (enabled && leader) {
+            lockRepository.release(LEADER_LOCK, nodeId);
+            leader = false;
+        }
+    }
+}
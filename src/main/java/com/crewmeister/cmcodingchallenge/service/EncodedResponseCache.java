@@ -0,0 +1,152 @@
+package com.crewmeister.cmcodingchallenge.service;
+
+import com.crewmeister.cmcodingchallenge.event.DatasetChangedEvent;
+import com.crewmeister.cmcodingchallenge.event.RatesIngestedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.Data;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Response bodies serialized once and, above a size threshold, gzip-compressed once, for
+ * responses that no longer change (rates for days before today). Bounded by total bytes.
+ * Like {@link HistoryCache}, entries are dropped when an ingest commits rates inside
+ * their range, and expire after a TTL in case an invalidation is missed anyway.
+ */
+@Slf4j
+@Component
+public class EncodedResponseCache {
+
+    @Data
+    public static class Key {
+        private final String kind;
+        /** Base currency and symbol filter the body was rendered for. */
+        private final String variant;
+        private final LocalDate startDate;
+        private final LocalDate endDate;
+        private final int page;
+        private final int size;
+
+        boolean overlaps(LocalDate from, LocalDate to) {
+            return !startDate.isAfter(to) && !endDate.isBefore(from);
+        }
+    }
+
+    /**
+     * Plain JSON bytes, plus their gzip form when the body reached the threshold.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class Entry {
+        private final byte[] identity;
+        private final byte[] gzip;
+
+        int weight() {
+            return identity.length + (gzip != null ? gzip.length : 0);
+        }
+    }
+
+    private final Cache<Key, Entry> cache;
+    private final int minCompressSize;
+    private final boolean scopedRemoteInvalidation;
+    /** Bumped before every invalidation, see {@link #get(Key, long, Supplier)}. */
+    private final AtomicLong generation = new AtomicLong();
+
+    public EncodedResponseCache(@Value("${response.precompress.max-bytes:33554432}") long maxBytes,
+                                @Value("${response.precompress.min-size:2048}") int minCompressSize,
+                                @Value("${response.precompress.ttl-minutes:60}") long ttlMinutes,
+                                @Value("${cache.invalidation.bus:none}") String bus) {
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+                .maximumWeight(maxBytes)
+                .weigher((Key key, Entry entry) -> entry.weight())
+                .build();
+        this.minCompressSize = minCompressSize;
+        this.scopedRemoteInvalidation = !"none".equalsIgnoreCase(bus);
+    }
+
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Returns the cached entry, encoding a body serialized right now on a miss.
+     */
+    public Entry get(Key key, Supplier<byte[]> serializer) {
+        return get(key, generation(), serializer);
+    }
+
+    /**
+     * Returns the cached entry, encoding the serialized body on a miss. Encoding runs
+     * outside the cache so concurrent misses never wait on each other's compression.
+     * {@code generation} is {@link #generation()} read before the body's rates were: if an
+     * invalidation ran since, the body may predate it, so it is served but not kept.
+     */
+    public Entry get(Key key, long generation, Supplier<byte[]> serializer) {
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null) {
+            entry = encode(serializer.get());
+            if (this.generation.get() == generation) {
+                cache.put(key, entry);
+                // An invalidation between the check and the put may have run before the entry was there
+                if (this.generation.get() != generation) {
+                    cache.invalidate(key);
+                }
+            }
+        }
+        return entry;
+    }
+
+    Entry encode(byte[] json) {
+        if (json.length < minCompressSize) {
+            return new Entry(json, null);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Entry(json, out.toByteArray());
+    }
+
+    public void invalidateRange(LocalDate from, LocalDate to) {
+        generation.incrementAndGet();
+        cache.asMap().keySet().removeIf(key -> key.overlaps(from, to));
+    }
+
+    public void invalidateAll() {
+        log.debug("Dropping {} encoded responses", cache.estimatedSize());
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onRatesIngested(RatesIngestedEvent event) {
+        invalidateRange(event.getMinDate(), event.getMaxDate());
+    }
+
+    @EventListener
+    public void onDatasetChanged(DatasetChangedEvent event) {
+        // Without an invalidation bus the changed ranges are unknown
+        if (!scopedRemoteInvalidation) {
+            invalidateAll();
+        }
+    }
+}
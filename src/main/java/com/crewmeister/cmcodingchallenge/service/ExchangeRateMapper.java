@@ -1,43 +1,54 @@
 package com.crewmeister.cmcodingchallenge.service;
 
+import com.crewmeister.cmcodingchallenge.dto.ExchangeRatesHistoryColumnarResponse;
 import com.crewmeister.cmcodingchallenge.dto.ExchangeRatesHistoryResponse;
 import com.crewmeister.cmcodingchallenge.dto.ExchangeRatesOnDateResponse;
-import com.crewmeister.cmcodingchallenge.entity.ExchangeRate;
+import com.crewmeister.cmcodingchallenge.dto.RateLookupResponse;
+import com.crewmeister.cmcodingchallenge.dto.RateRow;
+import com.crewmeister.cmcodingchallenge.util.SortedArrayMap;
 import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 @Component
 public class ExchangeRateMapper {
 
+    /** Below this many rows the fork/join hand-off costs more than it saves. */
+    private static final int PARALLEL_THRESHOLD = 2048;
+
+    private static final Comparator<RateRow> BY_CURRENCY = Comparator.comparing(RateRow::getTargetCurrency);
+
+    private final ForkJoinPool historyForkJoinPool;
+
+    public ExchangeRateMapper(ForkJoinPool historyForkJoinPool) {
+        this.historyForkJoinPool = historyForkJoinPool;
+    }
+
     public ExchangeRatesHistoryResponse toHistoryResponse(
             String baseCurrency,
             LocalDate startDate,
             LocalDate endDate,
-            List<ExchangeRate> rates,
+            List<RateRow> rates,
             Page<LocalDate> datesPage) {
 
-        Map<String, Map<String, BigDecimal>> ratesMap = rates.stream()
-                .collect(Collectors.groupingBy(
-                        rate -> rate.getDate().toString(),
-                        TreeMap::new,
-                        Collectors.toMap(
-                                ExchangeRate::getTargetCurrency,
-                                ExchangeRate::getRate,
-                                (v1, v2) -> v1,
-                                TreeMap::new)));
-
         return ExchangeRatesHistoryResponse.builder()
                 .startDate(startDate)
                 .endDate(endDate)
                 .baseCurrency(baseCurrency)
-                .rates(ratesMap)
+                .rates(groupByDate(rates))
                 .page(datesPage.getNumber())
                 .size(datesPage.getSize())
                 .totalElements(datesPage.getTotalElements())
@@ -45,17 +56,46 @@ public class ExchangeRateMapper {
                 .build();
     }
 
+    public ExchangeRatesHistoryColumnarResponse toColumnarHistoryResponse(ExchangeRatesHistoryResponse history) {
+        Map<String, Map<String, BigDecimal>> ratesByDate = history.getRates();
+        List<String> dates = new ArrayList<>(new TreeSet<>(ratesByDate.keySet()));
+
+        TreeSet<String> currencySet = new TreeSet<>();
+        ratesByDate.values().forEach(day -> currencySet.addAll(day.keySet()));
+        List<String> currencies = new ArrayList<>(currencySet);
+
+        Map<String, Integer> column = new HashMap<>(currencies.size() * 2);
+        for (int j = 0; j < currencies.size(); j++) {
+            column.put(currencies.get(j), j);
+        }
+
+        BigDecimal[][] matrix = new BigDecimal[dates.size()][currencies.size()];
+        for (int i = 0; i < dates.size(); i++) {
+            for (Map.Entry<String, BigDecimal> entry : ratesByDate.get(dates.get(i)).entrySet()) {
+                matrix[i][column.get(entry.getKey())] = entry.getValue();
+            }
+        }
+
+        return ExchangeRatesHistoryColumnarResponse.builder()
+                .baseCurrency(history.getBaseCurrency())
+                .startDate(history.getStartDate())
+                .endDate(history.getEndDate())
+                .dates(dates)
+                .currencies(currencies)
+                .rates(matrix)
+                .page(history.getPage())
+                .size(history.getSize())
+                .totalElements(history.getTotalElements())
+                .totalPages(history.getTotalPages())
+                .build();
+    }
+
     public ExchangeRatesOnDateResponse toOnDateResponse(
             String baseCurrency,
             LocalDate date,
-            List<ExchangeRate> rates) {
+            List<RateRow> rates) {
 
-        Map<String, BigDecimal> ratesMap = rates.stream()
-                .collect(Collectors.toMap(
-                        ExchangeRate::getTargetCurrency,
-                        ExchangeRate::getRate,
-                        (v1, v2) -> v1,
-                        TreeMap::new));
+        Map<String, BigDecimal> ratesMap = toSortedRates(rates.toArray(new RateRow[0]), 0, rates.size());
 
         String message = ratesMap.isEmpty()
                 ? "No rates available for this date. It may be a weekend or public holiday."
@@ -68,4 +108,107 @@ public class ExchangeRateMapper {
                 .message(message)
                 .build();
     }
+
+    /**
+     * Groups the rows by date and lists the requested dates that have no rows.
+     */
+    public RateLookupResponse toLookupResponse(String baseCurrency, List<RateRow> rates,
+                                               Collection<LocalDate> requestedDates) {
+        Map<String, Map<String, BigDecimal>> ratesByDate = groupByDate(rates);
+        List<LocalDate> missing = new ArrayList<>();
+        for (LocalDate date : requestedDates) {
+            if (!ratesByDate.containsKey(date.toString())) {
+                missing.add(date);
+            }
+        }
+        return RateLookupResponse.builder()
+                .baseCurrency(baseCurrency)
+                .rates(ratesByDate)
+                .missingDates(missing)
+                .build();
+    }
+
+    /**
+     * Keeps only the requested currencies of a rate table that iterates in currency order.
+     */
+    public Map<String, BigDecimal> selectSymbols(Map<String, BigDecimal> rates, Set<String> symbols) {
+        String[] currencies = new String[Math.min(rates.size(), symbols.size())];
+        Object[] values = new Object[currencies.length];
+        int size = 0;
+        for (Map.Entry<String, BigDecimal> entry : rates.entrySet()) {
+            if (size == currencies.length) {
+                break;
+            }
+            if (symbols.contains(entry.getKey())) {
+                currencies[size] = entry.getKey();
+                values[size++] = entry.getValue();
+            }
+        }
+        return SortedArrayMap.ofSorted(currencies, values, size);
+    }
+
+    /**
+     * Groups rows into date -> currency -> rate. Rows are bucketed by date into one
+     * exactly-sized array (count, then fill), after which every date block is sorted
+     * and frozen independently - in parallel on the history pool for large pages.
+     */
+    private Map<String, Map<String, BigDecimal>> groupByDate(List<RateRow> rates) {
+        Map<LocalDate, int[]> counts = new HashMap<>();
+        for (RateRow row : rates) {
+            counts.computeIfAbsent(row.getDate(), d -> new int[1])[0]++;
+        }
+
+        LocalDate[] dates = counts.keySet().toArray(new LocalDate[0]);
+        Arrays.sort(dates);
+
+        // Turn per-date counts into write cursors over one contiguous row array
+        int[] blockStart = new int[dates.length + 1];
+        for (int i = 0; i < dates.length; i++) {
+            int[] slot = counts.get(dates[i]);
+            blockStart[i + 1] = blockStart[i] + slot[0];
+            slot[0] = blockStart[i];
+        }
+
+        RateRow[] bucketed = new RateRow[rates.size()];
+        for (RateRow row : rates) {
+            bucketed[counts.get(row.getDate())[0]++] = row;
+        }
+
+        String[] dateKeys = new String[dates.length];
+        Object[] dayMaps = new Object[dates.length];
+        Runnable fill = () -> blockRange(dates.length, rates.size()).forEach(i -> {
+            dateKeys[i] = dates[i].toString();
+            dayMaps[i] = toSortedRates(bucketed, blockStart[i], blockStart[i + 1]);
+        });
+
+        if (rates.size() >= PARALLEL_THRESHOLD) {
+            historyForkJoinPool.submit(fill).join();
+        } else {
+            fill.run();
+        }
+        return SortedArrayMap.ofSorted(dateKeys, dayMaps, dates.length);
+    }
+
+    private IntStream blockRange(int blocks, int rows) {
+        IntStream range = IntStream.range(0, blocks);
+        return rows >= PARALLEL_THRESHOLD ? range.parallel() : range;
+    }
+
+    private Map<String, BigDecimal> toSortedRates(RateRow[] rows, int from, int to) {
+        Arrays.sort(rows, from, to, BY_CURRENCY);
+
+        String[] currencies = new String[to - from];
+        Object[] values = new Object[to - from];
+        int size = 0;
+        for (int i = from; i < to; i++) {
+            String currency = rows[i].getTargetCurrency();
+            // Keep the first rate should a currency ever appear twice on one date
+            if (size > 0 && currencies[size - 1].equals(currency)) {
+                continue;
+            }
+            currencies[size] = currency;
+            values[size++] = rows[i].getRate();
+        }
+        return SortedArrayMap.ofSorted(currencies, values, size);
+    }
 }
@@ -1,66 +1,126 @@
 package com.crewmeister.cmcodingchallenge.service;
 
 import com.crewmeister.cmcodingchallenge.dto.ConversionResult;
+import com.crewmeister.cmcodingchallenge.dto.ExchangeRatesHistoryColumnarResponse;
 import com.crewmeister.cmcodingchallenge.dto.ExchangeRatesHistoryResponse;
 import com.crewmeister.cmcodingchallenge.dto.ExchangeRatesOnDateResponse;
+import com.crewmeister.cmcodingchallenge.dto.RateLookupResponse;
+import com.crewmeister.cmcodingchallenge.dto.RateRow;
 import com.crewmeister.cmcodingchallenge.entity.Currency;
 import com.crewmeister.cmcodingchallenge.entity.ExchangeRate;
+import com.crewmeister.cmcodingchallenge.event.RatesIngestedEvent;
 import com.crewmeister.cmcodingchallenge.exception.CurrencyLoadException;
 import com.crewmeister.cmcodingchallenge.exception.ExchangeRateNotFoundException;
 import com.crewmeister.cmcodingchallenge.exception.InvalidCurrencyException;
+import com.crewmeister.cmcodingchallenge.exception.InvalidRequestException;
+import com.crewmeister.cmcodingchallenge.exception.ServiceOverloadedException;
+import com.crewmeister.cmcodingchallenge.jfr.RateIngestEvent;
 import com.crewmeister.cmcodingchallenge.repository.CurrencyRepository;
-import com.crewmeister.cmcodingchallenge.repository.ExchangeRateRepository;
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
-import lombok.RequiredArgsConstructor;
+import com.crewmeister.cmcodingchallenge.store.RateDateIndex;
+import com.crewmeister.cmcodingchallenge.store.RateSnapshotStore;
+import com.crewmeister.cmcodingchallenge.store.RateStore;
+import com.crewmeister.cmcodingchallenge.util.SortedArrayMap;
+import com.crewmeister.cmcodingchallenge.util.TargetCalendar;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.annotation.PostConstruct;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class ExchangeRateService {
 
     private static final String BASE_CURRENCY = "EUR";
-    private static final LocalDate MIN_DATE = LocalDate.of(2020, 1, 1);
+    private static final int MAX_LOOKUP_DATES = 1000;
+    private static final int LOOKUP_CLUSTER_GAP_DAYS = 31;
+    /** Days without rates next to stored days that a follower takes for a holiday. */
+    private static final int COVERAGE_TOLERANCE_DAYS = 4;
+
+    public enum LookupMode {
+        EXACT, ASOF;
+
+        static LookupMode parse(String value) {
+            try {
+                return LookupMode.valueOf(value.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new InvalidRequestException("mode must be one of exact, asof");
+            }
+        }
+    }
 
     private final BundesBankClient client;
     private final BundesBankParser parser;
     private final CurrencyRepository currencyRepository;
-    private final ExchangeRateRepository exchangeRateRepository;
+    private final RateStore rateStore;
     private final ExchangeRateMapper mapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RateSnapshotStore snapshotStore;
+    private final ClusterCoordinator clusterCoordinator;
+    private final HistoryCache historyCache;
+    private final RateDateIndex rateDateIndex;
+    private final HistoryPrefetcher historyPrefetcher;
+    private final RebasedRateTables rebasedRateTables;
+    private final PlatformTransactionManager transactionManager;
+    private final RateWriteBehind rateWriteBehind;
+
+    /** Earliest date served; Bundesbank's euro reference rates start on 1999-01-04. */
+    private final LocalDate minDate;
 
-    @Value("${cache.history.ttl-minutes:60}")
-    private int cacheTtlMinutes;
-
-    @Value("${cache.history.max-size:100}")
-    private int cacheMaxSize;
-
-    private Cache<String, ExchangeRatesHistoryResponse> historyCache;
     private volatile Set<String> validCurrencyCodes;
 
+    public ExchangeRateService(BundesBankClient client,
+                               BundesBankParser parser,
+                               CurrencyRepository currencyRepository,
+                               RateStore rateStore,
+                               ExchangeRateMapper mapper,
+                               ApplicationEventPublisher eventPublisher,
+                               RateSnapshotStore snapshotStore,
+                               ClusterCoordinator clusterCoordinator,
+                               HistoryCache historyCache,
+                               RateDateIndex rateDateIndex,
+                               HistoryPrefetcher historyPrefetcher,
+                               RebasedRateTables rebasedRateTables,
+                               PlatformTransactionManager transactionManager,
+                               RateWriteBehind rateWriteBehind,
+                               @Value("${rates.history.min-date:1999-01-04}")
+                               @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate minDate) {
+        this.client = client;
+        this.parser = parser;
+        this.currencyRepository = currencyRepository;
+        this.rateStore = rateStore;
+        this.mapper = mapper;
+        this.eventPublisher = eventPublisher;
+        this.snapshotStore = snapshotStore;
+        this.clusterCoordinator = clusterCoordinator;
+        this.historyCache = historyCache;
+        this.rateDateIndex = rateDateIndex;
+        this.historyPrefetcher = historyPrefetcher;
+        this.rebasedRateTables = rebasedRateTables;
+        this.transactionManager = transactionManager;
+        this.rateWriteBehind = rateWriteBehind;
+        this.minDate = minDate;
+    }
+
     @PostConstruct
     public void init() {
-        this.historyCache = Caffeine.newBuilder()
-                .expireAfterWrite(cacheTtlMinutes, TimeUnit.MINUTES)
-                .maximumSize(cacheMaxSize)
-                .build();
-
         loadCurrencies();
         refreshCurrencyCodes();
     }
@@ -76,117 +136,428 @@ public class ExchangeRateService {
     }
 
 
-    @Transactional
     public ExchangeRatesHistoryResponse getExchangeRatesHistory(
-            String targetCurrency, LocalDate startDate, LocalDate endDate, int page, int size) {
+            String baseCurrency, LocalDate startDate, LocalDate endDate, int page, int size, List<String> symbols) {
 
         if (startDate.isAfter(endDate)) {
-            throw new IllegalArgumentException("startDate must be before or equal to endDate");
+            throw new InvalidRequestException("startDate must be before or equal to endDate");
         }
-        if (startDate.isBefore(MIN_DATE)) {
-            throw new IllegalArgumentException("from_date cannot be before " + MIN_DATE);
+        if (startDate.isBefore(minDate)) {
+            throw new InvalidRequestException("from_date cannot be before " + minDate);
         }
 
-        String validTargetCurrency = validateCurrency(targetCurrency);
-        String cacheKey = historyKey(startDate, endDate, page, size);
+        String base = validateCurrency(baseCurrency);
+        Set<String> wanted = validateSymbols(symbols);
+        HistoryCache.Key cacheKey = new HistoryCache.Key(startDate, endDate, page, size);
 
-        ExchangeRatesHistoryResponse cached = historyCache.getIfPresent(cacheKey);
-        if (cached != null) {
+        ExchangeRatesHistoryResponse response = historyCache.get(cacheKey);
+        if (response != null) {
             log.debug("Cache hit for history {}", cacheKey);
-            return cached;
+        } else {
+            response = loadHistoryPage(cacheKey);
         }
 
-        Pageable pageable = PageRequest.of(page, size, Sort.by("date").descending());
+        // Clients walk pages in order: have the next one cached by the time they ask
+        if (page + 1 < response.getTotalPages()) {
+            HistoryCache.Key nextKey = new HistoryCache.Key(startDate, endDate, page + 1, size);
+            historyPrefetcher.prefetch(nextKey, () -> loadHistoryPage(nextKey));
+        }
+        if (BASE_CURRENCY.equals(base) && wanted == null) {
+            return response;
+        }
+        return historyCache.variant(cacheKey, base, wanted, response, eurPage -> rebaseHistory(eurPage, base, wanted));
+    }
 
-        // Check if H2 has complete data for the requested range
-        boolean h2HasCompleteData = hasCompleteDataForRange(startDate, endDate);
+    /**
+     * Cached pages are always EUR-based; other bases and symbol filters are applied per
+     * day, once per cached page. Days without a rate for the base come back empty.
+     */
+    private ExchangeRatesHistoryResponse rebaseHistory(ExchangeRatesHistoryResponse eurPage, String base, Set<String> symbols) {
+        return eurPage.toBuilder()
+                .baseCurrency(base)
+                .rates(rebaseDays(eurPage.getRates(), base, symbols))
+                .build();
+    }
 
-        if (!h2HasCompleteData) {
-            log.info("Fetching exchange rates for {} from {} to {} from Bundesbank API",
-                    validTargetCurrency, startDate, endDate);
-            String xml = client.fetchExchangeRatesHistory(validTargetCurrency, startDate, endDate);
-            List<ExchangeRate> rates = parser.parseExchangeRates(xml);
-            if (!rates.isEmpty()) {
-                saveRatesIfNotExist(rates);
-            }
-        } else {
-            log.debug("H2 has complete data for range {} to {}", startDate, endDate);
+    private Map<String, Map<String, BigDecimal>> rebaseDays(Map<String, Map<String, BigDecimal>> eurDays,
+                                                            String base, Set<String> symbols) {
+        String[] dates = new String[eurDays.size()];
+        Object[] days = new Object[eurDays.size()];
+        int i = 0;
+        for (Map.Entry<String, Map<String, BigDecimal>> day : eurDays.entrySet()) {
+            dates[i] = day.getKey();
+            days[i++] = rebaseDay(LocalDate.parse(day.getKey()), base, symbols, day.getValue());
         }
+        return SortedArrayMap.ofSorted(dates, days, i);
+    }
+
+    private Map<String, BigDecimal> rebaseDay(LocalDate date, String base, Set<String> symbols,
+                                              Map<String, BigDecimal> eurRates) {
+        Map<String, BigDecimal> rates = BASE_CURRENCY.equals(base)
+                ? eurRates
+                : rebasedRateTables.rebase(date, base, eurRates);
+        if (rates == null) {
+            return Collections.emptyMap();
+        }
+        return symbols != null ? mapper.selectSymbols(rates, symbols) : rates;
+    }
 
-        // Query DB with pagination by dates
-        Page<LocalDate> datesPage = exchangeRateRepository.findDistinctDatesByBaseCurrencyAndDateBetween(
-                BASE_CURRENCY, startDate, endDate, pageable);
+    private ExchangeRatesHistoryResponse loadHistoryPage(HistoryCache.Key key) {
+        LocalDate startDate = key.getStartDate();
+        LocalDate endDate = key.getEndDate();
+        Pageable pageable = PageRequest.of(key.getPage(), key.getSize(), Sort.by("date").descending());
 
-        List<ExchangeRate> ratesForDates = datesPage.hasContent()
-                ? exchangeRateRepository.findByBaseCurrencyAndDateIn(BASE_CURRENCY, datesPage.getContent())
+        loadRangeIfIncomplete(BASE_CURRENCY, startDate, endDate);
+
+        NavigableSet<LocalDate> pendingDates = rateWriteBehind.pendingDates(startDate, endDate);
+        // Page positions come from the in-memory day index rather than an offset query
+        Page<LocalDate> datesPage = pendingDates.isEmpty()
+                ? rateDateIndex.findDates(startDate, endDate, pageable)
+                : datesWithPending(startDate, endDate, pendingDates, pageable);
+
+        List<RateRow> ratesForDates = datesPage.hasContent()
+                ? rateWriteBehind.withPending(rateStore.findRowsOnDates(datesPage.getContent()), datesPage.getContent())
                 : Collections.emptyList();
 
         ExchangeRatesHistoryResponse response = mapper.toHistoryResponse(BASE_CURRENCY, startDate, endDate, ratesForDates, datesPage);
-        historyCache.put(cacheKey, response);
+        historyCache.put(key, response);
+        return response;
+    }
+
+    /**
+     * Pages over stored days and days still waiting in the write-behind queue together.
+     */
+    private Page<LocalDate> datesWithPending(LocalDate startDate, LocalDate endDate,
+                                             NavigableSet<LocalDate> pendingDates, Pageable pageable) {
+        TreeSet<LocalDate> dates = new TreeSet<>(pendingDates);
+        dates.addAll(rateDateIndex.findDates(startDate, endDate, Pageable.unpaged()).getContent());
+        List<LocalDate> newestFirst = new ArrayList<>(dates.descendingSet());
+        int from = (int) Math.min(pageable.getOffset(), newestFirst.size());
+        int to = Math.min(from + pageable.getPageSize(), newestFirst.size());
+        return new PageImpl<>(new ArrayList<>(newestFirst.subList(from, to)), pageable, newestFirst.size());
+    }
+
+    public ExchangeRatesHistoryColumnarResponse getExchangeRatesHistoryColumnar(
+            String baseCurrency, LocalDate startDate, LocalDate endDate, int page, int size, List<String> symbols) {
+        return mapper.toColumnarHistoryResponse(
+                getExchangeRatesHistory(baseCurrency, startDate, endDate, page, size, symbols));
+    }
+
+    /**
+     * Rates on many dates at once. Stored dates are read with one IN query. TARGET business
+     * days that are not stored are grouped into clusters of nearby dates, each loaded with
+     * one upstream range, and read with a second IN query, instead of a query and a fetch
+     * per date.
+     */
+    public RateLookupResponse lookupRates(String baseCurrency, Collection<LocalDate> dates, List<String> symbols) {
+        if (dates == null || dates.isEmpty()) {
+            throw new InvalidRequestException("dates must not be empty");
+        }
+        TreeSet<LocalDate> requested = new TreeSet<>(dates);
+        if (requested.size() > MAX_LOOKUP_DATES) {
+            throw new InvalidRequestException("At most " + MAX_LOOKUP_DATES + " dates per lookup");
+        }
+        if (requested.first().isBefore(minDate)) {
+            throw new InvalidRequestException("dates cannot be before " + minDate);
+        }
+        LocalDate today = LocalDate.now();
+        if (requested.last().isAfter(today)) {
+            throw new InvalidRequestException("dates must be before or equal today");
+        }
+        String base = validateCurrency(baseCurrency);
+        Set<String> wanted = validateSymbols(symbols);
+
+        List<RateRow> rows = new ArrayList<>(rateWriteBehind.withPending(
+                rateStore.findRowsOnDates(new ArrayList<>(requested)), requested));
+        List<LocalDate> unknown = missingBusinessDays(requested, rows);
+        if (!unknown.isEmpty()) {
+            for (List<LocalDate> cluster : clusters(unknown)) {
+                LocalDate from = cluster.get(0);
+                LocalDate to = cluster.get(cluster.size() - 1);
+                fetchChunk(BASE_CURRENCY, from, to, rateDateIndex.findMinDate(from, to).isPresent());
+            }
+            rows.addAll(rateWriteBehind.withPending(rateStore.findRowsOnDates(unknown), unknown));
+        }
+
+        RateLookupResponse response = mapper.toLookupResponse(BASE_CURRENCY, rows, requested);
+        if (!BASE_CURRENCY.equals(base) || wanted != null) {
+            response.setRates(rebaseDays(response.getRates(), base, wanted));
+            response.setBaseCurrency(base);
+        }
         return response;
     }
 
-    private String historyKey(LocalDate start, LocalDate end, int page, int size) {
-        return start + ":" + end + ":" + page + ":" + size;
+    private static List<LocalDate> missingBusinessDays(SortedSet<LocalDate> requested, List<RateRow> rows) {
+        Set<LocalDate> stored = new HashSet<>();
+        for (RateRow row : rows) {
+            stored.add(row.getDate());
+        }
+        List<LocalDate> missing = new ArrayList<>();
+        for (LocalDate date : requested) {
+            if (!stored.contains(date) && TargetCalendar.isBusinessDay(date)) {
+                missing.add(date);
+            }
+        }
+        return missing;
     }
 
     /**
-     * Check if H2 has complete data for the date range.
-     * Uses 4-day tolerance to account for weekends/holidays.
+     * Splits sorted dates wherever two neighbours are more than a month apart, so dates
+     * years apart are fetched as separate ranges rather than everything in between. A
+     * cluster never spans more than a year, like the chunks of {@link #loadRangeIfIncomplete}.
      */
-    private boolean hasCompleteDataForRange(LocalDate startDate, LocalDate endDate) {
-        Optional<LocalDate> minDate = exchangeRateRepository.findMinDateByBaseCurrencyAndDateBetween(
-                BASE_CURRENCY, startDate, endDate);
-        Optional<LocalDate> maxDate = exchangeRateRepository.findMaxDateByBaseCurrencyAndDateBetween(
-                BASE_CURRENCY, startDate, endDate);
+    private static List<List<LocalDate>> clusters(List<LocalDate> dates) {
+        List<List<LocalDate>> clusters = new ArrayList<>();
+        List<LocalDate> cluster = new ArrayList<>();
+        for (LocalDate date : dates) {
+            if (!cluster.isEmpty() && (ChronoUnit.DAYS.between(cluster.get(cluster.size() - 1), date) > LOOKUP_CLUSTER_GAP_DAYS
+                    || ChronoUnit.DAYS.between(cluster.get(0), date) >= 366)) {
+                clusters.add(cluster);
+                cluster = new ArrayList<>();
+            }
+            cluster.add(date);
+        }
+        clusters.add(cluster);
+        return clusters;
+    }
 
-        if (minDate.isEmpty() || maxDate.isEmpty()) {
-            return false;
+    /**
+     * A TARGET closing day, or a day without rates that has stored or queued days within the
+     * coverage tolerance on both sides, which upstream has nothing for either.
+     */
+    private boolean isKnownHoliday(LocalDate date) {
+        if (!TargetCalendar.isBusinessDay(date)) {
+            return true;
         }
+        NavigableSet<LocalDate> pending = rateWriteBehind.pendingDates(
+                date.minusDays(COVERAGE_TOLERANCE_DAYS), date.plusDays(COVERAGE_TOLERANCE_DAYS));
+        boolean before = pending.lower(date) != null
+                || rateDateIndex.findMaxDate(date.minusDays(COVERAGE_TOLERANCE_DAYS), date.minusDays(1)).isPresent();
+        return before && (pending.higher(date) != null
+                || rateDateIndex.findMinDate(date.plusDays(1), date.plusDays(COVERAGE_TOLERANCE_DAYS)).isPresent());
+    }
 
-        // Allow 4-day tolerance for weekends/holidays
-        long startDiff = Math.abs(ChronoUnit.DAYS.between(startDate, minDate.get()));
-        long endDiff = Math.abs(ChronoUnit.DAYS.between(endDate, maxDate.get()));
+    /**
+     * Checks the from/to range of a per-currency endpoint and returns {@code to} capped at
+     * today. Dates before {@code minDate} are rejected rather than silently clamped, as for
+     * history and lookups.
+     */
+    public LocalDate checkRange(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new InvalidRequestException("from must be before or equal to to");
+        }
+        if (from.isBefore(minDate)) {
+            throw new InvalidRequestException("from cannot be before " + minDate);
+        }
+        LocalDate today = LocalDate.now();
+        if (from.isAfter(today)) {
+            throw new InvalidRequestException("from must be before or equal today");
+        }
+        return to.isAfter(today) ? today : to;
+    }
 
-        return startDiff <= 4 && endDiff <= 4;
+    /**
+     * Makes sure all EUR-based rates between the two dates are stored, fetching the
+     * range from Bundesbank when the rate store does not cover it yet. Callers read the
+     * store right after, so fetched rows are flushed before this returns.
+     */
+    public void ensureRangeLoaded(LocalDate startDate, LocalDate endDate) {
+        if (!loadRangeIfIncomplete(BASE_CURRENCY, startDate, endDate).isEmpty()) {
+            rateWriteBehind.flush();
+        }
     }
 
+    /**
+     * Fetches the range unless stored and queued rows already cover it. Fetched rows go to
+     * the write-behind queue and are returned. The range is clamped to {@code minDate} and
+     * today first, as Bundesbank has nothing outside it. Ranges longer than a year are
+     * checked and fetched one calendar year at a time: a year is a few thousand rows, so no
+     * response outgrows the codec buffer, and years already stored are skipped.
+     */
+    private List<RateRow> loadRangeIfIncomplete(String currency, LocalDate from, LocalDate to) {
+        LocalDate today = LocalDate.now();
+        LocalDate startDate = from.isBefore(minDate) ? minDate : from;
+        LocalDate endDate = to.isAfter(today) ? today : to;
+        if (startDate.isAfter(endDate)) {
+            return Collections.emptyList();
+        }
+        if (ChronoUnit.DAYS.between(startDate, endDate) < 366) {
+            return loadChunkIfIncomplete(currency, startDate, endDate);
+        }
+        List<RateRow> fetched = new ArrayList<>();
+        for (LocalDate chunkStart = startDate; !chunkStart.isAfter(endDate); ) {
+            LocalDate yearEnd = chunkStart.with(TemporalAdjusters.lastDayOfYear());
+            LocalDate chunkEnd = yearEnd.isBefore(endDate) ? yearEnd : endDate;
+            fetched.addAll(loadChunkIfIncomplete(currency, chunkStart, chunkEnd));
+            chunkStart = chunkEnd.plusDays(1);
+        }
+        return fetched;
+    }
+
+    private List<RateRow> loadChunkIfIncomplete(String currency, LocalDate startDate, LocalDate endDate) {
+        NavigableSet<LocalDate> knownDays = rateWriteBehind.pendingDates(startDate, endDate);
+        knownDays.addAll(rateDateIndex.findDates(startDate, endDate, Pageable.unpaged()).getContent());
 
+        if (coversRange(startDate, endDate, knownDays)) {
+            log.debug("Store has complete data for range {} to {}", startDate, endDate);
+            return Collections.emptyList();
+        }
+        return fetchChunk(currency, startDate, endDate, !knownDays.isEmpty());
+    }
+
+    /**
+     * Fetches the range widened to whole months and queues the rows. When some of it is
+     * already stored the fetch is conditional, so an unchanged upstream costs no parse.
+     */
+    private List<RateRow> fetchChunk(String currency, LocalDate startDate, LocalDate endDate, boolean partlyStored) {
+        if (clusterCoordinator.isFollower()) {
+            clusterCoordinator.requestSync(startDate, endDate);
+            return Collections.emptyList();
+        }
+        // Windows usually slide forward: fetch whole months so the next window is already stored
+        LocalDate fetchStart = startDate.withDayOfMonth(1);
+        LocalDate fetchEnd = widenToMonthEnd(endDate);
+        log.info("Fetching exchange rates for {} from {} to {} from Bundesbank API",
+                currency, fetchStart, fetchEnd);
+
+        String xml;
+        if (partlyStored) {
+            // Gaps are usually holidays: only reparse when upstream has something not yet stored
+            Optional<String> changed = client.fetchExchangeRatesHistoryIfModified(currency, fetchStart, fetchEnd);
+            if (changed.isEmpty()) {
+                log.debug("Upstream data for {} to {} unchanged since it was stored", fetchStart, fetchEnd);
+                return Collections.emptyList();
+            }
+            xml = changed.get();
+        } else {
+            xml = client.fetchExchangeRatesHistory(currency, fetchStart, fetchEnd);
+        }
+
+        List<RateRow> rows = toRows(parser.parseExchangeRates(xml));
+        // The archive may only treat this response as ingested once the rows are committed
+        rateWriteBehind.enqueue(rows, () -> client.markHistoryIngested(currency, fetchStart, fetchEnd, xml));
+        return rows;
+    }
+
+    private static LocalDate widenToMonthEnd(LocalDate endDate) {
+        LocalDate monthEnd = endDate.with(TemporalAdjusters.lastDayOfMonth());
+        LocalDate today = LocalDate.now();
+        if (!monthEnd.isAfter(today)) {
+            return monthEnd;
+        }
+        return endDate.isAfter(today) ? endDate : today;
+    }
+
+    /**
+     * Stores rates that were not stored yet and returns how many were inserted.
+     */
     @Transactional
-    public ExchangeRatesOnDateResponse getExchangeRatesOnDate(String targetCurrency, LocalDate date) {
-        validateCurrency(targetCurrency);
+    public int ingestRates(List<ExchangeRate> rates) {
+        return saveRatesIfNotExist(rates);
+    }
+
+    /**
+     * Check if the store has complete data for the date range: every TARGET business day
+     * in it is stored or queued. Today is left out, its rates may not be published yet.
+     */
+    private static boolean coversRange(LocalDate startDate, LocalDate endDate, NavigableSet<LocalDate> knownDays) {
+        LocalDate today = LocalDate.now();
+        for (LocalDate day = startDate; !day.isAfter(endDate) && day.isBefore(today); day = day.plusDays(1)) {
+            if (TargetCalendar.isBusinessDay(day) && !knownDays.contains(day)) {
+                log.debug("Business day {} in {} to {} is not stored", day, startDate, endDate);
+                return false;
+            }
+        }
+        return true;
+    }
 
-        List<ExchangeRate> dbRates = exchangeRateRepository.findByBaseCurrencyAndDate(BASE_CURRENCY, date);
 
-        List<ExchangeRate> rates;
+    /**
+     * All rates on a date against the given base, optionally limited to some currencies.
+     * Non-EUR bases are divided out of the EUR table once per day and base, see
+     * {@link RebasedRateTables}.
+     */
+    public ExchangeRatesOnDateResponse getExchangeRatesOnDate(String baseCurrency, LocalDate date, List<String> symbols) {
+        String base = validateCurrency(baseCurrency);
+        Set<String> wanted = validateSymbols(symbols);
+
+        ExchangeRatesOnDateResponse response = loadEurRatesOnDate(date);
+        if ((BASE_CURRENCY.equals(base) && wanted == null) || response.getRates().isEmpty()) {
+            response.setBaseCurrency(base);
+            return response;
+        }
+        if (!BASE_CURRENCY.equals(base) && !response.getRates().containsKey(base)) {
+            throw new ExchangeRateNotFoundException(base, date);
+        }
+        response.setRates(rebaseDay(date, base, wanted, response.getRates()));
+        response.setBaseCurrency(base);
+        return response;
+    }
+
+    private ExchangeRatesOnDateResponse loadEurRatesOnDate(LocalDate date) {
+        List<RateRow> snapshotRates = snapshotStore.findRatesOn(date);
+        if (!snapshotRates.isEmpty()) {
+            log.debug("Snapshot hit for {} rates on {}", BASE_CURRENCY, date);
+            return mapper.toOnDateResponse(BASE_CURRENCY, date, snapshotRates);
+        }
+
+        List<RateRow> dbRates = rateWriteBehind.withPending(rateStore.findRowsOn(date), List.of(date));
+
+        List<RateRow> rates;
         if (!dbRates.isEmpty()) {
-            log.debug("Found {} rates for {} on {} in H2", dbRates.size(), BASE_CURRENCY, date);
+            log.debug("Found {} rates for {} on {} in the store", dbRates.size(), BASE_CURRENCY, date);
             rates = dbRates;
+        } else if (clusterCoordinator.isFollower()) {
+            awaitLeaderSync(date);
+            rates = Collections.emptyList();
         } else {
             log.info("Fetching exchange rates for {} on {} from Bundesbank API", BASE_CURRENCY, date);
             String xml = client.fetchExchangeRatesOnDate(date);
-            rates = parser.parseExchangeRates(xml);
-
-            if (!rates.isEmpty()) {
-                saveRatesIfNotExist(rates);
-            }
+            // Answered from the parsed rows; storing them happens behind the response
+            rates = toRows(parser.parseExchangeRates(xml));
+            rateWriteBehind.enqueue(rates);
         }
 
         return mapper.toOnDateResponse(BASE_CURRENCY, date, rates);
     }
 
+    private Set<String> validateSymbols(List<String> symbols) {
+        if (symbols == null || symbols.isEmpty()) {
+            return null;
+        }
+        Set<String> valid = new HashSet<>();
+        for (String symbol : symbols) {
+            valid.add(validateCurrency(symbol.trim()));
+        }
+        return valid;
+    }
+
 
 
-    @Transactional
     public ExchangeRate getExchangeRate(String targetCurrency, LocalDate date) {
         String validTargetCurrency = validateCurrency(targetCurrency);
 
-        Optional<ExchangeRate> dbRate = exchangeRateRepository
-                .findByBaseCurrencyAndTargetCurrencyAndDate(BASE_CURRENCY, validTargetCurrency, date);
+        Optional<BigDecimal> snapshotRate = snapshotStore.findRate(validTargetCurrency, date);
+        if (snapshotRate.isPresent()) {
+            log.debug("Snapshot hit for {}/{} on {}", BASE_CURRENCY, validTargetCurrency, date);
+            return new ExchangeRate(null, BASE_CURRENCY, validTargetCurrency, snapshotRate.get(), date);
+        }
 
-        if (dbRate.isPresent()) {
-            log.debug("H2 hit for {}/{} on {}", BASE_CURRENCY, validTargetCurrency, date);
-            return dbRate.get();
+        Optional<BigDecimal> storedRate = rateStore.findRate(validTargetCurrency, date);
+        if (storedRate.isEmpty()) {
+            storedRate = rateWriteBehind.pendingRate(validTargetCurrency, date);
+        }
+        if (storedRate.isPresent()) {
+            log.debug("Store hit for {}/{} on {}", BASE_CURRENCY, validTargetCurrency, date);
+            return new ExchangeRate(null, BASE_CURRENCY, validTargetCurrency, storedRate.get(), date);
+        }
+
+        if (clusterCoordinator.isFollower()) {
+            // Other currencies stored for the day: this one is simply not quoted
+            if (rateDateIndex.findMaxDate(date, date).isEmpty()) {
+                awaitLeaderSync(date);
+            }
+            throw new ExchangeRateNotFoundException(validTargetCurrency, date);
         }
 
         log.info("Fetching exchange rate for {}/{} on {} from Bundesbank API", BASE_CURRENCY, validTargetCurrency, date);
@@ -198,40 +569,114 @@ public class ExchangeRateService {
         }
 
         ExchangeRate rate = rates.get(0);
-        saveRateIfNotExist(rate);
+        rateWriteBehind.enqueue(List.of(RateRow.from(rate)));
         return rate;
     }
 
+    /**
+     * A follower missing a day asks the leader for it and has the client retry once that had
+     * time to land, instead of answering "no rates". Returns only when stored days on both
+     * sides show the day is a holiday, which the leader would answer as empty too.
+     */
+    private void awaitLeaderSync(LocalDate date) {
+        if (isKnownHoliday(date)) {
+            return;
+        }
+        clusterCoordinator.requestSync(date, date);
+        throw new ServiceOverloadedException("Rates for " + date + " are being loaded, retry shortly",
+                clusterCoordinator.getSyncRetryAfterSeconds());
+    }
+
+    /**
+     * Latest rate on or before the date, so holidays resolve to the previous business day.
+     * Answered from {@link RateDateIndex} without a DB query; Bundesbank is only asked when
+     * the gap to the resolved day could still hold unloaded business days.
+     */
+    public ExchangeRate getExchangeRateAsOf(String targetCurrency, LocalDate date) {
+        String validTargetCurrency = validateCurrency(targetCurrency);
+
+        Optional<RateRow> indexed = rateDateIndex.findOnOrBefore(validTargetCurrency, date);
+        if (indexed.isEmpty() || !isSettled(validTargetCurrency, indexed.get().getDate(), date)) {
+            LocalDate from = indexed.map(row -> row.getDate().plusDays(1)).orElse(rateDateIndex.lookbackStart(date));
+            loadRangeIfIncomplete(BASE_CURRENCY, from, date);
+            indexed = rateDateIndex.findOnOrBefore(validTargetCurrency, date);
+            // Fetched rows only reach the index once committed; until then they are read from the queue
+            Optional<RateRow> queued = latestPending(validTargetCurrency, from, date);
+            if (queued.isPresent() && (indexed.isEmpty() || queued.get().getDate().isAfter(indexed.get().getDate()))) {
+                indexed = queued;
+            }
+        }
+
+        RateRow row = indexed.orElseThrow(() -> new ExchangeRateNotFoundException(validTargetCurrency, date));
+        return new ExchangeRate(null, BASE_CURRENCY, validTargetCurrency, row.getRate(), row.getDate());
+    }
+
+    private Optional<RateRow> latestPending(String currency, LocalDate startDate, LocalDate endDate) {
+        for (LocalDate day : rateWriteBehind.pendingDates(startDate, endDate).descendingSet()) {
+            Optional<BigDecimal> rate = rateWriteBehind.pendingRate(currency, day);
+            if (rate.isPresent()) {
+                return Optional.of(new RateRow(day, currency, rate.get()));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * A gap between the resolved and the requested day needs no upstream call when later
+     * rates are stored (the gap is a known holiday) or when it only spans TARGET closing days.
+     */
+    private boolean isSettled(String currency, LocalDate resolved, LocalDate requested) {
+        if (resolved.equals(requested) || rateDateIndex.hasRatesAfter(currency, requested)) {
+            return true;
+        }
+        for (LocalDate day = resolved.plusDays(1); !day.isAfter(requested); day = day.plusDays(1)) {
+            if (TargetCalendar.isBusinessDay(day)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public ConversionResult convertCurrency(
             String fromCurrency, String toCurrency, BigDecimal amount, LocalDate date) {
+        return convertCurrency(fromCurrency, toCurrency, amount, date, LookupMode.EXACT.name());
+    }
+
+    public ConversionResult convertCurrency(
+            String fromCurrency, String toCurrency, BigDecimal amount, LocalDate date, String mode) {
+        LookupMode lookupMode = LookupMode.parse(mode);
 
         String validFromCurrency = fromCurrency.toUpperCase();
         String validToCurrency = toCurrency.toUpperCase();
 
         BigDecimal convertedAmount;
         BigDecimal exchangeRate;
+        LocalDate rateDate;
 
         if (BASE_CURRENCY.equals(validFromCurrency)) {
             // EUR -> targetCurrency: multiply by rate
             validateCurrency(validToCurrency);
-            ExchangeRate rate = getExchangeRate(validToCurrency, date);
+            ExchangeRate rate = lookupRate(validToCurrency, date, lookupMode);
             exchangeRate = rate.getRate();
+            rateDate = rate.getDate();
             convertedAmount = amount.multiply(exchangeRate).setScale(4, RoundingMode.HALF_UP);
         } else if (BASE_CURRENCY.equals(validToCurrency)) {
             // targetCurrency -> EUR: divide by rate
             validateCurrency(validFromCurrency);
-            ExchangeRate rate = getExchangeRate(validFromCurrency, date);
+            ExchangeRate rate = lookupRate(validFromCurrency, date, lookupMode);
             exchangeRate = rate.getRate();
+            rateDate = rate.getDate();
             convertedAmount = amount.divide(exchangeRate, 4, RoundingMode.HALF_UP);
         } else {
             // Cross-rate: fromCurrency -> EUR -> toCurrency
             validateCurrency(validFromCurrency);
             validateCurrency(validToCurrency);
-            ExchangeRate fromRate = getExchangeRate(validFromCurrency, date);
-            ExchangeRate toRate = getExchangeRate(validToCurrency, date);
+            ExchangeRate fromRate = lookupRate(validFromCurrency, date, lookupMode);
+            ExchangeRate toRate = lookupRate(validToCurrency, date, lookupMode);
             BigDecimal amountInEur = amount.divide(fromRate.getRate(), 6, RoundingMode.HALF_UP);
             convertedAmount = amountInEur.multiply(toRate.getRate()).setScale(4, RoundingMode.HALF_UP);
             exchangeRate = toRate.getRate().divide(fromRate.getRate(), 6, RoundingMode.HALF_UP);
+            rateDate = fromRate.getDate().isBefore(toRate.getDate()) ? fromRate.getDate() : toRate.getDate();
         }
 
         return ConversionResult.builder()
@@ -241,18 +686,36 @@ public class ExchangeRateService {
                 .convertedAmount(convertedAmount)
                 .exchangeRate(exchangeRate)
                 .date(date)
+                .rateDate(rateDate)
                 .build();
     }
 
-    private void saveRateIfNotExist(ExchangeRate rate) {
-        if (!exchangeRateRepository.existsByBaseCurrencyAndTargetCurrencyAndDate(
-                rate.getBaseCurrency(), rate.getTargetCurrency(), rate.getDate())) {
-            exchangeRateRepository.save(rate);
-        }
+    private ExchangeRate lookupRate(String currency, LocalDate date, LookupMode mode) {
+        return mode == LookupMode.ASOF ? getExchangeRateAsOf(currency, date) : getExchangeRate(currency, date);
     }
 
-    private void saveRatesIfNotExist(List<ExchangeRate> rates) {
-        rates.forEach(this::saveRateIfNotExist);
+    private static List<RateRow> toRows(List<ExchangeRate> rates) {
+        return rates.stream().map(RateRow::from).collect(Collectors.toList());
+    }
+
+    /**
+     * Inserts in a short transaction of its own, joining the caller's when there is one.
+     */
+    private int saveRatesIfNotExist(List<ExchangeRate> rates) {
+        Integer inserted = new TransactionTemplate(transactionManager).execute(status -> insertMissing(rates));
+        return inserted != null ? inserted : 0;
+    }
+
+    private int insertMissing(List<ExchangeRate> rates) {
+        RateIngestEvent event = new RateIngestEvent();
+        event.begin();
+        List<RateRow> rows = toRows(rates);
+        List<RateRow> inserted = rateStore.insertMissing(rows);
+        if (!inserted.isEmpty()) {
+            eventPublisher.publishEvent(new RatesIngestedEvent(inserted));
+        }
+        event.record(RateIngestEvent.REPLAY, rows, inserted.size());
+        return inserted.size();
     }
 
     private void refreshCurrencyCodes() {
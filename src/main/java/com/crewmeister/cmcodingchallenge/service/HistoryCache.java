@@ -0,0 +1,158 @@
+package com.crewmeister.cmcodingchallenge.service;
+
+import com.crewmeister.cmcodingchallenge.dto.ExchangeRatesHistoryResponse;
+import com.crewmeister.cmcodingchallenge.event.DatasetChangedEvent;
+import com.crewmeister.cmcodingchallenge.event.RatesIngestedEvent;
+import com.crewmeister.cmcodingchallenge.jfr.HistoryCacheEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * History pages keyed by range and page. Besides the TTL, entries are dropped as soon as an
+ * ingest commits a rate whose date falls inside their range, so long TTLs never serve
+ * pages that miss newly stored days.
+ */
+@Slf4j
+@Component
+public class HistoryCache {
+
+    @Data
+    public static class Key {
+        private final LocalDate startDate;
+        private final LocalDate endDate;
+        private final int page;
+        private final int size;
+
+        boolean overlaps(LocalDate from, LocalDate to) {
+            return !startDate.isAfter(to) && !endDate.isBefore(from);
+        }
+    }
+
+    @Data
+    static class VariantKey {
+        private final Key page;
+        private final String base;
+        private final Set<String> symbols;
+    }
+
+    /**
+     * A page for another base or symbol filter and the EUR page it was derived from.
+     */
+    @RequiredArgsConstructor
+    private static class Variant {
+        private final ExchangeRatesHistoryResponse source;
+        private final ExchangeRatesHistoryResponse page;
+    }
+
+    private final Cache<Key, ExchangeRatesHistoryResponse> cache;
+    private final Cache<VariantKey, Variant> variants;
+    private final boolean scopedRemoteInvalidation;
+
+    public HistoryCache(@Value("${cache.history.ttl-minutes:60}") int ttlMinutes,
+                        @Value("${cache.history.max-size:100}") int maxSize,
+                        @Value("${cache.invalidation.bus:none}") String bus) {
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+                .maximumSize(maxSize)
+                .build();
+        this.variants = Caffeine.newBuilder()
+                .expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+                .maximumSize(maxSize)
+                .build();
+        this.scopedRemoteInvalidation = !"none".equalsIgnoreCase(bus);
+    }
+
+    /**
+     * Plain lookup rather than {@code cache.get(key, loader)}: a loader runs inside the map's
+     * bin lock, which would pin a virtual thread for the whole DB or upstream load.
+     */
+    public ExchangeRatesHistoryResponse get(Key key) {
+        HistoryCacheEvent event = new HistoryCacheEvent();
+        event.begin();
+        ExchangeRatesHistoryResponse response = cache.getIfPresent(key);
+        event.record(response != null ? HistoryCacheEvent.HIT : HistoryCacheEvent.MISS,
+                key.getStartDate(), key.getEndDate(), key.getPage(), key.getSize(), 0);
+        return response;
+    }
+
+    /**
+     * Whether the page is cached, without recording a {@link HistoryCacheEvent}: probes such as
+     * prefetch checks are not requests and must not skew the hit ratio.
+     */
+    public boolean contains(Key key) {
+        return cache.getIfPresent(key) != null;
+    }
+
+    public void put(Key key, ExchangeRatesHistoryResponse response) {
+        cache.put(key, response);
+    }
+
+    /**
+     * The EUR page rebased or filtered, derived once and reused for as long as the same EUR
+     * page instance is served. A reloaded EUR page is a new instance, so a variant can never
+     * outlive the page it came from.
+     */
+    public ExchangeRatesHistoryResponse variant(Key key, String base, Set<String> symbols,
+                                                ExchangeRatesHistoryResponse eurPage,
+                                                UnaryOperator<ExchangeRatesHistoryResponse> derive) {
+        VariantKey variantKey = new VariantKey(key, base, symbols);
+        Variant cached = variants.getIfPresent(variantKey);
+        if (cached != null && cached.source == eurPage) {
+            return cached.page;
+        }
+        ExchangeRatesHistoryResponse page = derive.apply(eurPage);
+        variants.put(variantKey, new Variant(eurPage, page));
+        return page;
+    }
+
+    /**
+     * Drops every page whose range overlaps the given dates and returns how many were dropped.
+     */
+    public int invalidateRange(LocalDate from, LocalDate to) {
+        HistoryCacheEvent event = new HistoryCacheEvent();
+        event.begin();
+        int[] removed = {0};
+        cache.asMap().keySet().removeIf(key -> {
+            boolean hit = key.overlaps(from, to);
+            if (hit) removed[0]++;
+            return hit;
+        });
+        variants.asMap().keySet().removeIf(key -> key.getPage().overlaps(from, to));
+        if (removed[0] > 0) {
+            log.debug("Invalidated {} cached history pages overlapping {} to {}", removed[0], from, to);
+        }
+        event.record(HistoryCacheEvent.INVALIDATE, from, to, -1, 0, removed[0]);
+        return removed[0];
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+        variants.invalidateAll();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onRatesIngested(RatesIngestedEvent event) {
+        invalidateRange(event.getMinDate(), event.getMaxDate());
+    }
+
+    @EventListener
+    public void onDatasetChanged(DatasetChangedEvent event) {
+        // Without an invalidation bus the changed ranges are unknown
+        if (!scopedRemoteInvalidation) {
+            invalidateAll();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.crewmeister.cmcodingchallenge.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Computes history pages ahead of the client on the bounded prefetch executor. When its
+ * queue is full the prefetch is dropped rather than queued behind, so speculative work
+ * never delays a foreground request.
+ */
+@Slf4j
+@Component
+public class HistoryPrefetcher {
+
+    private final Executor executor;
+    private final HistoryCache historyCache;
+    private final boolean enabled;
+    private final Set<HistoryCache.Key> inFlight = ConcurrentHashMap.newKeySet();
+
+    public HistoryPrefetcher(Executor historyPrefetchExecutor,
+                             HistoryCache historyCache,
+                             @Value("${history.prefetch.enabled:true}") boolean enabled) {
+        this.executor = historyPrefetchExecutor;
+        this.historyCache = historyCache;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Runs the loader for the key in the background unless the page is cached, already
+     * being prefetched, or the executor is saturated. The loader is expected to cache it.
+     */
+    public void prefetch(HistoryCache.Key key, Runnable loader) {
+        if (!enabled || historyCache.contains(key) || !inFlight.add(key)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    loader.run();
+                    log.debug("Prefetched history {}", key);
+                } catch (RuntimeException e) {
+                    log.debug("Prefetch of history {} failed: {}", key, e.getMessage());
+                } finally {
+                    inFlight.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key);
+            log.debug("Prefetch queue full, skipping history {}", key);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.crewmeister.cmcodingchallenge.service;
+
+import com.crewmeister.cmcodingchallenge.entity.SyncRequest;
+import com.crewmeister.cmcodingchallenge.repository.SyncRequestRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Upstream work that only the elected leader performs in clustered mode: serving sync
+ * requests queued by followers and keeping the most recent business days current.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LeaderSyncJob {
+
+    private final ClusterCoordinator coordinator;
+    private final SyncRequestRepository syncRequestRepository;
+    private final ExchangeRateService exchangeRateService;
+
+    @Value("${cluster.recent-sync-days:7}")
+    private int recentSyncDays;
+
+    @Scheduled(fixedDelayString = "${cluster.heartbeat-ms:5000}")
+    public void processSyncRequests() {
+        if (!coordinator.isEnabled() || !coordinator.isLeader()) {
+            return;
+        }
+        for (SyncRequest request : syncRequestRepository.findTop20ByOrderByRequestedAtAsc()) {
+            try {
+                exchangeRateService.ensureRangeLoaded(request.getStartDate(), request.getEndDate());
+                syncRequestRepository.delete(request);
+            } catch (RuntimeException e) {
+                log.warn("Sync of {} to {} failed, will retry: {}",
+                        request.getStartDate(), request.getEndDate(), e.getMessage());
+                return;
+            }
+        }
+    }
+
+    @Scheduled(initialDelayString = "${cluster.heartbeat-ms:5000}", fixedDelayString = "${cluster.sync-interval-ms:900000}")
+    public void syncRecentDays() {
+        if (!coordinator.isEnabled() || !coordinator.isLeader()) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        try {
+            exchangeRateService.ensureRangeLoaded(today.minusDays(recentSyncDays), today);
+        } catch (RuntimeException e) {
+            log.warn("Recent-days sync failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package com.crewmeister.cmcodingchallenge.service;
+
+import com.crewmeister.cmcodingchallenge.dto.ExchangeRatesOnDateResponse;
+import com.crewmeister.cmcodingchallenge.dto.RateRow;
+import com.crewmeister.cmcodingchallenge.event.DatasetChangedEvent;
+import com.crewmeister.cmcodingchallenge.event.RatesIngestedEvent;
+import com.crewmeister.cmcodingchallenge.store.RateStore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pushes each newly published day's EUR rates to server-sent event subscribers once, right
+ * after the ingest that stored it commits. Every subscriber has a small bounded buffer that
+ * the feed executor drains; publishing only enqueues, and a subscriber whose buffer
+ * overflows is disconnected instead of slowing down the others. A send blocked on a client
+ * that stopped reading longer than the write timeout is interrupted and the client dropped,
+ * so a stalled socket cannot hold a send thread. While anyone is subscribed the feed itself
+ * polls for today's publication on the feed executor, once per instance rather than per client.
+ */
+@Slf4j
+@Component
+public class RateFeed {
+
+    private static final String BASE_CURRENCY = "EUR";
+    private static final FeedMessage HEARTBEAT = new FeedMessage(null, null, null);
+
+    private static final class FeedMessage {
+        private final String id;
+        private final String name;
+        private final String data;
+
+        private FeedMessage(String id, String name, String data) {
+            this.id = id;
+            this.name = name;
+            this.data = data;
+        }
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final BlockingQueue<FeedMessage> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        // Guarded by the subscriber: the thread inside emitter.send, if any, and since when
+        private Thread sender;
+        private long sendStartedNanos;
+
+        private Subscriber(SseEmitter emitter, int bufferSize) {
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+    }
+
+    private final RateStore rateStore;
+    private final ExchangeRateMapper mapper;
+    private final ExchangeRateService exchangeRateService;
+    private final ClusterCoordinator clusterCoordinator;
+    private final ObjectMapper objectMapper;
+    private final Executor executor;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicReference<LocalDate> lastPublished = new AtomicReference<>(LocalDate.MIN);
+    private final AtomicBoolean polling = new AtomicBoolean();
+    private final int bufferSize;
+    private final long emitterTimeoutMs;
+    private final long writeTimeoutNanos;
+    private final int minRates;
+    private final int maxAgeDays;
+
+    public RateFeed(RateStore rateStore,
+                    ExchangeRateMapper mapper,
+                    ExchangeRateService exchangeRateService,
+                    ClusterCoordinator clusterCoordinator,
+                    ObjectMapper objectMapper,
+                    Executor rateFeedExecutor,
+                    @Value("${feed.buffer-size:16}") int bufferSize,
+                    @Value("${feed.emitter-timeout-ms:1800000}") long emitterTimeoutMs,
+                    @Value("${feed.write-timeout-ms:10000}") long writeTimeoutMs,
+                    @Value("${feed.min-rates:20}") int minRates,
+                    @Value("${feed.max-age-days:7}") int maxAgeDays) {
+        this.rateStore = rateStore;
+        this.mapper = mapper;
+        this.exchangeRateService = exchangeRateService;
+        this.clusterCoordinator = clusterCoordinator;
+        this.objectMapper = objectMapper;
+        this.executor = rateFeedExecutor;
+        this.bufferSize = bufferSize;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        this.writeTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(writeTimeoutMs);
+        this.minRates = minRates;
+        this.maxAgeDays = maxAgeDays;
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, bufferSize);
+        subscribers.add(subscriber);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        log.debug("Rate feed subscriber connected, {} active", subscribers.size());
+        return emitter;
+    }
+
+    int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onRatesIngested(RatesIngestedEvent event) {
+        TreeSet<LocalDate> candidates = new TreeSet<>();
+        for (RateRow row : event.getRows()) {
+            if (isUnpublished(row.getDate())) {
+                candidates.add(row.getDate());
+            }
+        }
+        publishLater(candidates);
+    }
+
+    /**
+     * Followers in clustered mode never ingest themselves: look for new days after
+     * another node changed the shared dataset.
+     */
+    @EventListener
+    public void onDatasetChanged(DatasetChangedEvent event) {
+        TreeSet<LocalDate> candidates = new TreeSet<>();
+        for (LocalDate day = LocalDate.now().minusDays(maxAgeDays); !day.isAfter(LocalDate.now()); day = day.plusDays(1)) {
+            if (isUnpublished(day) && !isWeekend(day)) {
+                candidates.add(day);
+            }
+        }
+        publishLater(candidates);
+    }
+
+    /**
+     * One upstream check per instance while clients wait for today's rates, in place of
+     * every dashboard polling the on-date endpoint. The check runs on the feed executor, at
+     * most one at a time, so a slow upstream never holds the shared scheduler.
+     */
+    @Scheduled(fixedDelayString = "${feed.poll-ms:60000}")
+    public void pollPublication() {
+        LocalDate today = LocalDate.now();
+        if (subscribers.isEmpty() || !clusterCoordinator.isLeader() || isWeekend(today) || !isUnpublished(today)
+                || !polling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    exchangeRateService.getExchangeRatesOnDate(BASE_CURRENCY, today, null);
+                } catch (RuntimeException e) {
+                    log.debug("Publication poll for {} failed: {}", today, e.getMessage());
+                } finally {
+                    polling.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            polling.set(false);
+            log.debug("Rate feed executor saturated, publication poll for {} skipped", today);
+        }
+    }
+
+    /**
+     * Comment lines keep idle connections open through proxies and expose dead ones.
+     */
+    @Scheduled(fixedDelayString = "${feed.heartbeat-ms:30000}")
+    public void heartbeat() {
+        publish(HEARTBEAT);
+    }
+
+    /**
+     * Drops subscribers whose current send has been blocked longer than the write timeout:
+     * the client stopped reading, and its send thread is needed by everyone else.
+     */
+    @Scheduled(fixedDelayString = "${feed.write-timeout-ms:10000}")
+    public void expireStalledSends() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            boolean stalled;
+            synchronized (subscriber) {
+                stalled = subscriber.sender != null && now - subscriber.sendStartedNanos > writeTimeoutNanos;
+            }
+            if (stalled) {
+                disconnect(subscriber, "write timed out");
+            }
+        }
+    }
+
+    private boolean isUnpublished(LocalDate date) {
+        return date.isAfter(lastPublished.get()) && !date.isBefore(LocalDate.now().minusDays(maxAgeDays));
+    }
+
+    private static boolean isWeekend(LocalDate date) {
+        return date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY;
+    }
+
+    private void publishLater(TreeSet<LocalDate> candidates) {
+        if (candidates.isEmpty() || subscribers.isEmpty()) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    publishDays(candidates);
+                } catch (RuntimeException e) {
+                    log.warn("Publishing {} to the rate feed failed: {}", candidates, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("Rate feed executor saturated, {} days not published", candidates.size());
+        }
+    }
+
+    /**
+     * Publishes days in ascending order. A day is only sent once its stored table is
+     * complete enough, so a single-currency fetch for today does not use up its one push.
+     */
+    private void publishDays(TreeSet<LocalDate> candidates) {
+        for (LocalDate date : candidates) {
+            if (!isUnpublished(date)) {
+                continue;
+            }
+            List<RateRow> rows = rateStore.findRowsOn(date);
+            if (rows.size() < minRates) {
+                continue;
+            }
+            LocalDate previous = lastPublished.getAndUpdate(last -> date.isAfter(last) ? date : last);
+            if (!date.isAfter(previous)) {
+                continue;
+            }
+            ExchangeRatesOnDateResponse response = mapper.toOnDateResponse(BASE_CURRENCY, date, rows);
+            log.info("Publishing {} rates for {} to {} feed subscribers", rows.size(), date, subscribers.size());
+            publish(new FeedMessage(date.toString(), "rates", toJson(response)));
+        }
+    }
+
+    private String toJson(ExchangeRatesOnDateResponse response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void publish(FeedMessage message) {
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.buffer.offer(message)) {
+                disconnect(subscriber, "buffer full");
+                continue;
+            }
+            scheduleDrain(subscriber);
+        }
+    }
+
+    private void scheduleDrain(Subscriber subscriber) {
+        if (!subscriber.draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            subscriber.draining.set(false);
+            disconnect(subscriber, "feed executor saturated");
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            FeedMessage message;
+            while ((message = subscriber.buffer.poll()) != null) {
+                if (!beginSend(subscriber)) {
+                    break;
+                }
+                try {
+                    send(subscriber.emitter, message);
+                } finally {
+                    endSend(subscriber);
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Client went away or the send was cut off; the emitter callbacks may not fire for a broken pipe
+            subscribers.remove(subscriber);
+            return;
+        } finally {
+            subscriber.draining.set(false);
+        }
+        if (!subscribers.contains(subscriber)) {
+            // Disconnected while a send was in progress: completing is left to the sender
+            close(subscriber);
+        } else if (!subscriber.buffer.isEmpty()) {
+            scheduleDrain(subscriber);
+        }
+    }
+
+    private boolean beginSend(Subscriber subscriber) {
+        synchronized (subscriber) {
+            if (!subscribers.contains(subscriber)) {
+                return false;
+            }
+            subscriber.sender = Thread.currentThread();
+            subscriber.sendStartedNanos = System.nanoTime();
+            return true;
+        }
+    }
+
+    private void endSend(Subscriber subscriber) {
+        synchronized (subscriber) {
+            subscriber.sender = null;
+        }
+        // An interrupt meant for this send must not cut off the next one
+        Thread.interrupted();
+    }
+
+    private static void send(SseEmitter emitter, FeedMessage message) throws IOException {
+        if (message == HEARTBEAT) {
+            emitter.send(SseEmitter.event().comment("keep-alive"));
+        } else {
+            emitter.send(SseEmitter.event().id(message.id).name(message.name).data(message.data, MediaType.APPLICATION_JSON));
+        }
+    }
+
+    /**
+     * Completing the emitter waits for a send in progress, so a subscriber stuck in one is
+     * interrupted instead and completed by its sender once the send gives up.
+     */
+    private void disconnect(Subscriber subscriber, String reason) {
+        if (!subscribers.remove(subscriber)) {
+            return;
+        }
+        log.debug("Disconnecting rate feed subscriber: {}", reason);
+        synchronized (subscriber) {
+            if (subscriber.sender != null) {
+                subscriber.sender.interrupt();
+                return;
+            }
+        }
+        close(subscriber);
+    }
+
+    private static void close(Subscriber subscriber) {
+        if (subscriber.closed.compareAndSet(false, true)) {
+            subscriber.emitter.complete();
+        }
+    }
+}
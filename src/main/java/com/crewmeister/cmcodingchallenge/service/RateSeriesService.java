@@ -0,0 +1,136 @@
+package com.crewmeister.cmcodingchallenge.service;
+
+import com.crewmeister.cmcodingchallenge.dto.RateRow;
+import com.crewmeister.cmcodingchallenge.dto.RateSeriesResponse;
+import com.crewmeister.cmcodingchallenge.exception.InvalidRequestException;
+import com.crewmeister.cmcodingchallenge.store.RateDateIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serves a single currency's series for charts, downsampled server-side into day, week
+ * or month buckets so multi-year ranges come back in one small response.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RateSeriesService {
+
+    private static final String BASE_CURRENCY = "EUR";
+    private static final int SCALE = 6;
+
+    public enum Resolution {
+        DAY, WEEK, MONTH;
+
+        static Resolution parse(String value) {
+            try {
+                return Resolution.valueOf(value.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new InvalidRequestException("resolution must be one of day, week, month");
+            }
+        }
+
+        LocalDate bucketStart(LocalDate date) {
+            switch (this) {
+                case WEEK:
+                    return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                case MONTH:
+                    return date.withDayOfMonth(1);
+                default:
+                    return date;
+            }
+        }
+    }
+
+    public enum Aggregation {
+        LAST(List.of("epochDay", "rate")),
+        AVG(List.of("epochDay", "rate")),
+        OHLC(List.of("epochDay", "open", "high", "low", "close"));
+
+        private final List<String> fields;
+
+        Aggregation(List<String> fields) {
+            this.fields = fields;
+        }
+
+        static Aggregation parse(String value) {
+            try {
+                return Aggregation.valueOf(value.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new InvalidRequestException("agg must be one of last, avg, ohlc");
+            }
+        }
+    }
+
+    private final ExchangeRateService exchangeRateService;
+    private final RateDateIndex rateDateIndex;
+
+    public RateSeriesResponse getSeries(String currency, LocalDate startDate, LocalDate to,
+                                        String resolution, String aggregation) {
+        LocalDate endDate = exchangeRateService.checkRange(startDate, to);
+        String validCurrency = exchangeRateService.validateCurrency(currency);
+        Resolution validResolution = Resolution.parse(resolution);
+        Aggregation validAggregation = Aggregation.parse(aggregation);
+
+        exchangeRateService.ensureRangeLoaded(startDate, endDate);
+
+        List<RateRow> rows = rateDateIndex.findSeries(validCurrency, startDate, endDate);
+
+        return RateSeriesResponse.builder()
+                .baseCurrency(BASE_CURRENCY)
+                .currency(validCurrency)
+                .startDate(startDate)
+                .endDate(endDate)
+                .resolution(validResolution.name().toLowerCase())
+                .aggregation(validAggregation.name().toLowerCase())
+                .fields(validAggregation.fields)
+                .points(downsample(rows, validResolution, validAggregation))
+                .build();
+    }
+
+    /**
+     * Folds date-ordered rows into one point per bucket in a single pass.
+     */
+    static Number[][] downsample(List<RateRow> rows, Resolution resolution, Aggregation aggregation) {
+        List<Number[]> points = new ArrayList<>();
+        int i = 0;
+        while (i < rows.size()) {
+            LocalDate bucket = resolution.bucketStart(rows.get(i).getDate());
+            BigDecimal open = rows.get(i).getRate();
+            BigDecimal high = open;
+            BigDecimal low = open;
+            BigDecimal close = open;
+            BigDecimal sum = BigDecimal.ZERO;
+            int count = 0;
+            for (; i < rows.size() && resolution.bucketStart(rows.get(i).getDate()).equals(bucket); i++) {
+                BigDecimal rate = rows.get(i).getRate();
+                high = high.max(rate);
+                low = low.min(rate);
+                close = rate;
+                sum = sum.add(rate);
+                count++;
+            }
+            long epochDay = bucket.toEpochDay();
+            switch (aggregation) {
+                case AVG:
+                    points.add(new Number[]{epochDay, sum.divide(BigDecimal.valueOf(count), SCALE, RoundingMode.HALF_UP)});
+                    break;
+                case OHLC:
+                    points.add(new Number[]{epochDay, open, high, low, close});
+                    break;
+                default:
+                    points.add(new Number[]{epochDay, close});
+            }
+        }
+        return points.toArray(new Number[0][]);
+    }
+}
@@ -0,0 +1,269 @@
+package com.crewmeister.cmcodingchallenge.service;
+
+import com.crewmeister.cmcodingchallenge.dto.RateRow;
+import com.crewmeister.cmcodingchallenge.dto.RateStatistics;
+import com.crewmeister.cmcodingchallenge.dto.RateStatisticsResponse;
+import com.crewmeister.cmcodingchallenge.entity.RateAggregate;
+import com.crewmeister.cmcodingchallenge.entity.RateAggregate.Period;
+import com.crewmeister.cmcodingchallenge.event.RatesIngestedEvent;
+import com.crewmeister.cmcodingchallenge.exception.InvalidRequestException;
+import com.crewmeister.cmcodingchallenge.repository.RateAggregateRepository;
+import com.crewmeister.cmcodingchallenge.store.RateDateIndex;
+import com.crewmeister.cmcodingchallenge.store.RateStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Serves min/max/avg/volatility over calendar windows from per-month and per-year
+ * aggregates. Aggregates are updated whenever rates are ingested, so a query combines
+ * at most a few dozen aggregate rows plus two partial edge months read from raw rows.
+ * <p>
+ * Aggregates are written after commit on a background thread, so they can lag the rates
+ * or miss an update that failed. A query only uses one whose count matches the rates
+ * {@link RateDateIndex} holds for its period and reads the rates otherwise; a periodic
+ * reconciliation rewrites aggregates that drifted.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RateStatisticsService {
+
+    private static final String BASE_CURRENCY = "EUR";
+
+    public enum Window {
+        MONTH, YEAR, ALL;
+
+        static Window parse(String value) {
+            try {
+                return Window.valueOf(value.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new InvalidRequestException("window must be one of month, year, all");
+            }
+        }
+    }
+
+    private final ExchangeRateService exchangeRateService;
+    private final RateStore rateStore;
+    private final RateDateIndex rateDateIndex;
+    private final RateAggregateRepository aggregateRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final Executor aggregateExecutor;
+
+    public RateStatisticsResponse getStatistics(String currency, LocalDate startDate, LocalDate to, String window) {
+        LocalDate endDate = exchangeRateService.checkRange(startDate, to);
+        String validCurrency = exchangeRateService.validateCurrency(currency);
+        Window validWindow = Window.parse(window);
+
+        exchangeRateService.ensureRangeLoaded(startDate, endDate);
+
+        Map<LocalDate, RateAggregate> months = byPeriodStart(aggregateRepository
+                .findByTargetCurrencyAndPeriodAndPeriodStartBetween(
+                        validCurrency, Period.MONTH, Period.MONTH.startOf(startDate), endDate));
+        Map<LocalDate, RateAggregate> years = byPeriodStart(aggregateRepository
+                .findByTargetCurrencyAndPeriodAndPeriodStartBetween(
+                        validCurrency, Period.YEAR, Period.YEAR.startOf(startDate), endDate));
+
+        List<RateStatistics> periods = new ArrayList<>();
+        LocalDate bucketStart = startDate;
+        while (!bucketStart.isAfter(endDate)) {
+            LocalDate bucketEnd = bucketEnd(validWindow, bucketStart, endDate);
+            RateStatsAccumulator acc = new RateStatsAccumulator();
+            combine(validCurrency, bucketStart, bucketEnd, months, years, acc);
+            if (acc.getCount() > 0) {
+                periods.add(acc.toStatistics(bucketStart, bucketEnd));
+            }
+            bucketStart = bucketEnd.plusDays(1);
+        }
+
+        return RateStatisticsResponse.builder()
+                .baseCurrency(BASE_CURRENCY)
+                .currency(validCurrency)
+                .startDate(startDate)
+                .endDate(endDate)
+                .window(validWindow.name().toLowerCase())
+                .periods(periods)
+                .build();
+    }
+
+    private LocalDate bucketEnd(Window window, LocalDate bucketStart, LocalDate endDate) {
+        LocalDate end;
+        switch (window) {
+            case MONTH:
+                end = Period.MONTH.endOf(bucketStart);
+                break;
+            case YEAR:
+                end = Period.YEAR.endOf(bucketStart);
+                break;
+            default:
+                end = endDate;
+        }
+        return end.isAfter(endDate) ? endDate : end;
+    }
+
+    /**
+     * Covers [from, to] greedily with whole years, then whole months, and reads raw rows
+     * only for the leftover days at either edge.
+     */
+    private void combine(String currency, LocalDate from, LocalDate to,
+                         Map<LocalDate, RateAggregate> months, Map<LocalDate, RateAggregate> years,
+                         RateStatsAccumulator acc) {
+        LocalDate cursor = from;
+        while (!cursor.isAfter(to)) {
+            LocalDate yearEnd = Period.YEAR.endOf(cursor);
+            LocalDate monthEnd = Period.MONTH.endOf(cursor);
+            if (cursor.getDayOfYear() == 1 && !yearEnd.isAfter(to)) {
+                mergePeriod(currency, years.get(cursor), cursor, yearEnd, acc);
+                cursor = yearEnd.plusDays(1);
+            } else if (cursor.getDayOfMonth() == 1 && !monthEnd.isAfter(to)) {
+                mergePeriod(currency, months.get(cursor), cursor, monthEnd, acc);
+                cursor = monthEnd.plusDays(1);
+            } else {
+                LocalDate edgeEnd = monthEnd.isAfter(to) ? to : monthEnd;
+                addRates(currency, cursor, edgeEnd, acc);
+                cursor = edgeEnd.plusDays(1);
+            }
+        }
+    }
+
+    /**
+     * Merges the period's aggregate if it accounts for every rate stored in the period, and
+     * reads the rates instead when it is missing or behind (e.g. a range loaded just now
+     * whose aggregate update is still queued).
+     */
+    private void mergePeriod(String currency, RateAggregate aggregate, LocalDate from, LocalDate to,
+                             RateStatsAccumulator acc) {
+        OptionalInt stored = rateDateIndex.countRates(currency, from, to);
+        long aggregated = aggregate == null ? 0 : aggregate.getCount();
+        if (stored.isPresent() && stored.getAsInt() == aggregated) {
+            acc.merge(aggregate);
+        } else {
+            addRates(currency, from, to, acc);
+        }
+    }
+
+    private void addRates(String currency, LocalDate from, LocalDate to, RateStatsAccumulator acc) {
+        for (RateRow row : rateDateIndex.findSeries(currency, from, to)) {
+            acc.add(row.getDate(), row.getRate());
+        }
+    }
+
+    /**
+     * Folds newly committed rates into the aggregates on the single aggregate writer thread.
+     * Concurrent ingests touching the same month would otherwise race on inserting or
+     * read-modify-writing one aggregate row, and a failure here never rolls back the ingest.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onRatesIngested(RatesIngestedEvent event) {
+        aggregateExecutor.execute(() -> applyRowsInTransaction(event.getRows()));
+    }
+
+    /**
+     * Rebuilds every aggregate whose count no longer matches the stored rates: missing ones
+     * (a database populated before aggregates were maintained, an ingest whose update
+     * failed) and ones an update was applied to twice. Runs at startup and then
+     * periodically, on the aggregate writer thread.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${stats.aggregates.reconcile-ms:3600000}",
+            fixedDelayString = "${stats.aggregates.reconcile-ms:3600000}")
+    public void reconcileAggregates() {
+        aggregateExecutor.execute(() -> {
+            try {
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> reconcile());
+            } catch (RuntimeException e) {
+                log.error("Failed to reconcile rate aggregates", e);
+            }
+        });
+    }
+
+    private void reconcile() {
+        Map<String, RateAggregate> aggregates = aggregateRepository.findAll().stream()
+                .collect(Collectors.toMap(
+                        a -> key(a.getTargetCurrency(), a.getPeriod(), a.getPeriodStart()),
+                        Function.identity()));
+        Map<String, RateStatsAccumulator> actual = new HashMap<>();
+        for (RateRow row : rateDateIndex.findAllRows()) {
+            for (Period period : Period.values()) {
+                LocalDate periodStart = period.startOf(row.getDate());
+                String key = key(row.getTargetCurrency(), period, periodStart);
+                aggregates.computeIfAbsent(key, k -> new RateAggregate(row.getTargetCurrency(), period, periodStart));
+                actual.computeIfAbsent(key, k -> new RateStatsAccumulator()).add(row.getDate(), row.getRate());
+            }
+        }
+
+        List<RateAggregate> changed = new ArrayList<>();
+        actual.forEach((key, acc) -> {
+            RateAggregate aggregate = aggregates.get(key);
+            if (aggregate.getCount() != acc.getCount()) {
+                acc.writeTo(aggregate);
+                changed.add(aggregate);
+            }
+        });
+        if (!changed.isEmpty()) {
+            log.info("Rebuilt {} rate aggregates that did not match the stored rates", changed.size());
+            aggregateRepository.saveAll(changed);
+        }
+    }
+
+    private void applyRowsInTransaction(List<RateRow> rows) {
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> applyRows(rows));
+        } catch (RuntimeException e) {
+            log.error("Failed to update rate aggregates for {} rates", rows.size(), e);
+        }
+    }
+
+    private void applyRows(List<RateRow> rows) {
+        Set<String> currencies = new HashSet<>();
+        Set<LocalDate> periodStarts = new HashSet<>();
+        for (RateRow row : rows) {
+            currencies.add(row.getTargetCurrency());
+            for (Period period : Period.values()) {
+                periodStarts.add(period.startOf(row.getDate()));
+            }
+        }
+
+        Map<String, RateAggregate> aggregates = aggregateRepository
+                .findByTargetCurrencyInAndPeriodStartIn(currencies, periodStarts).stream()
+                .collect(Collectors.toMap(
+                        a -> key(a.getTargetCurrency(), a.getPeriod(), a.getPeriodStart()),
+                        Function.identity()));
+        Map<String, RateStatsAccumulator> touched = new HashMap<>();
+
+        for (RateRow row : rows) {
+            for (Period period : Period.values()) {
+                LocalDate periodStart = period.startOf(row.getDate());
+                String key = key(row.getTargetCurrency(), period, periodStart);
+                RateAggregate aggregate = aggregates.computeIfAbsent(key,
+                        k -> new RateAggregate(row.getTargetCurrency(), period, periodStart));
+                touched.computeIfAbsent(key, k -> RateStatsAccumulator.of(aggregate))
+                        .add(row.getDate(), row.getRate());
+            }
+        }
+
+        touched.forEach((key, acc) -> acc.writeTo(aggregates.get(key)));
+        aggregateRepository.saveAll(touched.keySet().stream().map(aggregates::get).collect(Collectors.toList()));
+    }
+
+    private Map<LocalDate, RateAggregate> byPeriodStart(List<RateAggregate> aggregates) {
+        return aggregates.stream().collect(Collectors.toMap(RateAggregate::getPeriodStart, Function.identity()));
+    }
+
+    private static String key(String currency, Period period, LocalDate periodStart) {
+        return currency + ':' + period + ':' + periodStart;
+    }
+}
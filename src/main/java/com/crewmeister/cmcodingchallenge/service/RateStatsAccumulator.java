@@ -0,0 +1,103 @@
+package com.crewmeister.cmcodingchallenge.service;
+
+import com.crewmeister.cmcodingchallenge.dto.RateStatistics;
+import com.crewmeister.cmcodingchallenge.entity.RateAggregate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+
+/**
+ * Mergeable running statistics (count, sum, sum of squares, min, max, first, last).
+ * Used both to maintain stored {@link RateAggregate}s and to combine them at query time.
+ */
+class RateStatsAccumulator {
+
+    private static final int SCALE = 6;
+
+    private long count;
+    private double sum;
+    private double sumOfSquares;
+    private BigDecimal min;
+    private BigDecimal max;
+    private LocalDate firstDate;
+    private BigDecimal first;
+    private LocalDate lastDate;
+    private BigDecimal last;
+
+    static RateStatsAccumulator of(RateAggregate aggregate) {
+        RateStatsAccumulator acc = new RateStatsAccumulator();
+        acc.merge(aggregate);
+        return acc;
+    }
+
+    void add(LocalDate date, BigDecimal rate) {
+        double value = rate.doubleValue();
+        count++;
+        sum += value;
+        sumOfSquares += value * value;
+        min = (min == null || rate.compareTo(min) < 0) ? rate : min;
+        max = (max == null || rate.compareTo(max) > 0) ? rate : max;
+        if (firstDate == null || date.isBefore(firstDate)) {
+            firstDate = date;
+            first = rate;
+        }
+        if (lastDate == null || date.isAfter(lastDate)) {
+            lastDate = date;
+            last = rate;
+        }
+    }
+
+    void merge(RateAggregate other) {
+        if (other == null || other.getCount() == 0) {
+            return;
+        }
+        count += other.getCount();
+        sum += other.getSum();
+        sumOfSquares += other.getSumOfSquares();
+        min = (min == null || other.getMin().compareTo(min) < 0) ? other.getMin() : min;
+        max = (max == null || other.getMax().compareTo(max) > 0) ? other.getMax() : max;
+        if (firstDate == null || other.getFirstDate().isBefore(firstDate)) {
+            firstDate = other.getFirstDate();
+            first = other.getFirst();
+        }
+        if (lastDate == null || other.getLastDate().isAfter(lastDate)) {
+            lastDate = other.getLastDate();
+            last = other.getLast();
+        }
+    }
+
+    void writeTo(RateAggregate aggregate) {
+        aggregate.setCount(count);
+        aggregate.setSum(sum);
+        aggregate.setSumOfSquares(sumOfSquares);
+        aggregate.setMin(min);
+        aggregate.setMax(max);
+        aggregate.setFirstDate(firstDate);
+        aggregate.setFirst(first);
+        aggregate.setLastDate(lastDate);
+        aggregate.setLast(last);
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    RateStatistics toStatistics(LocalDate periodStart, LocalDate periodEnd) {
+        double mean = sum / count;
+        // Population variance; clamp tiny negative values caused by floating point cancellation
+        double variance = Math.max(0d, sumOfSquares / count - mean * mean);
+
+        return RateStatistics.builder()
+                .periodStart(periodStart)
+                .periodEnd(periodEnd)
+                .count(count)
+                .min(min)
+                .max(max)
+                .average(BigDecimal.valueOf(mean).setScale(SCALE, RoundingMode.HALF_UP))
+                .first(first)
+                .last(last)
+                .volatility(BigDecimal.valueOf(Math.sqrt(variance)).setScale(SCALE, RoundingMode.HALF_UP))
+                .build();
+    }
+}
@@ -0,0 +1,352 @@
+package com.crewmeister.cmcodingchallenge.service;
+
+import com.crewmeister.cmcodingchallenge.dto.RateRow;
+import com.crewmeister.cmcodingchallenge.event.RatesIngestedEvent;
+import com.crewmeister.cmcodingchallenge.jfr.RateIngestEvent;
+import com.crewmeister.cmcodingchallenge.store.RateStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind queue between upstream fetches and the {@link RateStore}. Requests hand
+ * their freshly parsed rows over and answer from them straight away; the flusher stores
+ * everything queued, from any number of requests, in batches of at most
+ * {@code ingest.write-behind.batch-size} rows per transaction. Until then the rows stay
+ * readable through {@link #withPending} and {@link #pendingRate}, so a follow-up request
+ * does not fetch them again.
+ * <p>
+ * When {@code ingest.write-behind.capacity} rows are already waiting, a producer stores
+ * its own rows synchronously instead, which slows fetching down to the speed of the
+ * store. Whatever is queued is flushed on shutdown.
+ * <p>
+ * Durability: queued rows live only in memory, so rows still queued when the process
+ * crashes are lost. They were never acknowledged as stored, though: completion callbacks,
+ * such as the raw archive marking a response ingested, only run once the rows are
+ * committed, so lost rows are fetched again on the next miss. A batch that fails
+ * {@code ingest.write-behind.max-attempts} flushes in a row is dead-lettered the same way:
+ * logged, dropped from the queue and the pending view, and its callbacks never run.
+ */
+@Slf4j
+@Component
+public class RateWriteBehind {
+
+    private final RateStore rateStore;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int capacity;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long flushMs;
+    private final ScheduledExecutorService flushScheduler;
+
+    /** Guards the queue and every change to {@link #pending}. */
+    private final Object queueLock = new Object();
+    private final ArrayDeque<RateRow> queue = new ArrayDeque<>();
+    private final Object flushLock = new Object();
+    /** Queued rows by date and currency. */
+    private final ConcurrentSkipListMap<LocalDate, Map<String, RateRow>> pending = new ConcurrentSkipListMap<>();
+    /** Rows ever queued, and rows taken off the head of the queue and stored; queue order is kept. */
+    private long queuedTotal;
+    private long storedTotal;
+    /** Completion callbacks in queue order, each due once {@link #storedTotal} reaches its position. */
+    private final ArrayDeque<StoredCallback> callbacks = new ArrayDeque<>();
+    private volatile boolean closed;
+    /** Failed flushes in a row of the batch at the head of the queue; guarded by {@link #flushLock}. */
+    private int headFailures;
+    private long deadLettered;
+
+    public RateWriteBehind(RateStore rateStore,
+                           ApplicationEventPublisher eventPublisher,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${ingest.write-behind.enabled:true}") boolean enabled,
+                           @Value("${ingest.write-behind.capacity:20000}") int capacity,
+                           @Value("${ingest.write-behind.batch-size:5000}") int batchSize,
+                           @Value("${ingest.write-behind.max-attempts:5}") int maxAttempts,
+                           @Value("${ingest.write-behind.flush-ms:200}") long flushMs,
+                           @Qualifier("writeBehindScheduler") ScheduledExecutorService flushScheduler) {
+        this.rateStore = rateStore;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.flushMs = flushMs;
+        this.flushScheduler = flushScheduler;
+    }
+
+    /**
+     * Flushes on a thread of its own: a slow store must not hold the shared scheduler, and
+     * jobs queued there must not delay the flush.
+     */
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            flushScheduler.scheduleWithFixedDelay(this::flush, flushMs, flushMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void enqueue(List<RateRow> rows) {
+        enqueue(rows, null);
+    }
+
+    /**
+     * Queues the rows; {@code onStored}, if given, runs once all of them are committed to
+     * the store, and never if they cannot be stored.
+     */
+    public void enqueue(List<RateRow> rows, Runnable onStored) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        if (!enabled || closed) {
+            write(rows, RateIngestEvent.DIRECT);
+            runCallback(onStored);
+            return;
+        }
+        synchronized (queueLock) {
+            if (queue.size() + rows.size() <= capacity) {
+                for (RateRow row : rows) {
+                    pending.computeIfAbsent(row.getDate(), date -> new ConcurrentHashMap<>())
+                            .put(row.getTargetCurrency(), row);
+                    queue.add(row);
+                }
+                queuedTotal += rows.size();
+                if (onStored != null) {
+                    callbacks.add(new StoredCallback(queuedTotal - rows.size(), queuedTotal, onStored));
+                }
+                return;
+            }
+        }
+        log.debug("Write-behind queue full, storing {} rates synchronously", rows.size());
+        write(rows, RateIngestEvent.BACKPRESSURE);
+        runCallback(onStored);
+    }
+
+    /**
+     * Stores everything queued so far, one transaction per batch. A failed batch goes back
+     * to the head of the queue and stays readable until a later flush stores it, or is
+     * dead-lettered once it has failed {@code ingest.write-behind.max-attempts} times.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            List<RateRow> batch;
+            while (!(batch = nextBatch()).isEmpty()) {
+                try {
+                    write(batch, RateIngestEvent.FLUSH);
+                } catch (RuntimeException e) {
+                    if (++headFailures < maxAttempts) {
+                        log.error("Storing {} queued rates failed, retrying on the next flush: {}", batch.size(), e.getMessage());
+                        requeue(batch);
+                        return;
+                    }
+                    log.error("Storing {} queued rates from {} to {} failed {} times, dropping them: {}", batch.size(),
+                            batch.get(0).getDate(), batch.get(batch.size() - 1).getDate(), headFailures, e.getMessage());
+                    headFailures = 0;
+                    deadLetter(batch);
+                    continue;
+                }
+                headFailures = 0;
+                release(batch).forEach(RateWriteBehind::runCallback);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        closed = true;
+        flush();
+    }
+
+    /**
+     * Adds queued rows on the given dates to rows read from the store. Rows the store
+     * already has win.
+     */
+    public List<RateRow> withPending(List<RateRow> stored, Collection<LocalDate> dates) {
+        if (pending.isEmpty()) {
+            return stored;
+        }
+        List<RateRow> merged = null;
+        Set<String> keys = null;
+        for (LocalDate date : dates) {
+            Map<String, RateRow> queued = pending.get(date);
+            if (queued == null) {
+                continue;
+            }
+            if (merged == null) {
+                merged = new ArrayList<>(stored);
+                keys = new HashSet<>();
+                for (RateRow row : stored) {
+                    keys.add(key(row));
+                }
+            }
+            for (RateRow row : queued.values()) {
+                if (keys.add(key(row))) {
+                    merged.add(row);
+                }
+            }
+        }
+        return merged != null ? merged : stored;
+    }
+
+    public Optional<BigDecimal> pendingRate(String currency, LocalDate date) {
+        Map<String, RateRow> queued = pending.get(date);
+        RateRow row = queued != null ? queued.get(currency) : null;
+        return row != null ? Optional.of(row.getRate()) : Optional.empty();
+    }
+
+    public NavigableSet<LocalDate> pendingDates(LocalDate startDate, LocalDate endDate) {
+        return new TreeSet<>(pending.subMap(startDate, true, endDate, true).keySet());
+    }
+
+    int queuedCount() {
+        synchronized (queueLock) {
+            return queue.size();
+        }
+    }
+
+    long deadLetteredCount() {
+        synchronized (queueLock) {
+            return deadLettered;
+        }
+    }
+
+    private List<RateRow> nextBatch() {
+        synchronized (queueLock) {
+            List<RateRow> batch = new ArrayList<>(Math.min(queue.size(), batchSize));
+            while (batch.size() < batchSize && !queue.isEmpty()) {
+                batch.add(queue.poll());
+            }
+            return batch;
+        }
+    }
+
+    private void requeue(List<RateRow> batch) {
+        synchronized (queueLock) {
+            for (int i = batch.size() - 1; i >= 0; i--) {
+                queue.addFirst(batch.get(i));
+            }
+        }
+    }
+
+    /**
+     * Drops the stored rows from the pending view and returns the callbacks now due.
+     */
+    private List<Runnable> release(List<RateRow> stored) {
+        return release(stored, false);
+    }
+
+    private List<Runnable> release(List<RateRow> rows, boolean dropped) {
+        synchronized (queueLock) {
+            for (RateRow row : rows) {
+                pending.computeIfPresent(row.getDate(), (date, queued) -> {
+                    queued.remove(row.getTargetCurrency(), row);
+                    return queued.isEmpty() ? null : queued;
+                });
+            }
+            long from = storedTotal;
+            storedTotal += rows.size();
+            if (dropped) {
+                long to = storedTotal;
+                deadLettered += rows.size();
+                callbacks.removeIf(callback -> callback.start < to && callback.position > from);
+            }
+            List<Runnable> due = new ArrayList<>();
+            while (!callbacks.isEmpty() && callbacks.peek().position <= storedTotal) {
+                due.add(callbacks.poll().action);
+            }
+            return due;
+        }
+    }
+
+    /**
+     * Gives up on a batch: its rows leave the pending view, so the next read fetches them
+     * again, and callbacks covering any of them are dropped, since their rows were never
+     * all stored. Callbacks due from earlier batches are not affected.
+     */
+    private void deadLetter(List<RateRow> batch) {
+        release(batch, true).forEach(RateWriteBehind::runCallback);
+    }
+
+    private static void runCallback(Runnable callback) {
+        if (callback == null) {
+            return;
+        }
+        try {
+            callback.run();
+        } catch (RuntimeException e) {
+            log.warn("Write-behind completion callback failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Inserts in a short transaction of its own; listeners of the ingest event run once
+     * it has committed. A producer storing synchronously can race the flusher on the same
+     * rows; the loser's insert hits the unique key and is retried once, when the existence
+     * check sees the winner's committed rows and skips them.
+     */
+    private void write(List<RateRow> rows, String source) {
+        RateIngestEvent event = new RateIngestEvent();
+        event.begin();
+        Integer inserted;
+        try {
+            inserted = insert(rows);
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Concurrent write stored some of {} rates first, retrying: {}", rows.size(), e.getMessage());
+            inserted = insert(rows);
+        }
+        event.record(source, rows, inserted != null ? inserted : 0);
+    }
+
+    private Integer insert(List<RateRow> rows) {
+        return transactionTemplate.execute(status -> {
+            List<RateRow> fresh = rateStore.insertMissing(rows);
+            if (!fresh.isEmpty()) {
+                eventPublisher.publishEvent(new RatesIngestedEvent(fresh));
+            }
+            return fresh.size();
+        });
+    }
+
+    private static String key(RateRow row) {
+        return row.getDate() + "/" + row.getTargetCurrency();
+    }
+
+    private static final class StoredCallback {
+        /** Queue positions of the callback's rows: after {@code start}, up to and including {@code position}. */
+        private final long start;
+        private final long position;
+        private final Runnable action;
+
+        private StoredCallback(long start, long position, Runnable action) {
+            this.start = start;
+            this.position = position;
+            this.action = action;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.crewmeister.cmcodingchallenge.service;
+
+import com.crewmeister.cmcodingchallenge.event.DatasetChangedEvent;
+import com.crewmeister.cmcodingchallenge.event.RatesIngestedEvent;
+import com.crewmeister.cmcodingchallenge.util.SortedArrayMap;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Rate tables of one day re-expressed against another base currency. Each (date, base)
+ * table is divided out of the EUR table once and kept as a {@link SortedArrayMap}, so
+ * repeated USD- or CHF-based lookups cost a cache hit. Dropped on ingest like
+ * {@link HistoryCache}.
+ */
+@Component
+public class RebasedRateTables {
+
+    /** Significant digits rather than a fixed scale, so JPY- or HUF-based tables keep their precision. */
+    private static final MathContext PRECISION = new MathContext(10, RoundingMode.HALF_UP);
+    private static final String EUR = "EUR";
+
+    @Data
+    static class Key {
+        private final LocalDate date;
+        private final String base;
+    }
+
+    private final Cache<Key, Map<String, BigDecimal>> cache;
+    private final boolean scopedRemoteInvalidation;
+
+    public RebasedRateTables(@Value("${rates.rebased.max-size:5000}") int maxSize,
+                             @Value("${cache.invalidation.bus:none}") String bus) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .build();
+        this.scopedRemoteInvalidation = !"none".equalsIgnoreCase(bus);
+    }
+
+    /**
+     * Returns the day's rates against {@code base}, with EUR included and the base itself
+     * left out, or null when the EUR table has no rate for the base on that day. The EUR
+     * rates must iterate in currency order, as the mapper's tables do.
+     */
+    public Map<String, BigDecimal> rebase(LocalDate date, String base, Map<String, BigDecimal> eurRates) {
+        Key key = new Key(date, base);
+        Map<String, BigDecimal> table = cache.getIfPresent(key);
+        if (table == null) {
+            table = divide(base, eurRates);
+            if (table == null) {
+                return null;
+            }
+            cache.put(key, table);
+        }
+        return table;
+    }
+
+    Map<String, BigDecimal> divide(String base, Map<String, BigDecimal> eurRates) {
+        BigDecimal baseRate = eurRates.get(base);
+        if (baseRate == null || baseRate.signum() == 0) {
+            return null;
+        }
+        // EUR takes the base's slot, so the table keeps the size of the EUR one
+        String[] currencies = new String[eurRates.size()];
+        Object[] rates = new Object[eurRates.size()];
+        int size = 0;
+        boolean eurAdded = false;
+        for (Map.Entry<String, BigDecimal> entry : eurRates.entrySet()) {
+            String currency = entry.getKey();
+            if (!eurAdded && currency.compareTo(EUR) > 0) {
+                currencies[size] = EUR;
+                rates[size++] = BigDecimal.ONE.divide(baseRate, PRECISION);
+                eurAdded = true;
+            }
+            if (!currency.equals(base) && !currency.equals(EUR)) {
+                currencies[size] = currency;
+                rates[size++] = entry.getValue().divide(baseRate, PRECISION);
+            }
+        }
+        if (!eurAdded) {
+            currencies[size] = EUR;
+            rates[size++] = BigDecimal.ONE.divide(baseRate, PRECISION);
+        }
+        return SortedArrayMap.ofSorted(currencies, rates, size);
+    }
+
+    public void invalidateRange(LocalDate from, LocalDate to) {
+        cache.asMap().keySet().removeIf(key -> !key.getDate().isBefore(from) && !key.getDate().isAfter(to));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onRatesIngested(RatesIngestedEvent event) {
+        invalidateRange(event.getMinDate(), event.getMaxDate());
+    }
+
+    @EventListener
+    public void onDatasetChanged(DatasetChangedEvent event) {
+        // Without an invalidation bus the changed ranges are unknown
+        if (!scopedRemoteInvalidation) {
+            cache.invalidateAll();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.crewmeister.cmcodingchallenge.store;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * Metadata of the latest archived upstream response for one request path. The body itself
+ * is stored content-addressed under {@link #contentHash}. {@link #ingested} is set once the
+ * rates in this body are known to be stored.
+ */
+@Value
+public class ArchivedResponse {
+    String path;
+    String contentHash;
+    String etag;
+    String lastModified;
+    Instant fetchedAt;
+    boolean ingested;
+}
@@ -0,0 +1,256 @@
+package com.crewmeister.cmcodingchallenge.store;
+
+import java.util.Arrays;
+
+/**
+ * One currency's rates in date order, as longs scaled to {@link RateSnapshot#SCALE}
+ * decimals, compressed to a few bytes per observation.
+ *
+ * <pre>
+ * block index  first epoch day, first value and data offset of every {@value #BLOCK} observations
+ * data         per further observation: varint day gap, zig-zag varint value delta
+ * </pre>
+ *
+ * Daily moves are a few basis points, so most deltas take two or three bytes. A point
+ * lookup binary-searches the block index and decodes at most one block; a range scan
+ * starts at the block holding its first day and decodes sequentially from there.
+ */
+final class CompressedRateSeries {
+
+    static final int BLOCK = 64;
+
+    /**
+     * Receives decoded observations.
+     */
+    interface Observer {
+        void accept(int epochDay, long scaledRate);
+    }
+
+    /**
+     * Holder for a single decoded observation.
+     */
+    static final class Observation {
+        int epochDay;
+        long scaledRate;
+    }
+
+    private final int size;
+    private final int lastDay;
+    private final int[] blockDays;
+    private final long[] blockRates;
+    private final int[] blockOffsets;
+    private final byte[] data;
+
+    private CompressedRateSeries(int size, int lastDay, int[] blockDays, long[] blockRates,
+                                 int[] blockOffsets, byte[] data) {
+        this.size = size;
+        this.lastDay = lastDay;
+        this.blockDays = blockDays;
+        this.blockRates = blockRates;
+        this.blockOffsets = blockOffsets;
+        this.data = data;
+    }
+
+    /**
+     * Encodes the first {@code count} observations; days must be strictly ascending.
+     */
+    static CompressedRateSeries encode(int[] epochDays, long[] scaledRates, int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("A series needs at least one observation");
+        }
+        int blocks = (count + BLOCK - 1) / BLOCK;
+        int[] blockDays = new int[blocks];
+        long[] blockRates = new long[blocks];
+        int[] blockOffsets = new int[blocks];
+        byte[] out = new byte[count * 4];
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            if (i % BLOCK == 0) {
+                blockDays[i / BLOCK] = epochDays[i];
+                blockRates[i / BLOCK] = scaledRates[i];
+                blockOffsets[i / BLOCK] = position;
+                continue;
+            }
+            int gap = epochDays[i] - epochDays[i - 1];
+            if (gap <= 0) {
+                throw new IllegalArgumentException("Days must be strictly ascending at index " + i);
+            }
+            // Room for two varints of up to ten bytes each
+            if (out.length - position < 20) {
+                out = Arrays.copyOf(out, Math.max(out.length * 2, position + 20));
+            }
+            position = writeVarint(out, position, gap);
+            position = writeVarint(out, position, zigZag(scaledRates[i] - scaledRates[i - 1]));
+        }
+        return new CompressedRateSeries(count, epochDays[count - 1], blockDays, blockRates, blockOffsets,
+                Arrays.copyOf(out, position));
+    }
+
+    int size() {
+        return size;
+    }
+
+    int lastDay() {
+        return lastDay;
+    }
+
+    /**
+     * Approximate heap footprint, arrays and object headers included.
+     */
+    long heapBytes() {
+        return 48 + 16 + data.length + 3 * 16 + blockDays.length * (long) (Integer.BYTES + Long.BYTES + Integer.BYTES);
+    }
+
+    /**
+     * Finds the latest observation on or before the day.
+     */
+    boolean floor(int epochDay, Observation out) {
+        if (epochDay < blockDays[0]) {
+            return false;
+        }
+        int block = Arrays.binarySearch(blockDays, epochDay);
+        Reader reader = new Reader(block >= 0 ? block : -block - 2);
+        int foundDay = reader.day;
+        long foundRate = reader.rate;
+        int end = Math.min(size, (reader.block + 1) * BLOCK);
+        while (reader.index + 1 < end) {
+            reader.next();
+            if (reader.day > epochDay) {
+                break;
+            }
+            foundDay = reader.day;
+            foundRate = reader.rate;
+        }
+        out.epochDay = foundDay;
+        out.scaledRate = foundRate;
+        return true;
+    }
+
+    /**
+     * Number of observations between the two days, inclusive. Decodes at most two blocks.
+     */
+    int count(int fromDay, int toDay) {
+        return toDay < fromDay ? 0 : rank(toDay + 1) - rank(fromDay);
+    }
+
+    /**
+     * Number of observations before the day.
+     */
+    private int rank(int epochDay) {
+        if (epochDay <= blockDays[0]) {
+            return 0;
+        }
+        if (epochDay > lastDay) {
+            return size;
+        }
+        int block = Arrays.binarySearch(blockDays, epochDay);
+        if (block >= 0) {
+            return block * BLOCK;
+        }
+        Reader reader = new Reader(-block - 2);
+        int end = Math.min(size, (reader.block + 1) * BLOCK);
+        while (reader.index + 1 < end) {
+            reader.next();
+            if (reader.day >= epochDay) {
+                return reader.index;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Passes every observation between the two days, inclusive, to the observer in date order.
+     */
+    void forEach(int fromDay, int toDay, Observer observer) {
+        if (toDay < blockDays[0] || fromDay > lastDay) {
+            return;
+        }
+        int block = Arrays.binarySearch(blockDays, fromDay);
+        Reader reader = new Reader(block >= 0 ? block : Math.max(-block - 2, 0));
+        while (reader.day <= toDay) {
+            if (reader.day >= fromDay) {
+                observer.accept(reader.day, reader.rate);
+            }
+            if (reader.index + 1 >= size) {
+                return;
+            }
+            reader.next();
+        }
+    }
+
+    /**
+     * Decodes every observation into the arrays, which must hold {@link #size()} entries.
+     */
+    void decode(int[] epochDays, long[] scaledRates) {
+        Reader reader = new Reader(0);
+        for (int i = 0; ; i++) {
+            epochDays[i] = reader.day;
+            scaledRates[i] = reader.rate;
+            if (i + 1 >= size) {
+                return;
+            }
+            reader.next();
+        }
+    }
+
+    private final class Reader {
+        private int block;
+        private int index;
+        private int position;
+        private int day;
+        private long rate;
+
+        private Reader(int block) {
+            this.block = block;
+            this.index = block * BLOCK;
+            this.position = blockOffsets[block];
+            this.day = blockDays[block];
+            this.rate = blockRates[block];
+        }
+
+        /**
+         * Steps to the next observation; blocks are stored back to back, so the data
+         * position simply carries on into the next block.
+         */
+        private void next() {
+            index++;
+            if (index % BLOCK == 0) {
+                block++;
+                day = blockDays[block];
+                rate = blockRates[block];
+                return;
+            }
+            day += (int) readVarint();
+            rate += unZigZag(readVarint());
+        }
+
+        private long readVarint() {
+            long result = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                result |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return result;
+        }
+    }
+
+    private static int writeVarint(byte[] out, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[position++] = (byte) value;
+        return position;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,109 @@
+package com.crewmeister.cmcodingchallenge.store;
+
+import com.crewmeister.cmcodingchallenge.dto.RateRow;
+import com.crewmeister.cmcodingchallenge.entity.ExchangeRate;
+import com.crewmeister.cmcodingchallenge.repository.ExchangeRateRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Rates in the {@code exchange_rates} table, through {@link ExchangeRateRepository}.
+ * Required in clustered mode, where all instances share the database.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "rates.store", havingValue = "jpa", matchIfMissing = true)
+public class JpaRateStore implements RateStore {
+
+    private static final String BASE_CURRENCY = "EUR";
+    private static final int DATES_PER_QUERY = 500;
+
+    private final ExchangeRateRepository exchangeRateRepository;
+
+    @Override
+    public List<RateRow> findRowsOn(LocalDate date) {
+        return exchangeRateRepository.findRowsByBaseCurrencyAndDate(BASE_CURRENCY, date);
+    }
+
+    @Override
+    public List<RateRow> findRowsOnDates(List<LocalDate> dates) {
+        return exchangeRateRepository.findRowsByBaseCurrencyAndDateIn(BASE_CURRENCY, dates);
+    }
+
+    @Override
+    public Optional<BigDecimal> findRate(String currency, LocalDate date) {
+        return exchangeRateRepository.findByBaseCurrencyAndTargetCurrencyAndDate(BASE_CURRENCY, currency, date)
+                .map(ExchangeRate::getRate);
+    }
+
+    @Override
+    public List<RateRow> findSeries(String currency, LocalDate startDate, LocalDate endDate) {
+        return exchangeRateRepository.findSeriesRows(BASE_CURRENCY, currency, startDate, endDate);
+    }
+
+    @Override
+    public List<RateRow> findAllRows() {
+        return exchangeRateRepository.findAllRowsByBaseCurrency(BASE_CURRENCY);
+    }
+
+    @Override
+    public Optional<LocalDate> findMinDate(LocalDate startDate, LocalDate endDate) {
+        return exchangeRateRepository.findMinDateByBaseCurrencyAndDateBetween(BASE_CURRENCY, startDate, endDate);
+    }
+
+    @Override
+    public Optional<LocalDate> findMaxDate(LocalDate startDate, LocalDate endDate) {
+        return exchangeRateRepository.findMaxDateByBaseCurrencyAndDateBetween(BASE_CURRENCY, startDate, endDate);
+    }
+
+    @Override
+    public Page<LocalDate> findDates(LocalDate startDate, LocalDate endDate, Pageable pageable) {
+        return exchangeRateRepository.findDistinctDatesByBaseCurrencyAndDateBetween(
+                BASE_CURRENCY, startDate, endDate, pageable);
+    }
+
+    /**
+     * Looks up the rows already stored on the batch's dates with one query per
+     * {@value #DATES_PER_QUERY} dates, instead of an existence check per row, and saves
+     * the rest together.
+     */
+    @Override
+    @Transactional
+    public List<RateRow> insertMissing(List<RateRow> rows) {
+        List<LocalDate> dates = rows.stream().map(RateRow::getDate).distinct().collect(Collectors.toList());
+        Set<String> stored = new HashSet<>();
+        for (int i = 0; i < dates.size(); i += DATES_PER_QUERY) {
+            for (RateRow row : exchangeRateRepository.findRowsByBaseCurrencyAndDateIn(
+                    BASE_CURRENCY, dates.subList(i, Math.min(i + DATES_PER_QUERY, dates.size())))) {
+                stored.add(key(row));
+            }
+        }
+        List<RateRow> inserted = new ArrayList<>();
+        List<ExchangeRate> entities = new ArrayList<>();
+        for (RateRow row : rows) {
+            if (stored.add(key(row))) {
+                entities.add(new ExchangeRate(null, BASE_CURRENCY, row.getTargetCurrency(), row.getRate(), row.getDate()));
+                inserted.add(row);
+            }
+        }
+        exchangeRateRepository.saveAll(entities);
+        return inserted;
+    }
+
+    private static String key(RateRow row) {
+        return row.getTargetCurrency() + ':' + row.getDate();
+    }
+}
@@ -0,0 +1,360 @@
+package com.crewmeister.cmcodingchallenge.store;
+
+import com.crewmeister.cmcodingchallenge.dto.RateRow;
+import com.crewmeister.cmcodingchallenge.event.DatasetChangedEvent;
+import com.crewmeister.cmcodingchallenge.event.RatesIngestedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Every stored rate in memory, per currency as a {@link CompressedRateSeries}: "as-of"
+ * lookups resolve a date to the latest rate on or before it by searching one block, and
+ * series reads decode a date range sequentially instead of querying the store. The full
+ * history of all currencies takes a few bytes per rate. The days holding any rate are
+ * kept as one sorted array, so history pages and coverage checks are a binary search
+ * however many years are stored. Readers see immutable state swapped on each change;
+ * ingests merge their rows in after commit.
+ */
+@Slf4j
+@Component
+public class RateDateIndex {
+
+    private final RateStore rateStore;
+    private final int maxLookbackDays;
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private volatile Map<String, CompressedRateSeries> series = Collections.emptyMap();
+    /** Epoch days with at least one rate, ascending. */
+    private volatile int[] days = new int[0];
+    /** Set once the stored rates were read; until then series and date reads go to the store. */
+    private volatile boolean loaded;
+
+    public RateDateIndex(RateStore rateStore,
+                         @Value("${rates.asof.max-lookback-days:7}") int maxLookbackDays) {
+        this.rateStore = rateStore;
+        this.maxLookbackDays = maxLookbackDays;
+    }
+
+    /**
+     * Latest stored rate on or before the date, if one lies within the lookback window.
+     */
+    public Optional<RateRow> findOnOrBefore(String currency, LocalDate date) {
+        CompressedRateSeries s = series.get(currency);
+        if (s == null) {
+            return Optional.empty();
+        }
+        int day = (int) date.toEpochDay();
+        CompressedRateSeries.Observation found = new CompressedRateSeries.Observation();
+        if (!s.floor(day, found) || day - found.epochDay > maxLookbackDays) {
+            return Optional.empty();
+        }
+        return Optional.of(toRow(currency, found.epochDay, found.scaledRate));
+    }
+
+    /**
+     * Whether a rate later than the date is stored, i.e. gaps up to the date are known holidays.
+     */
+    public boolean hasRatesAfter(String currency, LocalDate date) {
+        CompressedRateSeries s = series.get(currency);
+        return s != null && s.lastDay() > date.toEpochDay();
+    }
+
+    /**
+     * Rates of one currency between the two dates, inclusive, in date order.
+     */
+    public List<RateRow> findSeries(String currency, LocalDate startDate, LocalDate endDate) {
+        if (!loaded) {
+            return rateStore.findSeries(currency, startDate, endDate);
+        }
+        CompressedRateSeries s = series.get(currency);
+        if (s == null) {
+            return Collections.emptyList();
+        }
+        List<RateRow> rows = new ArrayList<>();
+        s.forEach((int) Math.max(startDate.toEpochDay(), Integer.MIN_VALUE),
+                (int) Math.min(endDate.toEpochDay(), Integer.MAX_VALUE),
+                (day, rate) -> rows.add(toRow(currency, day, rate)));
+        return rows;
+    }
+
+    /**
+     * Number of rates of one currency stored between the two dates, inclusive, without
+     * decoding them; empty until the index is loaded.
+     */
+    public OptionalInt countRates(String currency, LocalDate startDate, LocalDate endDate) {
+        if (!loaded) {
+            return OptionalInt.empty();
+        }
+        CompressedRateSeries s = series.get(currency);
+        return OptionalInt.of(s == null ? 0 : s.count((int) startDate.toEpochDay(), (int) endDate.toEpochDay()));
+    }
+
+    /**
+     * Every stored rate, decoded from memory once loaded.
+     */
+    public List<RateRow> findAllRows() {
+        if (!loaded) {
+            return rateStore.findAllRows();
+        }
+        List<RateRow> rows = new ArrayList<>();
+        series.forEach((currency, s) -> s.forEach(Integer.MIN_VALUE, Integer.MAX_VALUE,
+                (day, rate) -> rows.add(toRow(currency, day, rate))));
+        return rows;
+    }
+
+    /**
+     * Days with rates between the two dates, inclusive, newest first, like
+     * {@link RateStore#findDates}. A page is located by position in the day array, so
+     * deep pages cost the same as the first one.
+     */
+    public Page<LocalDate> findDates(LocalDate startDate, LocalDate endDate, Pageable pageable) {
+        if (!loaded) {
+            return rateStore.findDates(startDate, endDate, pageable);
+        }
+        int[] all = days;
+        int first = lowerBound(all, startDate.toEpochDay());
+        int end = lowerBound(all, endDate.toEpochDay() + 1L);
+        int total = Math.max(end - first, 0);
+        int offset = pageable.isUnpaged() ? 0 : (int) Math.min(pageable.getOffset(), total);
+        int count = pageable.isUnpaged() ? total : Math.min(pageable.getPageSize(), total - offset);
+        List<LocalDate> content = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            content.add(LocalDate.ofEpochDay(all[end - 1 - offset - i]));
+        }
+        return pageable.isUnpaged() ? new PageImpl<>(content) : new PageImpl<>(content, pageable, total);
+    }
+
+    public Optional<LocalDate> findMinDate(LocalDate startDate, LocalDate endDate) {
+        if (!loaded) {
+            return rateStore.findMinDate(startDate, endDate);
+        }
+        int[] all = days;
+        int i = lowerBound(all, startDate.toEpochDay());
+        return i < all.length && all[i] <= endDate.toEpochDay() ? Optional.of(LocalDate.ofEpochDay(all[i])) : Optional.empty();
+    }
+
+    public Optional<LocalDate> findMaxDate(LocalDate startDate, LocalDate endDate) {
+        if (!loaded) {
+            return rateStore.findMaxDate(startDate, endDate);
+        }
+        int[] all = days;
+        int i = lowerBound(all, endDate.toEpochDay() + 1L) - 1;
+        return i >= 0 && all[i] >= startDate.toEpochDay() ? Optional.of(LocalDate.ofEpochDay(all[i])) : Optional.empty();
+    }
+
+    public LocalDate lookbackStart(LocalDate date) {
+        return date.minusDays(maxLookbackDays);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        rebuild();
+    }
+
+    /**
+     * Another replica ingested rates; the changed ranges are unknown here, so reload.
+     */
+    @EventListener
+    public void onDatasetChanged(DatasetChangedEvent event) {
+        rebuild();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onRatesIngested(RatesIngestedEvent event) {
+        merge(event.getRows());
+    }
+
+    public void merge(List<RateRow> rows) {
+        Map<String, List<RateRow>> byCurrency = groupByCurrency(rows);
+        int[] addedDays = rows.stream().mapToInt(row -> (int) row.getDate().toEpochDay()).sorted().distinct().toArray();
+        writeLock.lock();
+        try {
+            Map<String, CompressedRateSeries> next = new HashMap<>(series);
+            byCurrency.forEach((currency, added) -> next.put(currency, merge(next.get(currency), added)));
+            series = next;
+            days = union(days, addedDays);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void rebuild() {
+        writeLock.lock();
+        try {
+            long start = System.nanoTime();
+            List<RateRow> rows = rateStore.findAllRows();
+            // Straight into primitive arrays: a full history is a few hundred thousand rows
+            Map<String, SeriesBuilder> builders = new HashMap<>();
+            for (RateRow row : rows) {
+                builders.computeIfAbsent(row.getTargetCurrency(), k -> new SeriesBuilder())
+                        .add((int) row.getDate().toEpochDay(), toScaled(row.getRate()));
+            }
+            Map<String, CompressedRateSeries> next = new HashMap<>();
+            int[] allDays = new int[0];
+            for (Map.Entry<String, SeriesBuilder> entry : builders.entrySet()) {
+                SeriesBuilder builder = entry.getValue();
+                builder.sort();
+                next.put(entry.getKey(), CompressedRateSeries.encode(builder.days, builder.rates, builder.size));
+                allDays = union(allDays, Arrays.copyOf(builder.days, builder.size));
+            }
+            series = next;
+            days = allDays;
+            loaded = true;
+            log.info("Indexed {} rates for {} currencies on {} days into {} KB in {} ms", rows.size(), next.size(),
+                    allDays.length, next.values().stream().mapToLong(CompressedRateSeries::heapBytes).sum() / 1024,
+                    (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static Map<String, List<RateRow>> groupByCurrency(List<RateRow> rows) {
+        Map<String, List<RateRow>> byCurrency = new HashMap<>();
+        for (RateRow row : rows) {
+            byCurrency.computeIfAbsent(row.getTargetCurrency(), k -> new ArrayList<>()).add(row);
+        }
+        return byCurrency;
+    }
+
+    /**
+     * Two-pointer merge of the decoded series with the added rows, then re-encoded; an
+     * added row replaces a stored one for the same day.
+     */
+    private static CompressedRateSeries merge(CompressedRateSeries existing, List<RateRow> added) {
+        added.sort(Comparator.comparing(RateRow::getDate));
+        int existingSize = existing != null ? existing.size() : 0;
+        int[] existingDays = new int[existingSize];
+        long[] existingRates = new long[existingSize];
+        if (existing != null) {
+            existing.decode(existingDays, existingRates);
+        }
+        int[] days = new int[existingSize + added.size()];
+        long[] rates = new long[days.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < existingSize || j < added.size()) {
+            int addedDay = j < added.size() ? (int) added.get(j).getDate().toEpochDay() : Integer.MAX_VALUE;
+            int existingDay = i < existingSize ? existingDays[i] : Integer.MAX_VALUE;
+            if (addedDay <= existingDay) {
+                if (n > 0 && days[n - 1] == addedDay) {
+                    n--;
+                }
+                days[n] = addedDay;
+                rates[n++] = toScaled(added.get(j++).getRate());
+                if (addedDay == existingDay) {
+                    i++;
+                }
+            } else {
+                days[n] = existingDay;
+                rates[n++] = existingRates[i++];
+            }
+        }
+        return CompressedRateSeries.encode(days, rates, n);
+    }
+
+    /**
+     * Sorted union of two ascending arrays without duplicates.
+     */
+    private static int[] union(int[] a, int[] b) {
+        int[] out = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length || j < b.length) {
+            int next = j >= b.length || (i < a.length && a[i] <= b[j]) ? a[i++] : b[j++];
+            if (n == 0 || out[n - 1] != next) {
+                out[n++] = next;
+            }
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    /**
+     * Index of the first element not below the key.
+     */
+    private static int lowerBound(int[] sorted, long key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * One currency's rows in store order; sorted by day once complete, a later row for a
+     * day replacing an earlier one.
+     */
+    private static final class SeriesBuilder {
+        private int[] days = new int[256];
+        private long[] rates = new long[256];
+        private int size;
+        private boolean ascending = true;
+
+        void add(int day, long rate) {
+            if (size == days.length) {
+                days = Arrays.copyOf(days, size * 2);
+                rates = Arrays.copyOf(rates, size * 2);
+            }
+            if (size > 0 && day <= days[size - 1]) {
+                ascending = false;
+            }
+            days[size] = day;
+            rates[size++] = rate;
+        }
+
+        void sort() {
+            if (ascending) {
+                return;
+            }
+            // Day in the high bits, arrival order in the low bits: equal days keep their order
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = (long) days[i] << 32 | i;
+            }
+            Arrays.sort(keys);
+            int[] sortedDays = new int[size];
+            long[] sortedRates = new long[size];
+            int n = 0;
+            for (long key : keys) {
+                int day = (int) (key >> 32);
+                if (n > 0 && sortedDays[n - 1] == day) {
+                    n--;
+                }
+                sortedDays[n] = day;
+                sortedRates[n++] = rates[(int) key];
+            }
+            days = sortedDays;
+            rates = sortedRates;
+            size = n;
+        }
+    }
+
+    private static RateRow toRow(String currency, int epochDay, long scaledRate) {
+        return new RateRow(LocalDate.ofEpochDay(epochDay), currency, BigDecimal.valueOf(scaledRate, RateSnapshot.SCALE));
+    }
+
+    private static long toScaled(BigDecimal rate) {
+        return rate.setScale(RateSnapshot.SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
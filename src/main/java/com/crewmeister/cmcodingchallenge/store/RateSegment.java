@@ -0,0 +1,230 @@
+package com.crewmeister.cmcodingchallenge.store;
+
+import com.crewmeister.cmcodingchallenge.dto.RateRow;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * One immutable, memory-mapped segment file of {@link SegmentRateStore}.
+ *
+ * <pre>
+ * header   int magic 'FXSG', int version, int recordCount, int compactedThrough
+ * records  recordCount x 16 bytes sorted by date then currency: int epochDay,
+ *          3 ASCII bytes currency, 1 zero byte, long rate unscaled at {@link #SCALE}
+ * </pre>
+ *
+ * {@code compactedThrough} is the highest segment id merged into this one, or -1. A
+ * sparse index holding the date of every {@value #BLOCK_RECORDS}th record locates the
+ * start of a date range; the distinct dates are kept in memory for date-only queries.
+ */
+final class RateSegment {
+
+    static final int MAGIC = 0x46584753; // "FXSG"
+    static final int VERSION = 1;
+    static final int SCALE = RateSnapshot.SCALE;
+    static final String SUFFIX = ".seg";
+
+    static final Comparator<RateRow> ORDER = Comparator.comparing(RateRow::getDate)
+            .thenComparing(RateRow::getTargetCurrency);
+
+    private static final int HEADER_BYTES = 4 * Integer.BYTES;
+    private static final int RECORD_BYTES = 16;
+    private static final int BLOCK_RECORDS = 64;
+
+    private final int id;
+    private final Path file;
+    private final ByteBuffer buffer;
+    private final int recordCount;
+    private final int compactedThrough;
+    private final int[] blockFirstDays;
+    private final int[] days;
+
+    private RateSegment(int id, Path file, ByteBuffer buffer) {
+        this.id = id;
+        this.file = file;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a rate segment: " + file);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported segment version " + buffer.getInt(4));
+        }
+        this.recordCount = buffer.getInt(8);
+        this.compactedThrough = buffer.getInt(12);
+        long expected = HEADER_BYTES + (long) recordCount * RECORD_BYTES;
+        if (buffer.capacity() < expected) {
+            throw new IllegalArgumentException("Truncated segment " + file + ": " + buffer.capacity() + " < " + expected);
+        }
+
+        this.blockFirstDays = new int[(recordCount + BLOCK_RECORDS - 1) / BLOCK_RECORDS];
+        int[] distinct = new int[recordCount];
+        int dayCount = 0;
+        for (int i = 0; i < recordCount; i++) {
+            int day = dayAt(i);
+            if (i % BLOCK_RECORDS == 0) {
+                blockFirstDays[i / BLOCK_RECORDS] = day;
+            }
+            if (dayCount == 0 || distinct[dayCount - 1] != day) {
+                distinct[dayCount++] = day;
+            }
+        }
+        this.days = Arrays.copyOf(distinct, dayCount);
+    }
+
+    static RateSegment open(int id, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new RateSegment(id, file, mapped);
+        }
+    }
+
+    /**
+     * Writes rows, sorted by {@link #ORDER}, to a new segment file and opens it. The file is
+     * written under a temporary name and moved into place, so a crash never leaves a
+     * partial segment behind.
+     */
+    static RateSegment write(Path directory, int id, List<RateRow> sortedRows, int compactedThrough) throws IOException {
+        ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + sortedRows.size() * RECORD_BYTES);
+        out.putInt(MAGIC).putInt(VERSION).putInt(sortedRows.size()).putInt(compactedThrough);
+        for (RateRow row : sortedRows) {
+            byte[] currency = row.getTargetCurrency().getBytes(StandardCharsets.US_ASCII);
+            if (currency.length != 3) {
+                throw new IllegalArgumentException("Currency code must have 3 letters: " + row.getTargetCurrency());
+            }
+            out.putInt((int) row.getDate().toEpochDay()).put(currency).put((byte) 0).putLong(toScaled(row.getRate()));
+        }
+        out.flip();
+
+        Path file = directory.resolve(fileName(id));
+        Path tmp = directory.resolve(fileName(id) + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+                channel.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return open(id, file);
+    }
+
+    static String fileName(int id) {
+        return String.format("%08d%s", id, SUFFIX);
+    }
+
+    /**
+     * Adds the rows between two epoch days, inclusive, optionally only one currency's.
+     */
+    void collect(int fromDay, int toDay, String currency, List<RateRow> out) {
+        if (days.length == 0 || fromDay > days[days.length - 1] || toDay < days[0]) {
+            return;
+        }
+        for (int i = firstIndexOnOrAfter(fromDay); i < recordCount; i++) {
+            int day = dayAt(i);
+            if (day > toDay) {
+                break;
+            }
+            if (currency == null || currency.equals(currencyAt(i))) {
+                out.add(rowAt(i, day));
+            }
+        }
+    }
+
+    BigDecimal rate(String currency, int day) {
+        if (!hasDay(day)) {
+            return null;
+        }
+        for (int i = firstIndexOnOrAfter(day); i < recordCount && dayAt(i) == day; i++) {
+            if (currency.equals(currencyAt(i))) {
+                return BigDecimal.valueOf(scaledAt(i), SCALE);
+            }
+        }
+        return null;
+    }
+
+    boolean hasDay(int day) {
+        return Arrays.binarySearch(days, day) >= 0;
+    }
+
+    /**
+     * Distinct epoch days in ascending order.
+     */
+    int[] days() {
+        return days;
+    }
+
+    int id() {
+        return id;
+    }
+
+    Path file() {
+        return file;
+    }
+
+    int recordCount() {
+        return recordCount;
+    }
+
+    int compactedThrough() {
+        return compactedThrough;
+    }
+
+    /**
+     * The sparse index gives the last block starting before {@code day}; the first record on
+     * that day is at most one block further.
+     */
+    private int firstIndexOnOrAfter(int day) {
+        int block = Arrays.binarySearch(blockFirstDays, day);
+        // On an exact hit an earlier block may still end with the same day
+        int start = block >= 0 ? block : -block - 2;
+        while (start > 0 && blockFirstDays[start] >= day) {
+            start--;
+        }
+        int i = Math.max(start, 0) * BLOCK_RECORDS;
+        while (i < recordCount && dayAt(i) < day) {
+            i++;
+        }
+        return i;
+    }
+
+    private RateRow rowAt(int index, int day) {
+        return new RateRow(LocalDate.ofEpochDay(day), currencyAt(index), BigDecimal.valueOf(scaledAt(index), SCALE));
+    }
+
+    private int dayAt(int index) {
+        return buffer.getInt(HEADER_BYTES + index * RECORD_BYTES);
+    }
+
+    private String currencyAt(int index) {
+        int offset = HEADER_BYTES + index * RECORD_BYTES + Integer.BYTES;
+        byte[] code = {buffer.get(offset), buffer.get(offset + 1), buffer.get(offset + 2)};
+        return new String(code, StandardCharsets.US_ASCII);
+    }
+
+    private long scaledAt(int index) {
+        return buffer.getLong(HEADER_BYTES + index * RECORD_BYTES + 8);
+    }
+
+    private static long toScaled(BigDecimal rate) {
+        return rate.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
@@ -0,0 +1,199 @@
+package com.crewmeister.cmcodingchallenge.store;
+
+import com.crewmeister.cmcodingchallenge.dto.RateRow;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+
+/**
+ * Read-only, memory-mapped view of a rate snapshot file.
+ *
+ * <pre>
+ * header   int magic 'FXSN', int version, int scale, int firstEpochDay, int dayCount,
+ *          int currencyCount, long createdAtMillis, currencyCount x 3 ASCII bytes, zero padding
+ *          up to an 8-byte boundary
+ * records  dayCount x currencyCount longs, row-major by day offset then currency ordinal,
+ *          holding the rate unscaled at {@code scale}; 0 marks "no rate"
+ * </pre>
+ */
+public final class RateSnapshot {
+
+    public static final int MAGIC = 0x46584e53; // "FXSN"
+    public static final int VERSION = 1;
+    public static final int SCALE = 6;
+
+    private static final int FIXED_HEADER_BYTES = 6 * Integer.BYTES + Long.BYTES;
+
+    private final ByteBuffer buffer;
+    private final int firstEpochDay;
+    private final int dayCount;
+    private final String[] currencies;
+    private final Map<String, Integer> ordinals;
+    private final int recordsOffset;
+    private final long createdAtMillis;
+
+    private RateSnapshot(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a rate snapshot");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported snapshot version " + version);
+        }
+        if (buffer.getInt(8) != SCALE) {
+            throw new IllegalArgumentException("Unsupported snapshot scale " + buffer.getInt(8));
+        }
+        this.firstEpochDay = buffer.getInt(12);
+        this.dayCount = buffer.getInt(16);
+        int currencyCount = buffer.getInt(20);
+        this.createdAtMillis = buffer.getLong(24);
+
+        this.currencies = new String[currencyCount];
+        this.ordinals = new HashMap<>(currencyCount * 2);
+        byte[] code = new byte[3];
+        for (int i = 0; i < currencyCount; i++) {
+            ByteBuffer slice = buffer.duplicate();
+            slice.position(FIXED_HEADER_BYTES + i * 3);
+            slice.get(code);
+            currencies[i] = new String(code, StandardCharsets.US_ASCII);
+            ordinals.put(currencies[i], i);
+        }
+        this.recordsOffset = align8(FIXED_HEADER_BYTES + currencyCount * 3);
+
+        long expected = recordsOffset + (long) dayCount * currencyCount * Long.BYTES;
+        if (buffer.capacity() < expected) {
+            throw new IllegalArgumentException("Truncated snapshot: " + buffer.capacity() + " < " + expected);
+        }
+    }
+
+    public static RateSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new RateSnapshot(mapped);
+        }
+    }
+
+    /**
+     * Writes a snapshot of the given EUR-based rows to a temporary file and moves it over
+     * {@code file}, so readers only ever map complete snapshots.
+     */
+    public static void write(Path file, List<RateRow> rows) throws IOException {
+        TreeSet<String> currencySet = new TreeSet<>();
+        int minDay = Integer.MAX_VALUE;
+        int maxDay = Integer.MIN_VALUE;
+        for (RateRow row : rows) {
+            currencySet.add(row.getTargetCurrency());
+            int day = (int) row.getDate().toEpochDay();
+            minDay = Math.min(minDay, day);
+            maxDay = Math.max(maxDay, day);
+        }
+        if (rows.isEmpty()) {
+            minDay = maxDay = (int) LocalDate.now().toEpochDay();
+        }
+
+        List<String> currencies = new ArrayList<>(currencySet);
+        Map<String, Integer> ordinals = new HashMap<>(currencies.size() * 2);
+        for (int i = 0; i < currencies.size(); i++) {
+            ordinals.put(currencies.get(i), i);
+        }
+        int dayCount = rows.isEmpty() ? 0 : maxDay - minDay + 1;
+        int recordsOffset = align8(FIXED_HEADER_BYTES + currencies.size() * 3);
+
+        ByteBuffer out = ByteBuffer.allocate(recordsOffset + dayCount * currencies.size() * Long.BYTES);
+        out.putInt(MAGIC).putInt(VERSION).putInt(SCALE).putInt(minDay).putInt(dayCount)
+                .putInt(currencies.size()).putLong(System.currentTimeMillis());
+        for (String currency : currencies) {
+            out.put(currency.getBytes(StandardCharsets.US_ASCII), 0, 3);
+        }
+        for (RateRow row : rows) {
+            int index = ((int) row.getDate().toEpochDay() - minDay) * currencies.size()
+                    + ordinals.get(row.getTargetCurrency());
+            out.putLong(recordsOffset + index * Long.BYTES, toScaled(row.getRate()));
+        }
+        out.rewind();
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tmp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+                channel.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    public Optional<BigDecimal> rate(String currency, LocalDate date) {
+        Integer ordinal = ordinals.get(currency);
+        int offset = dayOffset(date);
+        if (ordinal == null || offset < 0) {
+            return Optional.empty();
+        }
+        long scaled = buffer.getLong(recordsOffset + (offset * currencies.length + ordinal) * Long.BYTES);
+        return scaled == 0 ? Optional.empty() : Optional.of(BigDecimal.valueOf(scaled, SCALE));
+    }
+
+    public List<RateRow> ratesOn(LocalDate date) {
+        int offset = dayOffset(date);
+        if (offset < 0) {
+            return Collections.emptyList();
+        }
+        List<RateRow> rows = new ArrayList<>(currencies.length);
+        int base = recordsOffset + offset * currencies.length * Long.BYTES;
+        for (int i = 0; i < currencies.length; i++) {
+            long scaled = buffer.getLong(base + i * Long.BYTES);
+            if (scaled != 0) {
+                rows.add(new RateRow(date, currencies[i], BigDecimal.valueOf(scaled, SCALE)));
+            }
+        }
+        return rows;
+    }
+
+    public int getDayCount() {
+        return dayCount;
+    }
+
+    public int getCurrencyCount() {
+        return currencies.length;
+    }
+
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
+    private int dayOffset(LocalDate date) {
+        long offset = date.toEpochDay() - firstEpochDay;
+        return offset < 0 || offset >= dayCount ? -1 : (int) offset;
+    }
+
+    private static long toScaled(BigDecimal rate) {
+        return rate.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static int align8(int value) {
+        return (value + 7) & ~7;
+    }
+}
@@ -0,0 +1,108 @@
+package com.crewmeister.cmcodingchallenge.store;
+
+import com.crewmeister.cmcodingchallenge.dto.RateRow;
+import com.crewmeister.cmcodingchallenge.event.DatasetChangedEvent;
+import com.crewmeister.cmcodingchallenge.event.RatesIngestedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Serves lookups from the memory-mapped {@link RateSnapshot} when one is available, and
+ * periodically rewrites the snapshot from the database after new rates were ingested.
+ * A fresh replica that ships with (or mounts) a snapshot answers warm lookups right after
+ * boot, without loading the dataset onto the heap.
+ */
+@Slf4j
+@Component
+public class RateSnapshotStore {
+
+    private final RateStore rateStore;
+    private final boolean enabled;
+    private final Path file;
+
+    private volatile RateSnapshot snapshot;
+    private volatile boolean dirty;
+
+    public RateSnapshotStore(RateStore rateStore,
+                             @Value("${snapshot.enabled:true}") boolean enabled,
+                             @Value("${snapshot.path:./data/rates.snapshot}") String file) {
+        this.rateStore = rateStore;
+        this.enabled = enabled;
+        this.file = Paths.get(file);
+    }
+
+    @PostConstruct
+    public void open() {
+        if (!enabled || !Files.exists(file)) {
+            dirty = enabled;
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            snapshot = RateSnapshot.open(file);
+            log.info("Mapped rate snapshot {} ({} days x {} currencies) in {} ms", file,
+                    snapshot.getDayCount(), snapshot.getCurrencyCount(), (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Ignoring unusable rate snapshot {}: {}", file, e.getMessage());
+            dirty = true;
+        }
+    }
+
+    public Optional<BigDecimal> findRate(String currency, LocalDate date) {
+        RateSnapshot current = snapshot;
+        return current != null ? current.rate(currency, date) : Optional.empty();
+    }
+
+    public List<RateRow> findRatesOn(LocalDate date) {
+        RateSnapshot current = snapshot;
+        return current != null ? current.ratesOn(date) : Collections.emptyList();
+    }
+
+    // After commit: set earlier, a snapshot written before the commit would clear it without the new rows
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onRatesIngested(RatesIngestedEvent event) {
+        dirty = true;
+    }
+
+    @EventListener
+    public void onDatasetChanged(DatasetChangedEvent event) {
+        dirty = true;
+    }
+
+    @Scheduled(initialDelayString = "${snapshot.write-interval-ms:300000}",
+            fixedDelayString = "${snapshot.write-interval-ms:300000}")
+    public void writeIfDirty() {
+        if (!enabled || !dirty) {
+            return;
+        }
+        dirty = false;
+        try {
+            List<RateRow> rows = rateStore.findAllRows();
+            if (rows.isEmpty()) {
+                return;
+            }
+            RateSnapshot.write(file, rows);
+            snapshot = RateSnapshot.open(file);
+            log.info("Wrote rate snapshot {} with {} rates", file, rows.size());
+        } catch (IOException | RuntimeException e) {
+            dirty = true;
+            log.warn("Failed to write rate snapshot {}: {}", file, e.getMessage());
+        }
+    }
+}
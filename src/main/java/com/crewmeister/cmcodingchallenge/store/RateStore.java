@@ -0,0 +1,47 @@
+package com.crewmeister.cmcodingchallenge.store;
+
+import com.crewmeister.cmcodingchallenge.dto.RateRow;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Durable storage of the EUR-based daily rates, the only rates the application keeps.
+ * Selected with {@code rates.store}: {@code jpa} ({@link JpaRateStore}, the default) keeps
+ * them in the {@code exchange_rates} table, {@code segment} ({@link SegmentRateStore}) in
+ * append-only segment files.
+ */
+public interface RateStore {
+
+    List<RateRow> findRowsOn(LocalDate date);
+
+    List<RateRow> findRowsOnDates(List<LocalDate> dates);
+
+    Optional<BigDecimal> findRate(String currency, LocalDate date);
+
+    /**
+     * One currency between two dates, inclusive, ordered by date.
+     */
+    List<RateRow> findSeries(String currency, LocalDate startDate, LocalDate endDate);
+
+    List<RateRow> findAllRows();
+
+    Optional<LocalDate> findMinDate(LocalDate startDate, LocalDate endDate);
+
+    Optional<LocalDate> findMaxDate(LocalDate startDate, LocalDate endDate);
+
+    /**
+     * Distinct stored dates between two dates, inclusive, newest first.
+     */
+    Page<LocalDate> findDates(LocalDate startDate, LocalDate endDate, Pageable pageable);
+
+    /**
+     * Stores the rows that are not stored yet and returns them. Rows already stored for the
+     * same date and currency are left as they are.
+     */
+    List<RateRow> insertMissing(List<RateRow> rows);
+}
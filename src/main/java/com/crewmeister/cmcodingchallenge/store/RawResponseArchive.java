@@ -0,0 +1,300 @@
+package com.crewmeister.cmcodingchallenge.store;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local gzip archive of raw Bundesbank responses. Each request path has a small properties
+ * file ({@code <sha256(path)>.properties}) holding the validators needed for conditional GETs,
+ * and bodies are stored once per content hash ({@code <sha256(body)>.xml.gz}).
+ * <p>
+ * A response only counts as ingested once {@link #markIngested} is called after its rates
+ * were stored; until then an unchanged upstream answer does not let callers skip it. A
+ * scheduled job drops the least recently fetched paths past {@code bundesbank.archive.max-bytes},
+ * along with bodies no other path refers to, so requests never wait on a directory scan.
+ */
+@Slf4j
+@Component
+public class RawResponseArchive {
+
+    private static final String META_SUFFIX = ".properties";
+    private static final String BODY_SUFFIX = ".xml.gz";
+
+    private final boolean enabled;
+    private final Path directory;
+    private final long maxBytes;
+    // Serialises metadata updates and pruning; a ReentrantLock so waiting virtual threads unmount
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    public RawResponseArchive(@Value("${bundesbank.archive.enabled:true}") boolean enabled,
+                              @Value("${bundesbank.archive.dir:./data/archive}") String directory,
+                              @Value("${bundesbank.archive.max-bytes:268435456}") long maxBytes) {
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.maxBytes = maxBytes;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Optional<ArchivedResponse> find(String path) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Path meta = metaFile(path);
+        if (!Files.exists(meta)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(readMeta(meta));
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable archive entry {}: {}", meta, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public Optional<String> readBody(ArchivedResponse response) {
+        Path body = directory.resolve(response.getContentHash() + BODY_SUFFIX);
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(body))) {
+            return Optional.of(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            log.warn("Archived body {} unavailable: {}", body, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Records the response for the path and returns its metadata. A body identical to an
+     * ingested one stays ingested. Failures are logged and never propagate: the archive is
+     * an optimisation, not part of the request contract.
+     */
+    public ArchivedResponse store(String path, String body, String etag, String lastModified) {
+        String hash = contentHash(body);
+        if (!enabled || body == null) {
+            return new ArchivedResponse(path, hash, etag, lastModified, Instant.now(), false);
+        }
+        Path bodyFile = directory.resolve(hash + BODY_SUFFIX);
+        // Bodies are content-addressed, so compressing needs no lock
+        byte[] gzipped = Files.exists(bodyFile) ? null : gzip(body);
+        writeLock.lock();
+        try {
+            boolean ingested = find(path).map(a -> a.isIngested() && a.getContentHash().equals(hash)).orElse(false);
+            ArchivedResponse response = new ArchivedResponse(path, hash, etag, lastModified, Instant.now(), ingested);
+            try {
+                Files.createDirectories(directory);
+                if (!Files.exists(bodyFile)) {
+                    // A body that existed above may have been pruned since
+                    byte[] bytes = gzipped != null ? gzipped : gzip(body);
+                    writeAtomically(bodyFile, out -> out.write(bytes));
+                }
+                writeMeta(response);
+            } catch (IOException e) {
+                log.warn("Failed to archive response for {}: {}", path, e.getMessage());
+            }
+            return response;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Marks the archived response for the path as ingested, provided it is still the body
+     * with the given hash. Called once the rates parsed from it are durably stored.
+     */
+    public void markIngested(String path, String contentHash) {
+        if (!enabled) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            Optional<ArchivedResponse> archived = find(path);
+            if (archived.isEmpty() || archived.get().isIngested() || !archived.get().getContentHash().equals(contentHash)) {
+                return;
+            }
+            ArchivedResponse a = archived.get();
+            try {
+                writeMeta(new ArchivedResponse(a.getPath(), a.getContentHash(), a.getEtag(), a.getLastModified(),
+                        a.getFetchedAt(), true));
+            } catch (IOException e) {
+                log.warn("Failed to mark archived response for {} as ingested: {}", path, e.getMessage());
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public List<ArchivedResponse> list() {
+        if (!enabled || !Files.isDirectory(directory)) {
+            return List.of();
+        }
+        List<ArchivedResponse> responses = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(p -> p.getFileName().toString().endsWith(META_SUFFIX)).forEach(meta -> {
+                try {
+                    responses.add(readMeta(meta));
+                } catch (IOException e) {
+                    log.warn("Skipping unreadable archive entry {}: {}", meta, e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return responses;
+    }
+
+    public static String contentHash(String body) {
+        return sha256(body == null ? "" : body);
+    }
+
+    /**
+     * Drops the least recently fetched paths until the archive fits in
+     * {@code bundesbank.archive.max-bytes}, deleting bodies once no path refers to them.
+     */
+    @Scheduled(fixedDelayString = "${bundesbank.archive.prune-ms:60000}")
+    public void prune() {
+        if (!enabled || maxBytes <= 0) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            pruneLocked();
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Failed to prune the response archive: {}", e.getMessage());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void pruneLocked() throws IOException {
+        List<ArchivedResponse> responses = list();
+        Map<String, Integer> references = new HashMap<>();
+        long total = 0;
+        for (ArchivedResponse response : responses) {
+            total += sizeOf(metaFile(response.getPath()));
+            if (references.merge(response.getContentHash(), 1, Integer::sum) == 1) {
+                total += sizeOf(directory.resolve(response.getContentHash() + BODY_SUFFIX));
+            }
+        }
+        responses.sort(Comparator.comparing(ArchivedResponse::getFetchedAt));
+        for (int i = 0; i < responses.size() - 1 && total > maxBytes; i++) {
+            ArchivedResponse oldest = responses.get(i);
+            Path meta = metaFile(oldest.getPath());
+            total -= sizeOf(meta);
+            Files.deleteIfExists(meta);
+            if (references.merge(oldest.getContentHash(), -1, Integer::sum) == 0) {
+                Path body = directory.resolve(oldest.getContentHash() + BODY_SUFFIX);
+                total -= sizeOf(body);
+                Files.deleteIfExists(body);
+            }
+        }
+    }
+
+    private static byte[] gzip(String body) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length() / 4);
+        try (OutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(body.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private void writeMeta(ArchivedResponse response) throws IOException {
+        writeAtomically(metaFile(response.getPath()), out -> toProperties(response).store(out, null));
+    }
+
+    private Path metaFile(String path) {
+        return directory.resolve(sha256(path) + META_SUFFIX);
+    }
+
+    private ArchivedResponse readMeta(Path meta) throws IOException {
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(meta)) {
+            props.load(in);
+        }
+        return new ArchivedResponse(
+                props.getProperty("path"),
+                props.getProperty("contentHash"),
+                props.getProperty("etag"),
+                props.getProperty("lastModified"),
+                Instant.parse(props.getProperty("fetchedAt")),
+                Boolean.parseBoolean(props.getProperty("ingested")));
+    }
+
+    private Properties toProperties(ArchivedResponse response) {
+        Properties props = new Properties();
+        props.setProperty("path", response.getPath());
+        props.setProperty("contentHash", response.getContentHash());
+        props.setProperty("fetchedAt", response.getFetchedAt().toString());
+        props.setProperty("ingested", String.valueOf(response.isIngested()));
+        if (response.getEtag() != null) props.setProperty("etag", response.getEtag());
+        if (response.getLastModified() != null) props.setProperty("lastModified", response.getLastModified());
+        return props;
+    }
+
+    private void writeAtomically(Path target, IoWriter writer) throws IOException {
+        Path tmp = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                writer.write(out);
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface IoWriter {
+        void write(OutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,247 @@
+package com.crewmeister.cmcodingchallenge.store;
+
+import com.crewmeister.cmcodingchallenge.dto.RateRow;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Embedded append-only rate store. Every insert writes its new rows, sorted by date, as a
+ * new immutable {@link RateSegment}; nothing is ever rewritten in place. Reads look at the
+ * segments whose dates overlap the query, each located through its sparse index. Once
+ * there are more than {@code rates.store.segment.max-segments} segments they are merged
+ * into one.
+ * <p>
+ * The files are local to the instance, so this store is for single-instance deployments;
+ * clustered mode shares rates through the database and needs {@link JpaRateStore}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "rates.store", havingValue = "segment")
+public class SegmentRateStore implements RateStore {
+
+    private final Path directory;
+    private final int maxSegments;
+    private final Object writeLock = new Object();
+
+    /** Replaced as a whole on every write, so readers never see a half-updated list. */
+    private volatile List<RateSegment> segments = Collections.emptyList();
+    private int nextId;
+
+    public SegmentRateStore(@Value("${rates.store.segment.dir:./data/rate-segments}") String directory,
+                            @Value("${rates.store.segment.max-segments:16}") int maxSegments) {
+        this.directory = Paths.get(directory);
+        this.maxSegments = maxSegments;
+    }
+
+    /**
+     * Opens the existing segments. Segments that a later compaction already merged are
+     * deleted; they only survive a crash between writing the merged segment and removing
+     * its inputs.
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+        List<RateSegment> opened = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.sorted().collect(Collectors.toList())) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.deleteIfExists(file);
+                } else if (name.endsWith(RateSegment.SUFFIX)) {
+                    int id = Integer.parseInt(name.substring(0, name.length() - RateSegment.SUFFIX.length()));
+                    opened.add(RateSegment.open(id, file));
+                }
+            }
+        }
+        int compactedThrough = opened.stream().mapToInt(RateSegment::compactedThrough).max().orElse(-1);
+        List<RateSegment> live = new ArrayList<>();
+        for (RateSegment segment : opened) {
+            if (segment.id() <= compactedThrough) {
+                Files.deleteIfExists(segment.file());
+            } else {
+                live.add(segment);
+            }
+        }
+        synchronized (writeLock) {
+            segments = Collections.unmodifiableList(live);
+            nextId = live.isEmpty() ? 0 : live.get(live.size() - 1).id() + 1;
+        }
+        log.info("Opened {} rate segments with {} rows in {}", live.size(),
+                live.stream().mapToInt(RateSegment::recordCount).sum(), directory.toAbsolutePath());
+    }
+
+    @Override
+    public List<RateRow> findRowsOn(LocalDate date) {
+        return collect(date, date, null);
+    }
+
+    @Override
+    public List<RateRow> findRowsOnDates(List<LocalDate> dates) {
+        List<RateRow> rows = new ArrayList<>();
+        for (LocalDate date : new TreeSet<>(dates)) {
+            rows.addAll(collect(date, date, null));
+        }
+        return rows;
+    }
+
+    @Override
+    public Optional<BigDecimal> findRate(String currency, LocalDate date) {
+        int day = (int) date.toEpochDay();
+        for (RateSegment segment : segments) {
+            BigDecimal rate = segment.rate(currency, day);
+            if (rate != null) {
+                return Optional.of(rate);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public List<RateRow> findSeries(String currency, LocalDate startDate, LocalDate endDate) {
+        return collect(startDate, endDate, currency);
+    }
+
+    @Override
+    public List<RateRow> findAllRows() {
+        return collect(LocalDate.MIN, LocalDate.MAX, null);
+    }
+
+    @Override
+    public Optional<LocalDate> findMinDate(LocalDate startDate, LocalDate endDate) {
+        TreeSet<Integer> days = daysBetween(startDate, endDate);
+        return days.isEmpty() ? Optional.empty() : Optional.of(LocalDate.ofEpochDay(days.first()));
+    }
+
+    @Override
+    public Optional<LocalDate> findMaxDate(LocalDate startDate, LocalDate endDate) {
+        TreeSet<Integer> days = daysBetween(startDate, endDate);
+        return days.isEmpty() ? Optional.empty() : Optional.of(LocalDate.ofEpochDay(days.last()));
+    }
+
+    @Override
+    public Page<LocalDate> findDates(LocalDate startDate, LocalDate endDate, Pageable pageable) {
+        List<LocalDate> newestFirst = daysBetween(startDate, endDate).descendingSet().stream()
+                .map(LocalDate::ofEpochDay)
+                .collect(Collectors.toList());
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(newestFirst);
+        }
+        int from = (int) Math.min(pageable.getOffset(), newestFirst.size());
+        int to = Math.min(from + pageable.getPageSize(), newestFirst.size());
+        return new PageImpl<>(new ArrayList<>(newestFirst.subList(from, to)), pageable, newestFirst.size());
+    }
+
+    @Override
+    public List<RateRow> insertMissing(List<RateRow> rows) {
+        synchronized (writeLock) {
+            Set<String> seen = new HashSet<>();
+            List<RateRow> fresh = new ArrayList<>();
+            for (LocalDate date : rows.stream().map(RateRow::getDate).collect(Collectors.toCollection(TreeSet::new))) {
+                for (RateRow stored : findRowsOn(date)) {
+                    seen.add(key(stored));
+                }
+            }
+            for (RateRow row : rows) {
+                if (seen.add(key(row))) {
+                    fresh.add(row);
+                }
+            }
+            if (fresh.isEmpty()) {
+                return fresh;
+            }
+            List<RateRow> sorted = new ArrayList<>(fresh);
+            sorted.sort(RateSegment.ORDER);
+            try {
+                List<RateSegment> updated = new ArrayList<>(segments);
+                updated.add(RateSegment.write(directory, nextId++, sorted, -1));
+                segments = Collections.unmodifiableList(updated);
+                if (updated.size() > maxSegments) {
+                    compact();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to append rate segment", e);
+            }
+            return fresh;
+        }
+    }
+
+    /**
+     * Merges all segments into one. The merged segment replaces the others for readers
+     * before they are deleted.
+     */
+    private void compact() throws IOException {
+        List<RateSegment> merged = segments;
+        List<RateRow> rows = findAllRows();
+        int through = merged.get(merged.size() - 1).id();
+        RateSegment compacted = RateSegment.write(directory, nextId++, rows, through);
+        segments = Collections.singletonList(compacted);
+        for (RateSegment segment : merged) {
+            Files.deleteIfExists(segment.file());
+        }
+        log.info("Compacted {} rate segments into {} ({} rows)", merged.size(),
+                compacted.file().getFileName(), compacted.recordCount());
+    }
+
+    int segmentCount() {
+        return segments.size();
+    }
+
+    private List<RateRow> collect(LocalDate startDate, LocalDate endDate, String currency) {
+        int fromDay = (int) Math.max(startDate.toEpochDay(), Integer.MIN_VALUE);
+        int toDay = (int) Math.min(endDate.toEpochDay(), Integer.MAX_VALUE);
+        List<RateRow> rows = new ArrayList<>();
+        int contributing = 0;
+        for (RateSegment segment : segments) {
+            int before = rows.size();
+            segment.collect(fromDay, toDay, currency, rows);
+            if (rows.size() > before) {
+                contributing++;
+            }
+        }
+        if (contributing > 1) {
+            rows.sort(RateSegment.ORDER);
+        }
+        return rows;
+    }
+
+    private TreeSet<Integer> daysBetween(LocalDate startDate, LocalDate endDate) {
+        long fromDay = startDate.toEpochDay();
+        long toDay = endDate.toEpochDay();
+        TreeSet<Integer> days = new TreeSet<>();
+        for (RateSegment segment : segments) {
+            for (int day : segment.days()) {
+                if (day >= fromDay && day <= toDay) {
+                    days.add(day);
+                }
+            }
+        }
+        return days;
+    }
+
+    private static String key(RateRow row) {
+        return row.getDate() + "/" + row.getTargetCurrency();
+    }
+}
@@ -0,0 +1,106 @@
+package com.crewmeister.cmcodingchallenge.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable map over a pair of parallel arrays whose keys are already sorted and unique.
+ * Iterates in key order and answers lookups by binary search, without the per-entry node
+ * allocation of a {@link java.util.TreeMap}.
+ */
+public final class SortedArrayMap<V> extends AbstractMap<String, V> {
+
+    private final String[] keys;
+    private final Object[] values;
+    private final int size;
+
+    private SortedArrayMap(String[] keys, Object[] values, int size) {
+        this.keys = keys;
+        this.values = values;
+        this.size = size;
+    }
+
+    /**
+     * Wraps the first {@code size} slots of the given arrays. The caller hands over ownership
+     * and guarantees that keys are strictly ascending.
+     */
+    public static <V> SortedArrayMap<V> ofSorted(String[] keys, Object[] values, int size) {
+        if (keys.length < size || values.length < size) {
+            throw new IllegalArgumentException("size exceeds backing arrays");
+        }
+        return new SortedArrayMap<>(keys, values, size);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        int index = indexOf(key);
+        return index >= 0 ? (V) values[index] : null;
+    }
+
+    /**
+     * Key at the given position in iteration order; with {@link #valueAt} lets hot
+     * serialization paths walk the map without allocating entries.
+     */
+    public String keyAt(int index) {
+        return keys[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V valueAt(int index) {
+        return (V) values[index];
+    }
+
+    private int indexOf(Object key) {
+        if (!(key instanceof String)) {
+            return -1;
+        }
+        return Arrays.binarySearch(keys, 0, size, (String) key);
+    }
+
+    @Override
+    public Set<Entry<String, V>> entrySet() {
+        return new AbstractSet<Entry<String, V>>() {
+            @Override
+            public Iterator<Entry<String, V>> iterator() {
+                return new Iterator<Entry<String, V>>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < size;
+                    }
+
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public Entry<String, V> next() {
+                        if (next >= size) {
+                            throw new NoSuchElementException();
+                        }
+                        int i = next++;
+                        return new SimpleImmutableEntry<>(keys[i], (V) values[i]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+}
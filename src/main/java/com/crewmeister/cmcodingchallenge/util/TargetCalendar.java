@@ -0,0 +1,63 @@
+package com.crewmeister.cmcodingchallenge.util;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.Month;
+
+/**
+ * Days the euro reference rates are published on: TARGET business days. TARGET closes on
+ * weekends, New Year's Day and Christmas Day, and since 2000 also on Good Friday, Easter
+ * Monday, 1 May and 26 December; it closed on 31 December from 1999 to 2001 as well. A
+ * weekday outside these closing days without stored rates is missing, not a holiday.
+ */
+public final class TargetCalendar {
+
+    private TargetCalendar() {
+    }
+
+    public static boolean isBusinessDay(LocalDate date) {
+        DayOfWeek dayOfWeek = date.getDayOfWeek();
+        return dayOfWeek != DayOfWeek.SATURDAY && dayOfWeek != DayOfWeek.SUNDAY && !isClosingDay(date);
+    }
+
+    static boolean isClosingDay(LocalDate date) {
+        int year = date.getYear();
+        Month month = date.getMonth();
+        int day = date.getDayOfMonth();
+        if ((month == Month.JANUARY && day == 1) || (month == Month.DECEMBER && day == 25)) {
+            return true;
+        }
+        if (month == Month.DECEMBER && day == 31 && year <= 2001) {
+            return true;
+        }
+        if (year < 2000) {
+            return false;
+        }
+        if ((month == Month.MAY && day == 1) || (month == Month.DECEMBER && day == 26)) {
+            return true;
+        }
+        LocalDate easter = easterSunday(year);
+        return date.equals(easter.minusDays(2)) || date.equals(easter.plusDays(1));
+    }
+
+    /**
+     * Gregorian Easter Sunday (anonymous Gregorian algorithm).
+     */
+    static LocalDate easterSunday(int year) {
+        int a = year % 19;
+        int b = year / 100;
+        int c = year % 100;
+        int d = b / 4;
+        int e = b % 4;
+        int f = (b + 8) / 25;
+        int g = (b - f + 1) / 3;
+        int h = (19 * a + b - d - g + 15) % 30;
+        int i = c / 4;
+        int k = c % 4;
+        int l = (32 + 2 * e + 2 * i - h - k) % 7;
+        int m = (a + 11 * h + 22 * l) / 451;
+        int month = (h + l - 7 * m + 114) / 31;
+        int day = (h + l - 7 * m + 114) % 31 + 1;
+        return LocalDate.of(year, month, day);
+    }
+}
@@ -0,0 +1,98 @@
+package com.crewmeister.cmcodingchallenge.admission;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionFilterTest {
+
+    @Test
+    void clientOverBurst_gets429WithoutReachingController() throws Exception {
+        AdmissionFilter filter = new AdmissionFilter(0.001, 2, 100, false, 10, 0);
+
+        assertEquals(200, run(filter, request("10.0.0.1")).getStatus());
+        assertEquals(200, run(filter, request("10.0.0.1")).getStatus());
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        filter.doFilter(request("10.0.0.1"), rejected, chain);
+
+        assertEquals(429, rejected.getStatus());
+        assertNotNull(rejected.getHeader("Retry-After"));
+        assertTrue(rejected.getContentAsString().contains("\"status\":429"));
+        assertNull(chain.getRequest());
+        // Other clients keep their own budget
+        assertEquals(200, run(filter, request("10.0.0.2")).getStatus());
+    }
+
+    @Test
+    void noFreeSlotWithinQueueTimeout_gets503() throws Exception {
+        AdmissionFilter filter = new AdmissionFilter(1000, 1000, 100, false, 1, 10);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        FilterChain blocking = (req, res) -> {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        Thread holder = new Thread(() -> {
+            try {
+                filter.doFilter(request("10.0.0.1"), new MockHttpServletResponse(), blocking);
+            } catch (Exception e) {
+                failure.set(e);
+            }
+        });
+        holder.start();
+        entered.await();
+
+        MockHttpServletResponse shed = run(filter, request("10.0.0.2"));
+        release.countDown();
+        holder.join();
+
+        assertEquals(503, shed.getStatus());
+        assertNull(failure.get());
+        assertEquals(200, run(filter, request("10.0.0.2")).getStatus());
+    }
+
+    @Test
+    void nonApiPaths_areNotAdmissionControlled() throws Exception {
+        AdmissionFilter filter = new AdmissionFilter(0.001, 1, 100, false, 10, 0);
+        MockHttpServletRequest health = request("10.0.0.1");
+        health.setRequestURI("/actuator/health");
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(200, run(filter, health).getStatus());
+        }
+    }
+
+    @Test
+    void clientOf_usesFirstForwardedHopOnlyWhenTrusted() {
+        MockHttpServletRequest request = request("10.0.0.1");
+        request.addHeader("X-Forwarded-For", "203.0.113.7, 10.0.0.1");
+
+        assertEquals("10.0.0.1", new AdmissionFilter(50, 100, 100, false, 10, 0).clientOf(request));
+        assertEquals("203.0.113.7", new AdmissionFilter(50, 100, 100, true, 10, 0).clientOf(request));
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/exchange-rates/2024-01-15");
+        request.setRemoteAddr(remoteAddr);
+        return request;
+    }
+
+    private static MockHttpServletResponse run(AdmissionFilter filter, MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
@@ -0,0 +1,39 @@
+package com.crewmeister.cmcodingchallenge.admission;
+
+import com.crewmeister.cmcodingchallenge.exception.ServiceOverloadedException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamBulkheadTest {
+
+    @Test
+    void call_whenAllPermitsHeld_shedsWithRetryAfter() {
+        UpstreamBulkhead bulkhead = new UpstreamBulkhead(true, 1, 0, 3);
+
+        ServiceOverloadedException shed = bulkhead.call(() ->
+                assertThrows(ServiceOverloadedException.class, () -> bulkhead.call(() -> "nested")));
+
+        assertEquals(3, shed.getRetryAfterSeconds());
+        assertEquals(0, shed.getStackTrace().length);
+        assertEquals(1, bulkhead.availablePermits());
+    }
+
+    @Test
+    void call_releasesPermitWhenUpstreamFails() {
+        UpstreamBulkhead bulkhead = new UpstreamBulkhead(true, 1, 0, 3);
+
+        assertThrows(IllegalStateException.class, () -> bulkhead.call(() -> {
+            throw new IllegalStateException("upstream down");
+        }));
+
+        assertEquals("ok", bulkhead.call(() -> "ok"));
+    }
+
+    @Test
+    void call_disabled_neverSheds() {
+        UpstreamBulkhead bulkhead = new UpstreamBulkhead(false, 1, 0, 3);
+
+        assertEquals("nested", bulkhead.call(() -> bulkhead.call(() -> "nested")));
+    }
+}
@@ -0,0 +1,85 @@
+package com.crewmeister.cmcodingchallenge.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fires concurrent {@code GET /api/v1/exchange-rates/{date}} requests for distinct dates at a
+ * running instance, so every request misses the DB and the snapshot and blocks on the upstream.
+ * Run it once against the default build and once against the {@code loom} build (both pointed
+ * at {@link StubBundesBankServer}) and compare throughput and latency percentiles; see
+ * {@code scripts/loom-benchmark.sh}.
+ *
+ * <pre>
+ * java -cp target/test-classes com.crewmeister.cmcodingchallenge.benchmark.ColdMissLoadBenchmark \
+ *     [baseUrl] [concurrency] [requests] [firstDate]
+ * </pre>
+ */
+public class ColdMissLoadBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        LocalDate firstDate = args.length > 3 ? LocalDate.parse(args[3]) : LocalDate.of(2000, 1, 3);
+
+        HttpClient http = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newFixedThreadPool(8))
+                .build();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+
+        long[] latenciesNanos = new long[requests];
+        AtomicInteger failures = new AtomicInteger();
+        List<CompletableFuture<Void>> futures = new ArrayList<>(requests);
+
+        long started = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            int index = i;
+            LocalDate date = firstDate.plusDays(i);
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/exchange-rates/" + date))
+                    .timeout(Duration.ofSeconds(120))
+                    .GET()
+                    .build();
+            futures.add(CompletableFuture.runAsync(() -> {
+                long t0 = System.nanoTime();
+                try {
+                    HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() >= 500) {
+                        failures.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                }
+                latenciesNanos[index] = System.nanoTime() - t0;
+            }, workers));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        long elapsedNanos = System.nanoTime() - started;
+        workers.shutdown();
+
+        Arrays.sort(latenciesNanos);
+        System.out.printf("requests=%d concurrency=%d failures=%d%n", requests, concurrency, failures.get());
+        System.out.printf("throughput=%.1f req/s%n", requests / (elapsedNanos / 1e9));
+        System.out.printf("p50=%d ms p99=%d ms max=%d ms%n",
+                percentileMillis(latenciesNanos, 0.50),
+                percentileMillis(latenciesNanos, 0.99),
+                latenciesNanos[latenciesNanos.length - 1] / 1_000_000);
+    }
+
+    private static long percentileMillis(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000;
+    }
+}
@@ -0,0 +1,165 @@
+package com.crewmeister.cmcodingchallenge.benchmark;
+
+import com.crewmeister.cmcodingchallenge.dto.RateRow;
+import com.crewmeister.cmcodingchallenge.entity.ExchangeRate;
+import com.crewmeister.cmcodingchallenge.repository.ExchangeRateRepository;
+import com.crewmeister.cmcodingchallenge.store.JpaRateStore;
+import com.crewmeister.cmcodingchallenge.store.RateDateIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * History reads and ingest on a synthetic dataset from {@code historyStart} to the end of
+ * 2024, 30 currencies per business day: the 2020 dataset the service used to hold against
+ * the full 1999 euro history, about four times the rows. The history path ({@code
+ * historyPage}: index page, then one IN query) and {@code reingestMonth} should stay flat
+ * between the two; {@code historyPageOffsetQuery} is the store's DISTINCT/OFFSET page for
+ * comparison. Runs against in-memory H2.
+ *
+ * <pre>
+ * java -cp "target/test-classes:target/classes:$(cat cp.txt)" \
+ *     com.crewmeister.cmcodingchallenge.benchmark.HistoryScaleBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HistoryScaleBenchmark {
+
+    private static final int CURRENCIES = 30;
+    private static final int PAGE_SIZE = 20;
+    private static final LocalDate LAST_DAY = LocalDate.of(2024, 12, 31);
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = ExchangeRate.class)
+    @EnableJpaRepositories(basePackageClasses = ExchangeRateRepository.class)
+    @Import(JpaRateStore.class)
+    static class JpaBackend {
+    }
+
+    @Param({"2020-01-01", "1999-01-04"})
+    public String historyStart;
+
+    private ConfigurableApplicationContext context;
+    private JpaRateStore store;
+    private RateDateIndex index;
+    private LocalDate firstDay;
+    private int totalPages;
+    private List<List<RateRow>> months;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(JpaBackend.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.datasource.url=jdbc:h2:mem:history-scale-bench;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.hibernate.ddl-auto=create", "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN")
+                .run();
+        store = context.getBean(JpaRateStore.class);
+        firstDay = LocalDate.parse(historyStart);
+
+        // One month per insert, as yearly history fetches arrive through the write-behind batches
+        months = new ArrayList<>();
+        List<RateRow> month = new ArrayList<>();
+        int businessDays = 0;
+        for (LocalDate day = firstDay; !day.isAfter(LAST_DAY); day = day.plusDays(1)) {
+            if (day.getDayOfWeek() == DayOfWeek.SATURDAY || day.getDayOfWeek() == DayOfWeek.SUNDAY) {
+                continue;
+            }
+            if (!month.isEmpty() && !month.get(0).getDate().getMonth().equals(day.getMonth())) {
+                months.add(month);
+                month = new ArrayList<>();
+            }
+            month.addAll(dayRows(day));
+            businessDays++;
+        }
+        months.add(month);
+        long start = System.nanoTime();
+        months.forEach(store::insertMissing);
+        System.out.printf("%nIngested %d business days in %d ms%n", businessDays,
+                (System.nanoTime() - start) / 1_000_000);
+
+        index = new RateDateIndex(store, 7);
+        index.load();
+        totalPages = (businessDays + PAGE_SIZE - 1) / PAGE_SIZE;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<RateRow> historyPage() {
+        Page<LocalDate> dates = index.findDates(firstDay, LAST_DAY, randomPage());
+        return store.findRowsOnDates(dates.getContent());
+    }
+
+    @Benchmark
+    public Page<LocalDate> historyPageOffsetQuery() {
+        return store.findDates(firstDay, LAST_DAY, randomPage());
+    }
+
+    @Benchmark
+    public List<RateRow> fiveYearSeries() {
+        return index.findSeries("AHX", LAST_DAY.minusYears(5), LAST_DAY);
+    }
+
+    /**
+     * A month that is already stored: the existence checks an overlapping fetch pays.
+     */
+    @Benchmark
+    public List<RateRow> reingestMonth() {
+        return store.insertMissing(months.get(ThreadLocalRandom.current().nextInt(months.size())));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public RateDateIndex rebuildIndex() {
+        index.load();
+        return index;
+    }
+
+    private PageRequest randomPage() {
+        return PageRequest.of(ThreadLocalRandom.current().nextInt(totalPages), PAGE_SIZE, Sort.by("date").descending());
+    }
+
+    private static List<RateRow> dayRows(LocalDate day) {
+        List<RateRow> rows = new ArrayList<>(CURRENCIES);
+        for (int i = 0; i < CURRENCIES; i++) {
+            String currency = String.valueOf(new char[]{(char) ('A' + i / 26), (char) ('A' + i % 26), 'X'});
+            rows.add(new RateRow(day, currency, BigDecimal.valueOf(1_000_000L + day.toEpochDay() * 31 + i, 6)));
+        }
+        return rows;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(HistoryScaleBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,122 @@
+package com.crewmeister.cmcodingchallenge.benchmark;
+
+import com.crewmeister.cmcodingchallenge.dto.ExchangeRatesHistoryResponse;
+import com.crewmeister.cmcodingchallenge.dto.ExchangeRatesOnDateResponse;
+import com.crewmeister.cmcodingchallenge.util.SortedArrayMap;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization cost of the two hottest responses, a 40-currency day and a 100-day history
+ * page: Jackson's generic serializers ({@code generic}) against the cached writer and the
+ * rate-map serializer the application uses ({@code tuned}). Run with {@code -prof gc} to
+ * compare allocation per response.
+ *
+ * <pre>
+ * java -cp "target/test-classes:target/classes:$(cat cp.txt)" \
+ *     com.crewmeister.cmcodingchallenge.benchmark.RateSerializationBenchmark
+ * </pre>
+ * where {@code cp.txt} comes from {@code mvn dependency:build-classpath -Dmdep.outputFile=cp.txt}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RateSerializationBenchmark {
+
+    private static final int CURRENCIES = 40;
+    private static final int DAYS = 100;
+
+    private ExchangeRatesOnDateResponse day;
+    private ExchangeRatesHistoryResponse page;
+    private ObjectMapper genericMapper;
+    private ObjectWriter dayWriter;
+    private ObjectWriter pageWriter;
+    private ByteArrayOutputStream out;
+
+    @Setup
+    public void setUp() {
+        String[] currencies = new String[CURRENCIES];
+        for (int i = 0; i < CURRENCIES; i++) {
+            currencies[i] = String.valueOf(new char[]{(char) ('A' + i / 26), (char) ('A' + i % 26), 'X'});
+        }
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        String[] dates = new String[DAYS];
+        Object[] dayMaps = new Object[DAYS];
+        for (int d = 0; d < DAYS; d++) {
+            dates[d] = start.plusDays(d).toString();
+            dayMaps[d] = rates(currencies, d);
+        }
+        day = ExchangeRatesOnDateResponse.builder()
+                .baseCurrency("EUR").date(start).rates(rates(currencies, 0)).build();
+        page = ExchangeRatesHistoryResponse.builder()
+                .baseCurrency("EUR").startDate(start).endDate(start.plusDays(DAYS - 1))
+                .rates(SortedArrayMap.ofSorted(dates, dayMaps, DAYS))
+                .page(0).size(DAYS).totalElements(DAYS).totalPages(1).build();
+
+        ObjectMapper mapper = JsonMapper.builder().addModule(new JavaTimeModule()).build();
+        genericMapper = JsonMapper.builder().addModule(new JavaTimeModule())
+                .disable(MapperFeature.USE_ANNOTATIONS).build();
+        dayWriter = mapper.writerFor(ExchangeRatesOnDateResponse.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        pageWriter = mapper.writerFor(ExchangeRatesHistoryResponse.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        out = new ByteArrayOutputStream(64 * 1024);
+    }
+
+    private static Map<String, BigDecimal> rates(String[] currencies, int seed) {
+        Object[] values = new Object[currencies.length];
+        for (int i = 0; i < currencies.length; i++) {
+            values[i] = BigDecimal.valueOf(1_000_000L + 7919L * (i + 1) * (seed + 1) % 9_000_000L, 4 + i % 3);
+        }
+        return SortedArrayMap.ofSorted(currencies, values, currencies.length);
+    }
+
+    @Benchmark
+    public int dayGeneric() throws IOException {
+        out.reset();
+        genericMapper.writeValue(out, day);
+        return out.size();
+    }
+
+    @Benchmark
+    public int dayTuned() throws IOException {
+        out.reset();
+        dayWriter.writeValue(out, day);
+        return out.size();
+    }
+
+    @Benchmark
+    public int pageGeneric() throws IOException {
+        out.reset();
+        genericMapper.writeValue(out, page);
+        return out.size();
+    }
+
+    @Benchmark
+    public int pageTuned() throws IOException {
+        out.reset();
+        pageWriter.writeValue(out, page);
+        return out.size();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(RateSerializationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
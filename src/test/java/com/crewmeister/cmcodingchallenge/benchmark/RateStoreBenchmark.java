@@ -0,0 +1,169 @@
+package com.crewmeister.cmcodingchallenge.benchmark;
+
+import com.crewmeister.cmcodingchallenge.dto.RateRow;
+import com.crewmeister.cmcodingchallenge.entity.ExchangeRate;
+import com.crewmeister.cmcodingchallenge.repository.ExchangeRateRepository;
+import com.crewmeister.cmcodingchallenge.store.JpaRateStore;
+import com.crewmeister.cmcodingchallenge.store.RateStore;
+import com.crewmeister.cmcodingchallenge.store.SegmentRateStore;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * The two {@link RateStore} backends on the application's access patterns: all rates of a
+ * day, a one-year series of one currency, a page of history dates, and appending a new
+ * business day. Both hold six years of 30 currencies; {@code jpa} runs against in-memory H2.
+ *
+ * <pre>
+ * java -cp "target/test-classes:target/classes:$(cat cp.txt)" \
+ *     com.crewmeister.cmcodingchallenge.benchmark.RateStoreBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RateStoreBenchmark {
+
+    private static final int CURRENCIES = 30;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2019, 1, 1);
+    private static final LocalDate LAST_DAY = LocalDate.of(2024, 12, 31);
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = ExchangeRate.class)
+    @EnableJpaRepositories(basePackageClasses = ExchangeRateRepository.class)
+    @Import(JpaRateStore.class)
+    static class JpaBackend {
+    }
+
+    @Param({"jpa", "segment"})
+    public String backend;
+
+    private RateStore store;
+    private ConfigurableApplicationContext context;
+    private Path segmentDirectory;
+    private List<LocalDate> businessDays;
+    private String[] currencies;
+    private LocalDate nextAppendDay;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        currencies = new String[CURRENCIES];
+        for (int i = 0; i < CURRENCIES; i++) {
+            currencies[i] = String.valueOf(new char[]{(char) ('A' + i / 26), (char) ('A' + i % 26), 'X'});
+        }
+        businessDays = new ArrayList<>();
+        for (LocalDate day = FIRST_DAY; !day.isAfter(LAST_DAY); day = day.plusDays(1)) {
+            if (day.getDayOfWeek() != DayOfWeek.SATURDAY && day.getDayOfWeek() != DayOfWeek.SUNDAY) {
+                businessDays.add(day);
+            }
+        }
+
+        if ("jpa".equals(backend)) {
+            context = new SpringApplicationBuilder(JpaBackend.class)
+                    .web(WebApplicationType.NONE)
+                    .properties("spring.datasource.url=jdbc:h2:mem:rate-store-bench;DB_CLOSE_DELAY=-1",
+                            "spring.jpa.hibernate.ddl-auto=create", "spring.jpa.show-sql=false",
+                            "logging.level.root=WARN")
+                    .run();
+            store = context.getBean(JpaRateStore.class);
+        } else {
+            segmentDirectory = Files.createTempDirectory("rate-segments");
+            SegmentRateStore segments = new SegmentRateStore(segmentDirectory.toString(), 16);
+            segments.open();
+            store = segments;
+        }
+
+        // One month per insert, as history fetches arrive
+        List<RateRow> month = new ArrayList<>();
+        for (LocalDate day : businessDays) {
+            if (!month.isEmpty() && !month.get(0).getDate().getMonth().equals(day.getMonth())) {
+                store.insertMissing(month);
+                month = new ArrayList<>();
+            }
+            month.addAll(dayRows(day));
+        }
+        store.insertMissing(month);
+        nextAppendDay = LAST_DAY.plusDays(1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (context != null) {
+            context.close();
+        }
+        if (segmentDirectory != null) {
+            try (Stream<Path> files = Files.walk(segmentDirectory)) {
+                for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public List<RateRow> ratesOnDay() {
+        return store.findRowsOn(businessDays.get(ThreadLocalRandom.current().nextInt(businessDays.size())));
+    }
+
+    @Benchmark
+    public List<RateRow> oneYearSeries() {
+        LocalDate start = businessDays.get(ThreadLocalRandom.current().nextInt(businessDays.size() - 260));
+        return store.findSeries(currencies[7], start, start.plusYears(1));
+    }
+
+    @Benchmark
+    public Page<LocalDate> historyDatesPage() {
+        LocalDate start = businessDays.get(ThreadLocalRandom.current().nextInt(businessDays.size() - 260));
+        return store.findDates(start, start.plusYears(1), PageRequest.of(1, 100, Sort.by("date").descending()));
+    }
+
+    @Benchmark
+    public List<RateRow> appendDay() {
+        List<RateRow> inserted = store.insertMissing(dayRows(nextAppendDay));
+        nextAppendDay = nextAppendDay.plusDays(1);
+        return inserted;
+    }
+
+    private List<RateRow> dayRows(LocalDate day) {
+        List<RateRow> rows = new ArrayList<>(CURRENCIES);
+        for (int i = 0; i < CURRENCIES; i++) {
+            rows.add(new RateRow(day, currencies[i], BigDecimal.valueOf(1_000_000L + day.toEpochDay() * 31 + i, 6)));
+        }
+        return rows;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(RateStoreBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,123 @@
+package com.crewmeister.cmcodingchallenge.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * Minimal stand-in for the Bundesbank SDMX API with a fixed response latency, so cold-miss load
+ * can be generated without hitting the real upstream. Serves the currency codelist and
+ * {@code /data/BBEX3/...} queries with synthetic rates for every weekday in the requested period.
+ *
+ * <pre>
+ * java -cp target/test-classes com.crewmeister.cmcodingchallenge.benchmark.StubBundesBankServer [port] [latencyMs]
+ * </pre>
+ */
+public class StubBundesBankServer {
+
+    private static final List<String> CURRENCIES = List.of("USD", "GBP", "JPY", "CHF", "SEK", "NOK", "PLN", "CZK");
+
+    private final HttpServer server;
+    private final long latencyMs;
+
+    public StubBundesBankServer(int port, long latencyMs) throws IOException {
+        this.latencyMs = latencyMs;
+        this.server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.createContext("/metadata/codelist/", this::codelist);
+        server.createContext("/data/", this::data);
+        server.setExecutor(Executors.newCachedThreadPool());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void codelist(HttpExchange exchange) throws IOException {
+        StringBuilder xml = new StringBuilder("<Structure><Structures><Codelists><Codelist>")
+                .append("<Code id=\"EUR\"><Name xml:lang=\"en\">EUR</Name></Code>");
+        for (String code : CURRENCIES) {
+            xml.append("<Code id=\"").append(code).append("\"><Name xml:lang=\"en\">")
+                    .append(code).append("</Name></Code>");
+        }
+        xml.append("</Codelist></Codelists></Structures></Structure>");
+        respond(exchange, xml.toString());
+    }
+
+    private void data(HttpExchange exchange) throws IOException {
+        Map<String, String> query = query(exchange.getRequestURI());
+        LocalDate start = LocalDate.parse(query.get("startPeriod"));
+        LocalDate end = LocalDate.parse(query.get("endPeriod"));
+
+        StringBuilder xml = new StringBuilder("<GenericData><DataSet>");
+        for (int c = 0; c < CURRENCIES.size(); c++) {
+            xml.append("<Series><SeriesKey><Value id=\"BBK_STD_CURRENCY\" value=\"")
+                    .append(CURRENCIES.get(c)).append("\"/></SeriesKey>");
+            for (LocalDate day = start; !day.isAfter(end); day = day.plusDays(1)) {
+                if (day.getDayOfWeek() == DayOfWeek.SATURDAY || day.getDayOfWeek() == DayOfWeek.SUNDAY) {
+                    continue;
+                }
+                xml.append("<Obs><ObsDimension value=\"").append(day).append("\"/><ObsValue value=\"")
+                        .append(c + 1).append('.').append(1000 + day.getDayOfYear()).append("\"/></Obs>");
+            }
+            xml.append("</Series>");
+        }
+        xml.append("</DataSet></GenericData>");
+        respond(exchange, xml.toString());
+    }
+
+    private void respond(HttpExchange exchange, String body) throws IOException {
+        try {
+            Thread.sleep(latencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> query(URI uri) {
+        Map<String, String> params = new HashMap<>();
+        String raw = uri.getRawQuery();
+        if (raw == null) {
+            return params;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(pair.substring(0, eq), pair.substring(eq + 1));
+            }
+        }
+        return params;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8089;
+        long latencyMs = args.length > 1 ? Long.parseLong(args[1]) : 200;
+        StubBundesBankServer stub = new StubBundesBankServer(port, latencyMs);
+        stub.start();
+        System.out.printf("Stub Bundesbank API on port %d with %d ms latency%n", stub.getPort(), latencyMs);
+    }
+}
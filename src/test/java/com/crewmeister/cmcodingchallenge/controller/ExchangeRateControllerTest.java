@@ -1,14 +1,19 @@
 package com.crewmeister.cmcodingchallenge.controller;
 
 import com.crewmeister.cmcodingchallenge.dto.ConversionResult;
+import com.crewmeister.cmcodingchallenge.dto.ExchangeRatesHistoryColumnarResponse;
 import com.crewmeister.cmcodingchallenge.dto.ExchangeRatesHistoryResponse;
 import com.crewmeister.cmcodingchallenge.dto.ExchangeRatesOnDateResponse;
+import com.crewmeister.cmcodingchallenge.dto.RateLookupResponse;
 import com.crewmeister.cmcodingchallenge.entity.Currency;
+import com.crewmeister.cmcodingchallenge.service.EncodedResponseCache;
 import com.crewmeister.cmcodingchallenge.service.ExchangeRateService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.math.BigDecimal;
@@ -18,11 +23,14 @@ import java.util.Map;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(ExchangeRateController.class)
+@Import(EncodedResponseCache.class)
 class ExchangeRateControllerTest {
 
     @Autowired
@@ -54,7 +62,7 @@ class ExchangeRateControllerTest {
                 .page(0).size(20).totalElements(1).totalPages(1)
                 .build();
 
-        when(service.getExchangeRatesHistory(any(), any(), any(), anyInt(), anyInt()))
+        when(service.getExchangeRatesHistory(any(), any(), any(), anyInt(), anyInt(), any()))
                 .thenReturn(response);
 
         mockMvc.perform(get("/api/v1/exchange-rates/history")
@@ -64,6 +72,44 @@ class ExchangeRateControllerTest {
                 .andExpect(jsonPath("$.baseCurrency").value("EUR"));
     }
 
+    @Test
+    void getExchangeRatesHistory_columnarAccept_returnsColumnarBody() throws Exception {
+        ExchangeRatesHistoryColumnarResponse response = ExchangeRatesHistoryColumnarResponse.builder()
+                .baseCurrency("EUR")
+                .dates(List.of("2024-01-15", "2024-01-16"))
+                .currencies(List.of("GBP", "USD"))
+                .rates(new BigDecimal[][]{
+                        {new BigDecimal("0.8612"), new BigDecimal("1.0856")},
+                        {null, new BigDecimal("1.0870")}})
+                .page(0).size(20).totalElements(2).totalPages(1)
+                .build();
+
+        when(service.getExchangeRatesHistoryColumnar(any(), any(), any(), anyInt(), anyInt(), any()))
+                .thenReturn(response);
+
+        mockMvc.perform(get("/api/v1/exchange-rates/history")
+                        .param("from_date", "2024-01-15")
+                        .param("to_date", "2024-01-16")
+                        .accept(ExchangeRatesHistoryColumnarResponse.MEDIA_TYPE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(ExchangeRatesHistoryColumnarResponse.MEDIA_TYPE))
+                .andExpect(jsonPath("$.currencies[1]").value("USD"))
+                .andExpect(jsonPath("$.rates[1][0]").isEmpty())
+                .andExpect(jsonPath("$.rates[1][1]").value(1.0870));
+    }
+
+    @Test
+    void getExchangeRatesHistory_cborAccept_returnsCbor() throws Exception {
+        when(service.getExchangeRatesHistoryColumnar(any(), any(), any(), anyInt(), anyInt(), any()))
+                .thenReturn(ExchangeRatesHistoryColumnarResponse.builder().baseCurrency("EUR").build());
+
+        mockMvc.perform(get("/api/v1/exchange-rates/history")
+                        .param("from_date", "2024-01-15")
+                        .accept(ExchangeRatesHistoryColumnarResponse.CBOR_MEDIA_TYPE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(ExchangeRatesHistoryColumnarResponse.CBOR_MEDIA_TYPE));
+    }
+
     @Test
     void getExchangeRatesOnDate_returns200() throws Exception {
         ExchangeRatesOnDateResponse response = ExchangeRatesOnDateResponse.builder()
@@ -72,7 +118,7 @@ class ExchangeRateControllerTest {
                 .rates(Map.of("USD", new BigDecimal("1.0856")))
                 .build();
 
-        when(service.getExchangeRatesOnDate(any(), any())).thenReturn(response);
+        when(service.getExchangeRatesOnDate(any(), any(), any())).thenReturn(response);
 
         mockMvc.perform(get("/api/v1/exchange-rates/2024-01-15"))
                 .andExpect(status().isOk())
@@ -90,7 +136,7 @@ class ExchangeRateControllerTest {
                 .date(LocalDate.of(2024, 1, 15))
                 .build();
 
-        when(service.convertCurrency(any(), any(), any(), any())).thenReturn(result);
+        when(service.convertCurrency(any(), any(), any(), any(), eq("exact"))).thenReturn(result);
 
         mockMvc.perform(get("/api/v1/convert-currency")
                         .param("from_currency", "EUR")
@@ -108,4 +154,31 @@ class ExchangeRateControllerTest {
                         .param("on_date", "2099-01-01"))
                 .andExpect(status().isBadRequest());
     }
+
+    @Test
+    void lookupExchangeRates_returns200() throws Exception {
+        RateLookupResponse response = RateLookupResponse.builder()
+                .baseCurrency("USD")
+                .rates(Map.of("2024-01-15", Map.of("EUR", new BigDecimal("0.9211495947"))))
+                .missingDates(List.of(LocalDate.of(2024, 1, 13)))
+                .build();
+
+        when(service.lookupRates(eq("USD"), eq(List.of(LocalDate.of(2024, 1, 13), LocalDate.of(2024, 1, 15))),
+                eq(List.of("EUR")))).thenReturn(response);
+
+        mockMvc.perform(post("/api/v1/exchange-rates/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"dates\":[\"2024-01-13\",\"2024-01-15\"],\"base\":\"USD\",\"currencies\":[\"EUR\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rates['2024-01-15'].EUR").value(0.9211495947))
+                .andExpect(jsonPath("$.missingDates[0]").value("2024-01-13"));
+    }
+
+    @Test
+    void lookupExchangeRates_malformedBodyReturns400() throws Exception {
+        mockMvc.perform(post("/api/v1/exchange-rates/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"dates\":"))
+                .andExpect(status().isBadRequest());
+    }
 }
@@ -0,0 +1,102 @@
+package com.crewmeister.cmcodingchallenge.jfr;
+
+import com.crewmeister.cmcodingchallenge.dto.ExchangeRatesHistoryResponse;
+import com.crewmeister.cmcodingchallenge.service.BundesBankParser;
+import com.crewmeister.cmcodingchallenge.service.HistoryCache;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightRecorderEventsTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+    private static final LocalDate END = LocalDate.of(2024, 1, 31);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void bundledProfile_recordsParseAndCacheEvents() throws Exception {
+        HistoryCache cache = new HistoryCache(60, 100, "none");
+        HistoryCache.Key key = new HistoryCache.Key(START, END, 0, 20);
+        String xml = "<GenericData><DataSet><Series>" +
+                "<SeriesKey><Value id=\"BBK_STD_CURRENCY\" value=\"USD\"/></SeriesKey>" +
+                "<Obs><ObsDimension value=\"2024-01-15\"/><ObsValue value=\"1.0856\"/></Obs>" +
+                "<Obs><ObsDimension value=\"2024-01-16\"/></Obs>" +
+                "</Series></DataSet></GenericData>";
+
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording(profile())) {
+            recording.start();
+            new BundesBankParser().parseExchangeRates(xml);
+            cache.get(key);
+            cache.put(key, ExchangeRatesHistoryResponse.builder().build());
+            // A probe, not a request: records nothing
+            assertTrue(cache.contains(key));
+            cache.get(key);
+            cache.invalidateRange(END, END);
+            recording.stop();
+            Path file = directory.resolve("rates.jfr");
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        }
+
+        RecordedEvent parse = single(events, "com.crewmeister.cmcodingchallenge.RateParse");
+        assertEquals(1, parse.getInt("seriesCount"));
+        assertEquals(2, parse.getInt("observationCount"));
+        assertEquals(1, parse.getInt("rateCount"));
+        assertEquals(xml.length(), parse.getLong("inputSize"));
+
+        List<String> outcomes = events.stream()
+                .filter(e -> e.getEventType().getName().equals("com.crewmeister.cmcodingchallenge.HistoryCache"))
+                .map(e -> e.getString("outcome"))
+                .collect(Collectors.toList());
+        assertEquals(List.of(HistoryCacheEvent.MISS, HistoryCacheEvent.HIT, HistoryCacheEvent.INVALIDATE), outcomes);
+    }
+
+    @Test
+    void disabledEvents_areNotRecorded() throws Exception {
+        HistoryCache cache = new HistoryCache(60, 100, "none");
+
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable("com.crewmeister.cmcodingchallenge.RateParse");
+            recording.start();
+            cache.get(new HistoryCache.Key(START, END, 0, 20));
+            recording.stop();
+            Path file = directory.resolve("default.jfr");
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        }
+
+        assertTrue(events.stream().noneMatch(e -> e.getEventType().getName().startsWith("com.crewmeister")));
+    }
+
+    private static Configuration profile() throws Exception {
+        try (Reader reader = new InputStreamReader(
+                FlightRecorderEventsTest.class.getResourceAsStream("/jfr/rates.jfc"), StandardCharsets.UTF_8)) {
+            return Configuration.create(reader);
+        }
+    }
+
+    private static RecordedEvent single(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> matching = events.stream()
+                .filter(e -> e.getEventType().getName().equals(name))
+                .collect(Collectors.toList());
+        assertEquals(1, matching.size(), name);
+        return matching.get(0);
+    }
+}
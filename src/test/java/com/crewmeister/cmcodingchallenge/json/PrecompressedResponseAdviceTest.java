@@ -0,0 +1,50 @@
+package com.crewmeister.cmcodingchallenge.json;
+
+import com.crewmeister.cmcodingchallenge.dto.ExchangeRatesHistoryResponse;
+import com.crewmeister.cmcodingchallenge.dto.ExchangeRatesOnDateResponse;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrecompressedResponseAdviceTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 3);
+
+    @Test
+    void keyFor_onlyPastDaysWithRates() {
+        assertNotNull(PrecompressedResponseAdvice.keyFor(onDate(TODAY.minusDays(1), Map.of("USD", BigDecimal.ONE)), "", TODAY));
+        assertNull(PrecompressedResponseAdvice.keyFor(onDate(TODAY, Map.of("USD", BigDecimal.ONE)), "", TODAY));
+        assertNull(PrecompressedResponseAdvice.keyFor(onDate(TODAY.minusDays(1), Map.of()), "", TODAY));
+    }
+
+    @Test
+    void keyFor_historyEndingBeforeToday() {
+        ExchangeRatesHistoryResponse past = ExchangeRatesHistoryResponse.builder()
+                .startDate(LocalDate.of(2024, 1, 1)).endDate(LocalDate.of(2024, 3, 31))
+                .page(1).size(100).totalElements(60).build();
+        ExchangeRatesHistoryResponse open = ExchangeRatesHistoryResponse.builder()
+                .startDate(LocalDate.of(2024, 1, 1)).endDate(TODAY)
+                .page(0).size(100).totalElements(100).build();
+
+        assertNotNull(PrecompressedResponseAdvice.keyFor(past, "", TODAY));
+        assertNull(PrecompressedResponseAdvice.keyFor(open, "", TODAY));
+    }
+
+    @Test
+    void acceptsGzip_honoursQualityAndWildcard() {
+        assertTrue(PrecompressedResponseAdvice.acceptsGzip(List.of("gzip, deflate, br")));
+        assertTrue(PrecompressedResponseAdvice.acceptsGzip(List.of("br;q=1.0, *;q=0.5")));
+        assertFalse(PrecompressedResponseAdvice.acceptsGzip(List.of("gzip;q=0, br")));
+        assertFalse(PrecompressedResponseAdvice.acceptsGzip(List.of("identity")));
+        assertFalse(PrecompressedResponseAdvice.acceptsGzip(null));
+    }
+
+    private static ExchangeRatesOnDateResponse onDate(LocalDate date, Map<String, BigDecimal> rates) {
+        return ExchangeRatesOnDateResponse.builder().baseCurrency("EUR").date(date).rates(rates).build();
+    }
+}
@@ -0,0 +1,55 @@
+package com.crewmeister.cmcodingchallenge.json;
+
+import com.crewmeister.cmcodingchallenge.dto.ExchangeRatesHistoryResponse;
+import com.crewmeister.cmcodingchallenge.dto.ExchangeRatesOnDateResponse;
+import com.crewmeister.cmcodingchallenge.util.SortedArrayMap;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateMapSerializerTest {
+
+    private final ObjectMapper tuned = JsonMapper.builder().addModule(new JavaTimeModule()).build();
+    private final ObjectMapper generic = JsonMapper.builder().addModule(new JavaTimeModule())
+            .disable(MapperFeature.USE_ANNOTATIONS).build();
+
+    @Test
+    void serialize_matchesJacksonDefaultForVariedDecimals() throws Exception {
+        String[] values = {"1.0865", "0.00", "0", "157.42000", "-0.5", "0.000001", "0.0000001",
+                "1E+3", "123456789012.345", "1234567890123.4567", "99999.99999", "7.000000000000001"};
+        Map<String, BigDecimal> rates = new TreeMap<>();
+        for (int i = 0; i < values.length; i++) {
+            rates.put("C" + (char) ('A' + i) + "X", new BigDecimal(values[i]));
+        }
+        rates.put("NUL", null);
+        ExchangeRatesOnDateResponse response = ExchangeRatesOnDateResponse.builder()
+                .baseCurrency("EUR").date(LocalDate.of(2024, 3, 1)).rates(rates).build();
+
+        assertEquals(generic.writeValueAsString(response), tuned.writeValueAsString(response));
+    }
+
+    @Test
+    void serialize_walksSortedArrayMapsInOrder() throws Exception {
+        Map<String, BigDecimal> day = SortedArrayMap.ofSorted(new String[]{"GBP", "USD"},
+                new Object[]{new BigDecimal("0.8561"), new BigDecimal("1.0865")}, 2);
+        ExchangeRatesHistoryResponse response = ExchangeRatesHistoryResponse.builder()
+                .baseCurrency("EUR").startDate(LocalDate.of(2024, 3, 1)).endDate(LocalDate.of(2024, 3, 1))
+                .rates(SortedArrayMap.ofSorted(new String[]{"2024-03-01"}, new Object[]{day}, 1))
+                .page(0).size(1).totalElements(1).totalPages(1).build();
+
+        String json = tuned.writeValueAsString(response);
+
+        assertEquals(generic.writeValueAsString(response), json);
+        assertTrue(json.contains("{\"2024-03-01\":{\"GBP\":0.8561,\"USD\":1.0865}}"));
+    }
+}
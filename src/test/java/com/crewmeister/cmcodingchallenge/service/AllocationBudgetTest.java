@@ -0,0 +1,180 @@
+package com.crewmeister.cmcodingchallenge.service;
+
+import com.crewmeister.cmcodingchallenge.dto.RateRow;
+import com.crewmeister.cmcodingchallenge.entity.Currency;
+import com.crewmeister.cmcodingchallenge.repository.ClusterLockRepository;
+import com.crewmeister.cmcodingchallenge.repository.CurrencyRepository;
+import com.crewmeister.cmcodingchallenge.repository.DatasetVersionRepository;
+import com.crewmeister.cmcodingchallenge.repository.SyncRequestRepository;
+import com.crewmeister.cmcodingchallenge.store.RateDateIndex;
+import com.crewmeister.cmcodingchallenge.store.RateSnapshotStore;
+import com.crewmeister.cmcodingchallenge.store.SegmentRateStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Fails when a warm request path allocates more than its budget in
+ * {@code allocation-budgets.properties}. Bytes are read from the calling thread's
+ * allocation counter around many calls, after enough calls for the JIT to compile the
+ * path. Collaborators are real objects over a segment store and snapshot, since mocks
+ * allocate on every invocation.
+ */
+@ExtendWith(MockitoExtension.class)
+class AllocationBudgetTest {
+
+    private static final String[] CURRENCIES = {"AUD", "BGN", "BRL", "CAD", "CHF", "CNY", "CZK", "DKK", "GBP",
+            "HKD", "HUF", "IDR", "ILS", "INR", "ISK", "JPY", "KRW", "MXN", "MYR", "NOK", "NZD", "PHP", "PLN",
+            "RON", "SEK", "SGD", "THB", "TRY", "USD", "ZAR"};
+    private static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+    private static final LocalDate LAST_DAY = LocalDate.of(2024, 3, 29);
+    private static final LocalDate DAY = LocalDate.of(2024, 2, 14);
+    private static final int PAGE_SIZE = 20;
+    private static final int WARMUP_CALLS = 20_000;
+    private static final int MEASURED_CALLS = 10_000;
+
+    @Mock private BundesBankClient client;
+    @Mock private CurrencyRepository currencyRepository;
+    @Mock private ApplicationEventPublisher eventPublisher;
+    @Mock private PlatformTransactionManager transactionManager;
+    @Mock private ClusterLockRepository lockRepository;
+    @Mock private DatasetVersionRepository versionRepository;
+    @Mock private SyncRequestRepository syncRequestRepository;
+
+    @TempDir
+    Path directory;
+
+    private ExchangeRateService service;
+    private Properties budgets;
+    /** Keeps results reachable so the JIT cannot drop the measured work. */
+    private volatile Object sink;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        com.sun.management.ThreadMXBean threads = threads();
+        assumeTrue(threads != null && threads.isThreadAllocatedMemorySupported(),
+                "Thread allocation counters are not available on this JVM");
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        budgets = new Properties();
+        try (InputStream in = getClass().getResourceAsStream("/allocation-budgets.properties")) {
+            budgets.load(in);
+        }
+
+        SegmentRateStore rateStore = new SegmentRateStore(directory.resolve("segments").toString(), 16);
+        rateStore.open();
+        rateStore.insertMissing(rows());
+        RateSnapshotStore snapshotStore = new RateSnapshotStore(rateStore, true,
+                directory.resolve("rates.snapshot").toString());
+        snapshotStore.open();
+        snapshotStore.writeIfDirty();
+
+        List<Currency> currencies = new ArrayList<>();
+        currencies.add(new Currency("EUR", "Euro"));
+        for (String code : CURRENCIES) {
+            currencies.add(new Currency(code, code));
+        }
+        when(currencyRepository.findAll()).thenReturn(currencies);
+
+        HistoryCache historyCache = new HistoryCache(60, 100, "none");
+        ClusterCoordinator clusterCoordinator = new ClusterCoordinator(lockRepository, versionRepository,
+                syncRequestRepository, eventPublisher, false, "node", 30, 5000, mock(ScheduledExecutorService.class));
+        service = new ExchangeRateService(client, new BundesBankParser(), currencyRepository, rateStore,
+                new ExchangeRateMapper(ForkJoinPool.commonPool()), eventPublisher, snapshotStore, clusterCoordinator,
+                historyCache, new RateDateIndex(rateStore, 7), new HistoryPrefetcher(Runnable::run, historyCache, false),
+                new RebasedRateTables(5000, "none"), transactionManager,
+                new RateWriteBehind(rateStore, eventPublisher, transactionManager, false, 0, 1, 3, 200, mock(ScheduledExecutorService.class)),
+                LocalDate.of(1999, 1, 4));
+        service.init();
+    }
+
+    @Test
+    void convertEurToUsd() {
+        assertWithinBudget("convert.eur-usd",
+                () -> service.convertCurrency("EUR", "USD", BigDecimal.TEN, DAY));
+    }
+
+    @Test
+    void convertCrossRate() {
+        assertWithinBudget("convert.cross",
+                () -> service.convertCurrency("GBP", "JPY", BigDecimal.TEN, DAY));
+    }
+
+    @Test
+    void ratesOnDate() {
+        assertWithinBudget("on-date.eur",
+                () -> service.getExchangeRatesOnDate("EUR", DAY, null));
+    }
+
+    @Test
+    void cachedHistoryPage() {
+        assertWithinBudget("history.eur",
+                () -> service.getExchangeRatesHistory("EUR", FIRST_DAY, LAST_DAY, 1, PAGE_SIZE, null));
+    }
+
+    @Test
+    void cachedHistoryPageRebased() {
+        assertWithinBudget("history.usd",
+                () -> service.getExchangeRatesHistory("USD", FIRST_DAY, LAST_DAY, 1, PAGE_SIZE, null));
+    }
+
+    private void assertWithinBudget(String name, Supplier<?> call) {
+        long budget = Long.getLong("allocation.budget." + name, Long.parseLong(budgets.getProperty(name)));
+        com.sun.management.ThreadMXBean threads = threads();
+        long thread = Thread.currentThread().getId();
+
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            sink = call.get();
+        }
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < MEASURED_CALLS; i++) {
+            sink = call.get();
+        }
+        long perCall = (threads.getThreadAllocatedBytes(thread) - before) / MEASURED_CALLS;
+
+        assertTrue(perCall <= budget,
+                () -> name + " allocated " + perCall + " bytes per call, budget is " + budget);
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        return threads instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean) threads : null;
+    }
+
+    private static List<RateRow> rows() {
+        List<RateRow> rows = new ArrayList<>();
+        for (LocalDate day = FIRST_DAY; !day.isAfter(LAST_DAY); day = day.plusDays(1)) {
+            if (day.getDayOfWeek() == DayOfWeek.SATURDAY || day.getDayOfWeek() == DayOfWeek.SUNDAY) {
+                continue;
+            }
+            for (int i = 0; i < CURRENCIES.length; i++) {
+                rows.add(new RateRow(day, CURRENCIES[i], BigDecimal.valueOf(1_000_000L + i * 7919L + day.getDayOfYear(), 6)));
+            }
+        }
+        return rows;
+    }
+}
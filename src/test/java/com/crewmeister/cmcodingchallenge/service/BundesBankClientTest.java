@@ -0,0 +1,95 @@
+package com.crewmeister.cmcodingchallenge.service;
+
+import com.crewmeister.cmcodingchallenge.admission.UpstreamBulkhead;
+import com.crewmeister.cmcodingchallenge.store.RawResponseArchive;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BundesBankClientTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+    private static final LocalDate END = LocalDate.of(2024, 1, 31);
+
+    @TempDir
+    Path directory;
+
+    private HttpServer server;
+    private volatile String body = "<GenericData v=\"1\"/>";
+    private volatile String etag = "\"v1\"";
+    private final List<String> ifNoneMatch = new ArrayList<>();
+    private BundesBankClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(0), 0);
+        server.createContext("/data/", this::data);
+        server.start();
+        client = new BundesBankClient(WebClient.builder(), "http://localhost:" + server.getAddress().getPort(),
+                new RawResponseArchive(true, directory.toString(), 0), new UpstreamBulkhead(false, 1, 0, 1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void notModified_isOnlySkippedOnceMarkedIngested() {
+        assertEquals(Optional.of(body), client.fetchExchangeRatesHistoryIfModified("EUR", START, END));
+
+        // 304, but the archived body was never stored: it has to be handed out again
+        assertEquals(Optional.of(body), client.fetchExchangeRatesHistoryIfModified("EUR", START, END));
+        assertEquals("\"v1\"", ifNoneMatch.get(1));
+
+        client.markHistoryIngested("EUR", START, END, body);
+        assertTrue(client.fetchExchangeRatesHistoryIfModified("EUR", START, END).isEmpty());
+    }
+
+    @Test
+    void changedBody_isReturnedEvenAfterEarlierIngest() {
+        client.fetchExchangeRatesHistoryIfModified("EUR", START, END);
+        client.markHistoryIngested("EUR", START, END, body);
+
+        body = "<GenericData v=\"2\"/>";
+        etag = "\"v2\"";
+
+        assertEquals(Optional.of(body), client.fetchExchangeRatesHistoryIfModified("EUR", START, END));
+        assertEquals(Optional.of(body), client.fetchExchangeRatesHistoryIfModified("EUR", START, END));
+    }
+
+    private void data(HttpExchange exchange) throws IOException {
+        String requested = exchange.getRequestHeaders().getFirst("If-None-Match");
+        synchronized (ifNoneMatch) {
+            ifNoneMatch.add(requested);
+        }
+        if (etag.equals(requested)) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("ETag", etag);
+        exchange.getResponseHeaders().add("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -8,6 +8,7 @@ import org.junit.jupiter.api.Test;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -62,6 +63,31 @@ class BundesBankParserTest {
         assertEquals(new BigDecimal("1.0856"), rate.getRate());
     }
 
+    @Test
+    void parseExchangeRates_manySeries_parsesInParallelAndKeepsSeriesOrder() {
+        StringBuilder xml = new StringBuilder("<GenericData><DataSet>");
+        for (String currency : List.of("USD", "GBP", "JPY")) {
+            xml.append("<Series><SeriesKey><Value id=\"BBK_STD_CURRENCY\" value=\"")
+                    .append(currency).append("\"/></SeriesKey>");
+            LocalDate day = LocalDate.of(2020, 1, 1);
+            for (int i = 0; i < 1000; i++, day = day.plusDays(1)) {
+                xml.append("<Obs><ObsDimension value=\"").append(day)
+                        .append("\"/><ObsValue value=\"1.").append(i).append("\"/></Obs>");
+            }
+            xml.append("</Series>");
+        }
+        xml.append("</DataSet></GenericData>");
+
+        List<ExchangeRate> rates = new BundesBankParser(new ForkJoinPool(4))
+                .parseExchangeRates(xml.toString());
+
+        assertEquals(3000, rates.size());
+        assertEquals("USD", rates.get(0).getTargetCurrency());
+        assertEquals("GBP", rates.get(1000).getTargetCurrency());
+        assertEquals("JPY", rates.get(2999).getTargetCurrency());
+        assertEquals(LocalDate.of(2020, 1, 1).plusDays(999), rates.get(2999).getDate());
+    }
+
     @Test
     void parseExchangeRates_emptyDataSet_returnsEmptyList() {
         String xml = "<GenericData><DataSet/></GenericData>";
@@ -0,0 +1,106 @@
+package com.crewmeister.cmcodingchallenge.service;
+
+import com.crewmeister.cmcodingchallenge.entity.CacheInvalidation;
+import com.crewmeister.cmcodingchallenge.repository.CacheInvalidationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CacheInvalidationBusTest {
+
+    private static final LocalDate JANUARY = LocalDate.of(2024, 1, 1);
+    private static final LocalDate FEBRUARY = LocalDate.of(2024, 2, 1);
+
+    @Mock private CacheInvalidationRepository repository;
+    @Mock private HistoryCache historyCache;
+    @Mock private EncodedResponseCache encodedResponseCache;
+    @Mock private RebasedRateTables rebasedRateTables;
+    @Mock private ClusterCoordinator clusterCoordinator;
+
+    private CacheInvalidationBus bus;
+
+    @BeforeEach
+    void setUp() {
+        when(clusterCoordinator.getNodeId()).thenReturn("node-a");
+        bus = new CacheInvalidationBus(repository, historyCache, encodedResponseCache, rebasedRateTables,
+                clusterCoordinator, "db", 60, 60_000);
+        bus.init();
+    }
+
+    @Test
+    void poll_entryCommittedAfterAHigherId_isStillApplied() {
+        CacheInvalidation later = entry(8, JANUARY, "node-b");
+        CacheInvalidation slowCommit = entry(7, FEBRUARY, "node-c");
+        when(repository.findByCreatedAtGreaterThanEqualOrderByIdAsc(any()))
+                .thenReturn(List.of(later), List.of(slowCommit, later));
+
+        bus.poll();
+        bus.poll();
+
+        verify(historyCache).invalidateRange(JANUARY, JANUARY.plusDays(4));
+        verify(historyCache).invalidateRange(FEBRUARY, FEBRUARY.plusDays(4));
+        verify(encodedResponseCache).invalidateRange(FEBRUARY, FEBRUARY.plusDays(4));
+        verify(rebasedRateTables).invalidateRange(FEBRUARY, FEBRUARY.plusDays(4));
+    }
+
+    @Test
+    void poll_entriesSeenAgainInTheOverlap_areAppliedOnce() {
+        CacheInvalidation entry = entry(3, JANUARY, "node-b");
+        when(repository.findByCreatedAtGreaterThanEqualOrderByIdAsc(any()))
+                .thenReturn(List.of(entry), List.of(entry), List.of(entry));
+
+        bus.poll();
+        bus.poll();
+        bus.poll();
+
+        verify(historyCache, times(1)).invalidateRange(any(), any());
+    }
+
+    @Test
+    void poll_ownEntries_areSkipped() {
+        when(repository.findByCreatedAtGreaterThanEqualOrderByIdAsc(any()))
+                .thenReturn(List.of(entry(5, JANUARY, "node-a")));
+
+        bus.poll();
+
+        verifyNoInteractions(historyCache, encodedResponseCache, rebasedRateTables);
+    }
+
+    @Test
+    void poll_windowStartsOverlapBeforeThePreviousPoll() {
+        when(repository.findByCreatedAtGreaterThanEqualOrderByIdAsc(any())).thenReturn(List.of());
+        Instant before = Instant.now();
+
+        bus.poll();
+
+        verify(repository).findByCreatedAtGreaterThanEqualOrderByIdAsc(argThat(since ->
+                !since.isAfter(before.minusSeconds(59)) && since.isAfter(before.minusSeconds(61))));
+    }
+
+    @Test
+    void poll_disabled_doesNotQuery() {
+        CacheInvalidationBus disabled = new CacheInvalidationBus(repository, historyCache, encodedResponseCache,
+                rebasedRateTables, clusterCoordinator, "none", 60, 60_000);
+        disabled.init();
+
+        disabled.poll();
+
+        verifyNoInteractions(repository);
+    }
+
+    private static CacheInvalidation entry(long id, LocalDate from, String origin) {
+        CacheInvalidation entry = new CacheInvalidation(from, from.plusDays(4), origin, Instant.now());
+        entry.setId(id);
+        return entry;
+    }
+}
@@ -0,0 +1,182 @@
+package com.crewmeister.cmcodingchallenge.service;
+
+import com.crewmeister.cmcodingchallenge.dto.RateRow;
+import com.crewmeister.cmcodingchallenge.entity.DatasetVersion;
+import com.crewmeister.cmcodingchallenge.event.DatasetChangedEvent;
+import com.crewmeister.cmcodingchallenge.event.RatesIngestedEvent;
+import com.crewmeister.cmcodingchallenge.repository.ClusterLockRepository;
+import com.crewmeister.cmcodingchallenge.repository.DatasetVersionRepository;
+import com.crewmeister.cmcodingchallenge.repository.SyncRequestRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ClusterCoordinatorTest {
+
+    @Mock private ClusterLockRepository lockRepository;
+    @Mock private DatasetVersionRepository versionRepository;
+    @Mock private SyncRequestRepository syncRequestRepository;
+    @Mock private ApplicationEventPublisher eventPublisher;
+    @Mock private ScheduledExecutorService heartbeatScheduler;
+
+    @Test
+    void start_schedulesHeartbeatOnItsOwnScheduler() {
+        coordinator(30).start();
+
+        verify(heartbeatScheduler).scheduleWithFixedDelay(any(), eq(0L), eq(5000L), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void heartbeat_acquiredLease_makesNodeLeader() {
+        ClusterCoordinator coordinator = coordinator(30);
+        assertTrue(coordinator.isFollower());
+        when(lockRepository.tryAcquire(ClusterCoordinator.LEADER_LOCK, "node-a", 30)).thenReturn(1);
+
+        coordinator.heartbeat();
+
+        assertTrue(coordinator.isLeader());
+        assertFalse(coordinator.isFollower());
+    }
+
+    @Test
+    void heartbeat_lockHeldElsewhere_staysFollower() {
+        ClusterCoordinator coordinator = coordinator(30);
+        when(lockRepository.tryAcquire(any(), any(), anyLong())).thenReturn(0);
+        when(lockRepository.existsById(ClusterCoordinator.LEADER_LOCK)).thenReturn(false);
+        when(lockRepository.insert(any(), any(), anyLong())).thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        coordinator.heartbeat();
+
+        assertTrue(coordinator.isFollower());
+    }
+
+    @Test
+    void isLeader_withoutRenewalWithinLease_stepsDownLocally() {
+        // A zero lease lapses right away, as a longer one would with the heartbeat stuck
+        ClusterCoordinator coordinator = coordinator(0);
+        when(lockRepository.tryAcquire(any(), any(), anyLong())).thenReturn(1);
+
+        coordinator.heartbeat();
+
+        assertFalse(coordinator.isLeader());
+        assertTrue(coordinator.isFollower());
+    }
+
+    @Test
+    void heartbeat_renewalFailure_stepsDown() {
+        ClusterCoordinator coordinator = coordinator(30);
+        when(lockRepository.tryAcquire(any(), any(), anyLong()))
+                .thenReturn(1)
+                .thenThrow(new IllegalStateException("connection reset"));
+
+        coordinator.heartbeat();
+        coordinator.heartbeat();
+
+        assertTrue(coordinator.isFollower());
+    }
+
+    @Test
+    void pollVersion_ownBumps_areNotPublished() {
+        ClusterCoordinator coordinator = coordinator(30);
+        when(versionRepository.findById(DatasetVersion.SINGLETON_ID))
+                .thenReturn(version(4), version(6));
+        when(versionRepository.increment(eq(DatasetVersion.SINGLETON_ID), any())).thenReturn(1);
+        when(versionRepository.findVersion(DatasetVersion.SINGLETON_ID)).thenReturn(Optional.of(5L), Optional.of(6L));
+
+        coordinator.pollVersion();
+        coordinator.onRatesIngested(ingested());
+        coordinator.onRatesIngested(ingested());
+        coordinator.pollVersion();
+
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void pollVersion_bumpByAnotherNode_isPublished() {
+        ClusterCoordinator coordinator = coordinator(30);
+        when(versionRepository.findById(DatasetVersion.SINGLETON_ID))
+                .thenReturn(version(4), version(6));
+        when(versionRepository.increment(eq(DatasetVersion.SINGLETON_ID), any())).thenReturn(1);
+        when(versionRepository.findVersion(DatasetVersion.SINGLETON_ID)).thenReturn(Optional.of(5L));
+
+        coordinator.pollVersion();
+        coordinator.onRatesIngested(ingested());
+        coordinator.pollVersion();
+
+        verify(eventPublisher).publishEvent(new DatasetChangedEvent(6));
+    }
+
+    @Test
+    void onRatesIngested_firstIngest_createsCounter() {
+        ClusterCoordinator coordinator = coordinator(30);
+        when(versionRepository.increment(eq(DatasetVersion.SINGLETON_ID), any())).thenReturn(0);
+        when(versionRepository.findById(DatasetVersion.SINGLETON_ID)).thenReturn(Optional.empty(), version(1));
+
+        coordinator.pollVersion();
+        coordinator.onRatesIngested(ingested());
+        coordinator.pollVersion();
+
+        verify(versionRepository).save(any(DatasetVersion.class));
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void requestSync_pendingRange_isNotQueuedTwice() {
+        ClusterCoordinator coordinator = coordinator(30);
+        when(syncRequestRepository.existsByStartDateAndEndDate(any(), any())).thenReturn(true);
+
+        coordinator.requestSync(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 5));
+
+        verify(syncRequestRepository, never()).save(any());
+    }
+
+    @Test
+    void disabled_isAlwaysLeaderAndNeverTouchesTheDatabase() {
+        ClusterCoordinator coordinator = new ClusterCoordinator(lockRepository, versionRepository, syncRequestRepository,
+                eventPublisher, false, "node-a", 30, 5000, heartbeatScheduler);
+
+        coordinator.start();
+        coordinator.heartbeat();
+        coordinator.pollVersion();
+        coordinator.onRatesIngested(ingested());
+
+        assertTrue(coordinator.isLeader());
+        assertFalse(coordinator.isFollower());
+        verifyNoInteractions(lockRepository, versionRepository, heartbeatScheduler);
+    }
+
+    @Test
+    void getSyncRetryAfterSeconds_coversTwoHeartbeats() {
+        assertEquals(10, coordinator(30).getSyncRetryAfterSeconds());
+    }
+
+    private ClusterCoordinator coordinator(long leaseSeconds) {
+        return new ClusterCoordinator(lockRepository, versionRepository, syncRequestRepository,
+                eventPublisher, true, "node-a", leaseSeconds, 5000, heartbeatScheduler);
+    }
+
+    private static RatesIngestedEvent ingested() {
+        return new RatesIngestedEvent(List.of(new RateRow(LocalDate.of(2024, 1, 15), "USD", new BigDecimal("1.085600"))));
+    }
+
+    private static Optional<DatasetVersion> version(long version) {
+        return Optional.of(new DatasetVersion(DatasetVersion.SINGLETON_ID, version, Instant.now()));
+    }
+}
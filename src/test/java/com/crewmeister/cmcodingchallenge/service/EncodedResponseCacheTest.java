@@ -0,0 +1,97 @@
+package com.crewmeister.cmcodingchallenge.service;
+
+import com.crewmeister.cmcodingchallenge.dto.RateRow;
+import com.crewmeister.cmcodingchallenge.event.RatesIngestedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EncodedResponseCacheTest {
+
+    private static final LocalDate JAN_15 = LocalDate.of(2024, 1, 15);
+
+    @Test
+    void get_compressesOnceAboveThreshold() throws Exception {
+        EncodedResponseCache cache = new EncodedResponseCache(1 << 20, 64, 60, "none");
+        byte[] json = ("{\"rates\":{" + "\"USD\":1.0865,".repeat(50) + "\"ZAR\":20.1}}").getBytes(StandardCharsets.UTF_8);
+        EncodedResponseCache.Key key = new EncodedResponseCache.Key("on-date", "EUR|", JAN_15, JAN_15, 0, 0);
+        AtomicInteger serializations = new AtomicInteger();
+
+        EncodedResponseCache.Entry first = cache.get(key, () -> {
+            serializations.incrementAndGet();
+            return json;
+        });
+        EncodedResponseCache.Entry second = cache.get(key, () -> {
+            serializations.incrementAndGet();
+            return json;
+        });
+
+        assertSame(first, second);
+        assertEquals(1, serializations.get());
+        assertTrue(first.getGzip().length < json.length);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(first.getGzip()))) {
+            assertArrayEquals(json, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void get_keepsSmallBodiesUncompressed() {
+        EncodedResponseCache cache = new EncodedResponseCache(1 << 20, 2048, 60, "none");
+        byte[] json = "{\"rates\":{}}".getBytes(StandardCharsets.UTF_8);
+
+        EncodedResponseCache.Entry entry = cache.get(
+                new EncodedResponseCache.Key("on-date", "EUR|", JAN_15, JAN_15, 0, 0), () -> json);
+
+        assertArrayEquals(json, entry.getIdentity());
+        assertNull(entry.getGzip());
+    }
+
+    @Test
+    void get_invalidatedWhileTheBodyWasBuilt_isServedButNotKept() {
+        EncodedResponseCache cache = new EncodedResponseCache(1 << 20, 2048, 60, "none");
+        EncodedResponseCache.Key key = new EncodedResponseCache.Key("on-date", "EUR|", JAN_15, JAN_15, 0, 0);
+        AtomicInteger serializations = new AtomicInteger();
+        long generation = cache.generation();
+
+        // Rates for the day committed after the handler read them
+        cache.invalidateRange(JAN_15, JAN_15);
+        EncodedResponseCache.Entry stale = cache.get(key, generation, () -> {
+            serializations.incrementAndGet();
+            return new byte[]{'1'};
+        });
+        EncodedResponseCache.Entry fresh = cache.get(key, () -> {
+            serializations.incrementAndGet();
+            return new byte[]{'2'};
+        });
+
+        assertArrayEquals(new byte[]{'1'}, stale.getIdentity());
+        assertArrayEquals(new byte[]{'2'}, fresh.getIdentity());
+        assertEquals(2, serializations.get());
+        assertSame(fresh, cache.get(key, () -> new byte[]{'3'}));
+    }
+
+    @Test
+    void onRatesIngested_dropsOnlyOverlappingEntries() {
+        EncodedResponseCache cache = new EncodedResponseCache(1 << 20, 2048, 60, "none");
+        EncodedResponseCache.Key january = new EncodedResponseCache.Key(
+                "history", "EUR|", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31), 0, 20);
+        EncodedResponseCache.Key march = new EncodedResponseCache.Key(
+                "history", "EUR|", LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31), 0, 20);
+        EncodedResponseCache.Entry januaryEntry = cache.get(january, () -> new byte[]{'1'});
+        EncodedResponseCache.Entry marchEntry = cache.get(march, () -> new byte[]{'3'});
+
+        cache.onRatesIngested(new RatesIngestedEvent(List.of(
+                new RateRow(JAN_15, "USD", BigDecimal.ONE))));
+
+        assertNotSame(januaryEntry, cache.get(january, () -> new byte[]{'1'}));
+        assertSame(marchEntry, cache.get(march, () -> new byte[]{'3'}));
+    }
+}
@@ -1,25 +1,42 @@
 package com.crewmeister.cmcodingchallenge.service;
 
 import com.crewmeister.cmcodingchallenge.dto.ConversionResult;
+import com.crewmeister.cmcodingchallenge.dto.ExchangeRatesOnDateResponse;
+import com.crewmeister.cmcodingchallenge.dto.RateLookupResponse;
+import com.crewmeister.cmcodingchallenge.dto.RateRow;
 import com.crewmeister.cmcodingchallenge.entity.Currency;
 import com.crewmeister.cmcodingchallenge.entity.ExchangeRate;
 import com.crewmeister.cmcodingchallenge.exception.ExchangeRateNotFoundException;
 import com.crewmeister.cmcodingchallenge.exception.InvalidCurrencyException;
+import com.crewmeister.cmcodingchallenge.exception.InvalidRequestException;
+import com.crewmeister.cmcodingchallenge.exception.ServiceOverloadedException;
 import com.crewmeister.cmcodingchallenge.repository.CurrencyRepository;
-import com.crewmeister.cmcodingchallenge.repository.ExchangeRateRepository;
+import com.crewmeister.cmcodingchallenge.store.RateDateIndex;
+import com.crewmeister.cmcodingchallenge.store.RateSnapshotStore;
+import com.crewmeister.cmcodingchallenge.store.RateStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -28,9 +45,15 @@ class ExchangeRateServiceTest {
     @Mock private BundesBankClient client;
     @Mock private BundesBankParser parser;
     @Mock private CurrencyRepository currencyRepository;
-    @Mock private ExchangeRateRepository exchangeRateRepository;
+    @Mock private RateStore rateStore;
     @Mock private ExchangeRateMapper mapper;
+    @Mock private ApplicationEventPublisher eventPublisher;
+    @Mock private RateSnapshotStore snapshotStore;
+    @Mock private ClusterCoordinator clusterCoordinator;
+    @Mock private PlatformTransactionManager transactionManager;
 
+    private RateDateIndex rateDateIndex;
+    private RateWriteBehind writeBehind;
     private ExchangeRateService service;
 
     @BeforeEach
@@ -40,7 +63,11 @@ class ExchangeRateServiceTest {
                 new Currency("GBP", "British Pound"),
                 new Currency("EUR", "Euro")
         ));
-        service = new ExchangeRateService(client, parser, currencyRepository, exchangeRateRepository, mapper);
+        rateDateIndex = new RateDateIndex(rateStore, 7);
+        HistoryCache historyCache = new HistoryCache(60, 100, "none");
+        HistoryPrefetcher prefetcher = new HistoryPrefetcher(Runnable::run, historyCache, false);
+        writeBehind = new RateWriteBehind(rateStore, eventPublisher, transactionManager, true, 1000, 100, 3, 200, mock(ScheduledExecutorService.class));
+        service = new ExchangeRateService(client, parser, currencyRepository, rateStore, mapper, eventPublisher, snapshotStore, clusterCoordinator, historyCache, rateDateIndex, prefetcher, new RebasedRateTables(100, "none"), transactionManager, writeBehind, LocalDate.of(1999, 1, 4));
         service.init();
     }
 
@@ -65,8 +92,8 @@ class ExchangeRateServiceTest {
     void getExchangeRate_fromDb_returnsRate() {
         LocalDate date = LocalDate.of(2024, 1, 15);
         ExchangeRate expected = createRate("USD", "1.0856", date);
-        when(exchangeRateRepository.findByBaseCurrencyAndTargetCurrencyAndDate("EUR", "USD", date))
-                .thenReturn(Optional.of(expected));
+        when(rateStore.findRate("USD", date))
+                .thenReturn(Optional.of(expected.getRate()));
 
         ExchangeRate result = service.getExchangeRate("USD", date);
 
@@ -74,12 +101,24 @@ class ExchangeRateServiceTest {
         verify(client, never()).fetchExchangeRate(any(), any());
     }
 
+    @Test
+    void getExchangeRate_fromSnapshot_skipsDbAndApi() {
+        LocalDate date = LocalDate.of(2024, 1, 15);
+        when(snapshotStore.findRate("USD", date)).thenReturn(Optional.of(new BigDecimal("1.085600")));
+
+        ExchangeRate result = service.getExchangeRate("USD", date);
+
+        assertEquals(new BigDecimal("1.085600"), result.getRate());
+        verify(rateStore, never()).findRate(any(), any());
+        verify(client, never()).fetchExchangeRate(any(), any());
+    }
+
     @Test
     void getExchangeRate_fromApi_returnsAndSaves() {
         LocalDate date = LocalDate.of(2024, 1, 15);
         ExchangeRate expected = createRate("USD", "1.0856", date);
 
-        when(exchangeRateRepository.findByBaseCurrencyAndTargetCurrencyAndDate("EUR", "USD", date))
+        when(rateStore.findRate("USD", date))
                 .thenReturn(Optional.empty());
         when(client.fetchExchangeRate("USD", date)).thenReturn("<xml/>");
         when(parser.parseExchangeRates("<xml/>")).thenReturn(List.of(expected));
@@ -87,12 +126,29 @@ class ExchangeRateServiceTest {
         ExchangeRate result = service.getExchangeRate("USD", date);
 
         assertEquals(expected, result);
+        verify(rateStore, never()).insertMissing(any());
+        writeBehind.flush();
+        verify(rateStore).insertMissing(List.of(RateRow.from(expected)));
+    }
+
+    @Test
+    void getExchangeRate_queuedRate_isServedWithoutSecondFetch() {
+        LocalDate date = LocalDate.of(2024, 1, 15);
+        when(rateStore.findRate("USD", date)).thenReturn(Optional.empty());
+        when(client.fetchExchangeRate("USD", date)).thenReturn("<xml/>");
+        when(parser.parseExchangeRates("<xml/>")).thenReturn(List.of(createRate("USD", "1.0856", date)));
+
+        service.getExchangeRate("USD", date);
+        ExchangeRate second = service.getExchangeRate("USD", date);
+
+        assertEquals(new BigDecimal("1.0856"), second.getRate());
+        verify(client, times(1)).fetchExchangeRate(any(), any());
     }
 
     @Test
     void getExchangeRate_notFound_throwsException() {
         LocalDate date = LocalDate.of(2024, 1, 15);
-        when(exchangeRateRepository.findByBaseCurrencyAndTargetCurrencyAndDate("EUR", "USD", date))
+        when(rateStore.findRate("USD", date))
                 .thenReturn(Optional.empty());
         when(client.fetchExchangeRate("USD", date)).thenReturn("<xml/>");
         when(parser.parseExchangeRates("<xml/>")).thenReturn(List.of());
@@ -100,12 +156,59 @@ class ExchangeRateServiceTest {
         assertThrows(ExchangeRateNotFoundException.class, () -> service.getExchangeRate("USD", date));
     }
 
+    @Test
+    void getExchangeRate_clusterFollowerMiss_requestsSyncAndAsksClientToRetry() {
+        LocalDate date = LocalDate.of(2024, 1, 15);
+        when(rateStore.findRate("USD", date))
+                .thenReturn(Optional.empty());
+        when(clusterCoordinator.isFollower()).thenReturn(true);
+        when(clusterCoordinator.getSyncRetryAfterSeconds()).thenReturn(10L);
+
+        ServiceOverloadedException e = assertThrows(ServiceOverloadedException.class,
+                () -> service.getExchangeRate("USD", date));
+        assertEquals(10, e.getRetryAfterSeconds());
+        verify(clusterCoordinator).requestSync(date, date);
+        verify(client, never()).fetchExchangeRate(any(), any());
+    }
+
+    @Test
+    void getExchangeRate_clusterFollowerStoredDay_currencyNotQuoted() {
+        LocalDate date = LocalDate.of(2024, 1, 15);
+        when(rateStore.findRate("GBP", date)).thenReturn(Optional.empty());
+        when(clusterCoordinator.isFollower()).thenReturn(true);
+        when(rateStore.findMaxDate(date, date)).thenReturn(Optional.of(date));
+
+        assertThrows(ExchangeRateNotFoundException.class, () -> service.getExchangeRate("GBP", date));
+        verify(clusterCoordinator, never()).requestSync(any(), any());
+    }
+
+    @Test
+    void getExchangeRatesOnDate_clusterFollowerMiss_asksClientToRetry() {
+        LocalDate date = LocalDate.of(2024, 1, 15);
+        when(clusterCoordinator.isFollower()).thenReturn(true);
+
+        assertThrows(ServiceOverloadedException.class, () -> service.getExchangeRatesOnDate("EUR", date, null));
+        verify(clusterCoordinator).requestSync(date, date);
+        verify(client, never()).fetchExchangeRatesOnDate(any());
+    }
+
+    @Test
+    void getExchangeRatesOnDate_clusterFollowerHoliday_isEmptyWithoutSync() {
+        LocalDate goodFriday = LocalDate.of(2024, 3, 29);
+        when(clusterCoordinator.isFollower()).thenReturn(true);
+        when(mapper.toOnDateResponse("EUR", goodFriday, List.of()))
+                .thenReturn(new ExchangeRatesOnDateResponse("EUR", goodFriday, Map.of(), null));
+
+        assertTrue(service.getExchangeRatesOnDate("EUR", goodFriday, null).getRates().isEmpty());
+        verify(clusterCoordinator, never()).requestSync(any(), any());
+    }
+
     @Test
     void convertCurrency_eurToUsd_multiplies() {
         LocalDate date = LocalDate.of(2024, 1, 15);
         ExchangeRate rate = createRate("USD", "1.0856", date);
-        when(exchangeRateRepository.findByBaseCurrencyAndTargetCurrencyAndDate("EUR", "USD", date))
-                .thenReturn(Optional.of(rate));
+        when(rateStore.findRate("USD", date))
+                .thenReturn(Optional.of(rate.getRate()));
 
         ConversionResult result = service.convertCurrency("EUR", "USD", BigDecimal.TEN, date);
 
@@ -114,12 +217,56 @@ class ExchangeRateServiceTest {
         assertEquals(new BigDecimal("10.8560"), result.getConvertedAmount());
     }
 
+    @Test
+    void convertCurrency_asOfHoliday_usesPreviousBusinessDayWithoutDbOrUpstream() {
+        LocalDate maundyThursday = LocalDate.of(2024, 3, 28);
+        LocalDate goodFriday = LocalDate.of(2024, 3, 29);
+        rateDateIndex.merge(List.of(
+                new RateRow(maundyThursday, "USD", new BigDecimal("1.0811")),
+                new RateRow(LocalDate.of(2024, 4, 2), "USD", new BigDecimal("1.0740"))));
+
+        ConversionResult result = service.convertCurrency("EUR", "USD", BigDecimal.TEN, goodFriday, "asof");
+
+        assertEquals(new BigDecimal("10.8110"), result.getConvertedAmount());
+        assertEquals(goodFriday, result.getDate());
+        assertEquals(maundyThursday, result.getRateDate());
+        verifyNoInteractions(rateStore, client);
+    }
+
+    @Test
+    void getExchangeRateAsOf_fetchedRows_areReadFromTheQueueNotMergedIntoTheIndex() {
+        LocalDate friday = LocalDate.of(2024, 3, 15);
+        LocalDate thursday = LocalDate.of(2024, 3, 14);
+        when(rateStore.findDates(any(), any(), any())).thenReturn(Page.empty());
+        when(client.fetchExchangeRatesHistory("EUR", LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31)))
+                .thenReturn("<xml/>");
+        when(parser.parseExchangeRates("<xml/>")).thenReturn(List.of(createRate("USD", "1.0890", thursday)));
+
+        ExchangeRate rate = service.getExchangeRateAsOf("USD", friday);
+
+        assertEquals(thursday, rate.getDate());
+        assertEquals(new BigDecimal("1.0890"), rate.getRate());
+        // Only the after-commit ingest event may tell the index the day is stored
+        assertTrue(rateDateIndex.findOnOrBefore("USD", friday).isEmpty());
+    }
+
+    @Test
+    void getExchangeRateAsOf_gapOfTargetClosingDays_skipsUpstream() {
+        LocalDate maundyThursday = LocalDate.of(2024, 3, 28);
+        rateDateIndex.merge(List.of(new RateRow(maundyThursday, "USD", new BigDecimal("1.0811"))));
+
+        ExchangeRate rate = service.getExchangeRateAsOf("USD", LocalDate.of(2024, 4, 1));
+
+        assertEquals(maundyThursday, rate.getDate());
+        verifyNoInteractions(client);
+    }
+
     @Test
     void convertCurrency_usdToEur_divides() {
         LocalDate date = LocalDate.of(2024, 1, 15);
         ExchangeRate rate = createRate("USD", "1.0856", date);
-        when(exchangeRateRepository.findByBaseCurrencyAndTargetCurrencyAndDate("EUR", "USD", date))
-                .thenReturn(Optional.of(rate));
+        when(rateStore.findRate("USD", date))
+                .thenReturn(Optional.of(rate.getRate()));
 
         ConversionResult result = service.convertCurrency("USD", "EUR", BigDecimal.TEN, date);
 
@@ -128,6 +275,184 @@ class ExchangeRateServiceTest {
         assertEquals(new BigDecimal("9.2115"), result.getConvertedAmount());
     }
 
+    @Test
+    void lookupRates_fetchesAllMissingDatesInOneUpstreamRange() {
+        LocalDate stored = LocalDate.of(2024, 1, 15);
+        LocalDate missingA = LocalDate.of(2024, 1, 22);
+        LocalDate missingB = LocalDate.of(2024, 2, 5);
+        LocalDate saturday = LocalDate.of(2024, 1, 20);
+        when(rateStore.findRowsOnDates(List.of(stored, saturday, missingA, missingB)))
+                .thenReturn(List.of(new RateRow(stored, "USD", new BigDecimal("1.0856"))));
+        when(rateStore.findRowsOnDates(List.of(missingA, missingB)))
+                .thenReturn(List.of(new RateRow(missingA, "USD", new BigDecimal("1.0890")),
+                        new RateRow(missingB, "USD", new BigDecimal("1.0783"))));
+        when(client.fetchExchangeRatesHistory("EUR", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 2, 29)))
+                .thenReturn("<xml/>");
+        when(parser.parseExchangeRates("<xml/>")).thenReturn(List.of(
+                createRate("USD", "1.0890", missingA), createRate("USD", "1.0783", missingB)));
+        when(mapper.toLookupResponse(eq("EUR"), any(), any())).thenReturn(new RateLookupResponse());
+
+        service.lookupRates("EUR", List.of(missingB, stored, saturday, missingA), null);
+
+        verify(client, times(1)).fetchExchangeRatesHistory(any(), any(), any());
+        verify(rateStore, times(2)).findRowsOnDates(any());
+    }
+
+    @Test
+    void lookupRates_distantMissingDates_fetchesOneRangePerCluster() {
+        LocalDate early = LocalDate.of(2010, 3, 10);
+        LocalDate late = LocalDate.of(2024, 1, 22);
+        when(rateStore.findRowsOnDates(any())).thenReturn(List.of());
+        when(mapper.toLookupResponse(eq("EUR"), any(), any())).thenReturn(new RateLookupResponse());
+
+        service.lookupRates("EUR", List.of(late, early), null);
+
+        verify(client).fetchExchangeRatesHistory("EUR", LocalDate.of(2010, 3, 1), LocalDate.of(2010, 3, 31));
+        verify(client).fetchExchangeRatesHistory("EUR", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31));
+        verifyNoMoreInteractions(client);
+    }
+
+    @Test
+    void lookupRates_targetHoliday_skipsUpstream() {
+        LocalDate goodFriday = LocalDate.of(2024, 3, 29);
+        when(rateStore.findRowsOnDates(List.of(goodFriday))).thenReturn(List.of());
+        when(mapper.toLookupResponse(eq("EUR"), any(), any())).thenReturn(new RateLookupResponse());
+
+        service.lookupRates("EUR", List.of(goodFriday), null);
+
+        verifyNoInteractions(client);
+    }
+
+    @Test
+    void lookupRates_allDatesStored_skipsUpstream() {
+        LocalDate date = LocalDate.of(2024, 1, 15);
+        when(rateStore.findRowsOnDates(List.of(date)))
+                .thenReturn(List.of(new RateRow(date, "USD", new BigDecimal("1.0856"))));
+        when(mapper.toLookupResponse(eq("EUR"), any(), any())).thenReturn(new RateLookupResponse());
+
+        service.lookupRates("EUR", List.of(date), null);
+
+        verifyNoInteractions(client);
+    }
+
+    @Test
+    void getExchangeRatesHistory_beforeEuroIntroduction_isRejected() {
+        assertThrows(InvalidRequestException.class, () -> service.getExchangeRatesHistory(
+                "EUR", LocalDate.of(1998, 12, 31), LocalDate.of(1999, 1, 31), 0, 20, null));
+    }
+
+    @Test
+    void checkRange_beforeMinDate_isRejected() {
+        assertThrows(InvalidRequestException.class,
+                () -> service.checkRange(LocalDate.of(1, 1, 1), LocalDate.of(2024, 1, 31)));
+    }
+
+    @Test
+    void checkRange_endAfterToday_isCappedAtToday() {
+        LocalDate today = LocalDate.now();
+
+        assertEquals(today, service.checkRange(today.minusDays(7), LocalDate.of(9999, 12, 31)));
+        assertThrows(InvalidRequestException.class, () -> service.checkRange(today.plusDays(1), today.plusDays(2)));
+    }
+
+    @Test
+    void ensureRangeLoaded_multiYearRange_fetchesMissingYearsOneAtATime() {
+        LocalDate storedYear = LocalDate.of(2000, 1, 1);
+        when(rateStore.findDates(any(), any(), any())).thenAnswer(call -> storedYear.equals(call.getArgument(0))
+                ? businessDays(storedYear, LocalDate.of(2000, 12, 31)) : Page.empty());
+
+        service.ensureRangeLoaded(LocalDate.of(1999, 1, 4), LocalDate.of(2001, 12, 31));
+
+        verify(client).fetchExchangeRatesHistory("EUR", LocalDate.of(1999, 1, 1), LocalDate.of(1999, 12, 31));
+        verify(client).fetchExchangeRatesHistory("EUR", LocalDate.of(2001, 1, 1), LocalDate.of(2001, 12, 31));
+        verifyNoMoreInteractions(client);
+    }
+
+    @Test
+    void ensureRangeLoaded_beforeMinDate_fetchesFromMinDateOnly() {
+        when(rateStore.findDates(any(), any(), any())).thenReturn(Page.empty());
+
+        service.ensureRangeLoaded(LocalDate.of(1, 1, 1), LocalDate.of(1999, 1, 31));
+
+        verify(client).fetchExchangeRatesHistory("EUR", LocalDate.of(1999, 1, 1), LocalDate.of(1999, 1, 31));
+        verifyNoMoreInteractions(client);
+    }
+
+    @Test
+    void ensureRangeLoaded_rangeBeforeMinDate_skipsUpstream() {
+        service.ensureRangeLoaded(LocalDate.of(1990, 1, 1), LocalDate.of(1998, 12, 31));
+
+        verifyNoInteractions(client, rateStore);
+    }
+
+    @Test
+    void ensureRangeLoaded_unchangedAndStoredUpstream_skipsParsing() {
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        LocalDate end = LocalDate.of(2024, 1, 31);
+        when(rateStore.findDates(start, end, Pageable.unpaged())).thenReturn(businessDays(LocalDate.of(2024, 1, 10), end));
+        when(client.fetchExchangeRatesHistoryIfModified("EUR", start, end)).thenReturn(Optional.empty());
+
+        service.ensureRangeLoaded(start, end);
+
+        verifyNoInteractions(parser);
+        verify(rateStore, never()).insertMissing(any());
+    }
+
+    @Test
+    void ensureRangeLoaded_marksResponseIngestedOnlyOnceRowsAreStored() {
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        LocalDate end = LocalDate.of(2024, 1, 31);
+        LocalDate day = LocalDate.of(2024, 1, 15);
+        when(rateStore.findDates(start, end, Pageable.unpaged())).thenReturn(Page.empty());
+        when(client.fetchExchangeRatesHistory("EUR", start, end)).thenReturn("<xml/>");
+        when(parser.parseExchangeRates("<xml/>")).thenReturn(List.of(createRate("USD", "1.0856", day)));
+        when(rateStore.insertMissing(any())).thenThrow(new IllegalStateException("database down"))
+                .thenAnswer(call -> call.getArgument(0));
+
+        service.ensureRangeLoaded(start, end);
+        verify(client, never()).markHistoryIngested(any(), any(), any(), any());
+
+        writeBehind.flush();
+        verify(client).markHistoryIngested("EUR", start, end, "<xml/>");
+    }
+
+    @Test
+    void ensureRangeLoaded_missingInteriorBusinessDay_fetchesRange() {
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        LocalDate end = LocalDate.of(2024, 1, 31);
+        List<LocalDate> stored = new ArrayList<>(businessDays(start, end).getContent());
+        stored.remove(LocalDate.of(2024, 1, 17));
+        when(rateStore.findDates(start, end, Pageable.unpaged())).thenReturn(new PageImpl<>(stored));
+        when(client.fetchExchangeRatesHistoryIfModified("EUR", start, end)).thenReturn(Optional.empty());
+
+        service.ensureRangeLoaded(start, end);
+
+        verify(client).fetchExchangeRatesHistoryIfModified("EUR", start, end);
+    }
+
+    @Test
+    void ensureRangeLoaded_allButTargetHolidaysStored_skipsUpstream() {
+        LocalDate start = LocalDate.of(2024, 3, 1);
+        LocalDate end = LocalDate.of(2024, 4, 30);
+        List<LocalDate> stored = new ArrayList<>(businessDays(start, end).getContent());
+        stored.removeAll(List.of(LocalDate.of(2024, 3, 29), LocalDate.of(2024, 4, 1)));
+        when(rateStore.findDates(start, end, Pageable.unpaged())).thenReturn(new PageImpl<>(stored));
+
+        service.ensureRangeLoaded(start, end);
+
+        verifyNoInteractions(client);
+    }
+
+    private static Page<LocalDate> businessDays(LocalDate from, LocalDate to) {
+        List<LocalDate> days = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            if (day.getDayOfWeek() != DayOfWeek.SATURDAY && day.getDayOfWeek() != DayOfWeek.SUNDAY) {
+                days.add(day);
+            }
+        }
+        return new PageImpl<>(days);
+    }
+
     private ExchangeRate createRate(String targetCurrency, String rateValue, LocalDate date) {
         ExchangeRate rate = new ExchangeRate();
         rate.setBaseCurrency("EUR");
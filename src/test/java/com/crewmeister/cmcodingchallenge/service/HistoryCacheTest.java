@@ -0,0 +1,90 @@
+package com.crewmeister.cmcodingchallenge.service;
+
+import com.crewmeister.cmcodingchallenge.dto.ExchangeRatesHistoryResponse;
+import com.crewmeister.cmcodingchallenge.dto.RateRow;
+import com.crewmeister.cmcodingchallenge.event.DatasetChangedEvent;
+import com.crewmeister.cmcodingchallenge.event.RatesIngestedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistoryCacheTest {
+
+    private final ExchangeRatesHistoryResponse page = new ExchangeRatesHistoryResponse();
+
+    @Test
+    void onRatesIngested_dropsOnlyOverlappingPages() {
+        HistoryCache cache = new HistoryCache(60, 100, "none");
+        HistoryCache.Key january = new HistoryCache.Key(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31), 0, 20);
+        HistoryCache.Key march = new HistoryCache.Key(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31), 0, 20);
+        cache.put(january, page);
+        cache.put(march, page);
+
+        cache.onRatesIngested(new RatesIngestedEvent(List.of(
+                new RateRow(LocalDate.of(2024, 1, 31), "USD", BigDecimal.ONE))));
+
+        assertNull(cache.get(january));
+        assertSame(page, cache.get(march));
+    }
+
+    @Test
+    void onDatasetChanged_withoutBus_dropsEverything() {
+        HistoryCache cache = new HistoryCache(60, 100, "none");
+        HistoryCache.Key key = new HistoryCache.Key(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31), 0, 20);
+        cache.put(key, page);
+
+        cache.onDatasetChanged(new DatasetChangedEvent(2));
+
+        assertNull(cache.get(key));
+    }
+
+    @Test
+    void onDatasetChanged_withBus_keepsUnaffectedPages() {
+        HistoryCache cache = new HistoryCache(60, 100, "db");
+        HistoryCache.Key key = new HistoryCache.Key(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31), 0, 20);
+        cache.put(key, page);
+
+        cache.onDatasetChanged(new DatasetChangedEvent(2));
+
+        assertSame(page, cache.get(key));
+    }
+
+    @Test
+    void variant_isDerivedOncePerEurPage() {
+        HistoryCache cache = new HistoryCache(60, 100, "none");
+        HistoryCache.Key key = new HistoryCache.Key(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31), 0, 20);
+        AtomicInteger derived = new AtomicInteger();
+
+        ExchangeRatesHistoryResponse first = cache.variant(key, "USD", Set.of("GBP"), page, eur -> {
+            derived.incrementAndGet();
+            return new ExchangeRatesHistoryResponse();
+        });
+        assertSame(first, cache.variant(key, "USD", Set.of("GBP"), page, eur -> fail("derived twice")));
+
+        // A reloaded EUR page never serves the variant of the one it replaced
+        ExchangeRatesHistoryResponse reloaded = new ExchangeRatesHistoryResponse();
+        assertNotSame(first, cache.variant(key, "USD", Set.of("GBP"), reloaded, eur -> {
+            derived.incrementAndGet();
+            return new ExchangeRatesHistoryResponse();
+        }));
+        assertEquals(2, derived.get());
+    }
+
+    @Test
+    void invalidateRange_dropsOverlappingVariants() {
+        HistoryCache cache = new HistoryCache(60, 100, "none");
+        HistoryCache.Key key = new HistoryCache.Key(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31), 0, 20);
+        ExchangeRatesHistoryResponse usd = new ExchangeRatesHistoryResponse();
+        cache.variant(key, "USD", null, page, eur -> usd);
+
+        cache.invalidateRange(LocalDate.of(2024, 3, 15), LocalDate.of(2024, 3, 15));
+
+        assertNotSame(usd, cache.variant(key, "USD", null, page, eur -> new ExchangeRatesHistoryResponse()));
+    }
+}
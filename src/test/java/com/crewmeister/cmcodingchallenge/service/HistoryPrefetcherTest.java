@@ -0,0 +1,85 @@
+package com.crewmeister.cmcodingchallenge.service;
+
+import com.crewmeister.cmcodingchallenge.dto.ExchangeRatesHistoryResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistoryPrefetcherTest {
+
+    private HistoryCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new HistoryCache(60, 100, "none");
+    }
+
+    @Test
+    void prefetch_runsLoaderOnlyForUncachedPages() {
+        List<Runnable> submitted = new ArrayList<>();
+        HistoryPrefetcher prefetcher = new HistoryPrefetcher(submitted::add, cache, true);
+        HistoryCache.Key cached = key(1);
+        cache.put(cached, new ExchangeRatesHistoryResponse());
+
+        prefetcher.prefetch(cached, () -> fail("cached page must not be recomputed"));
+        prefetcher.prefetch(key(2), () -> { });
+
+        assertEquals(1, submitted.size());
+    }
+
+    @Test
+    void prefetch_sameKeyInFlight_isSubmittedOnce() {
+        List<Runnable> submitted = new ArrayList<>();
+        HistoryPrefetcher prefetcher = new HistoryPrefetcher(submitted::add, cache, true);
+
+        prefetcher.prefetch(key(1), () -> { });
+        prefetcher.prefetch(key(1), () -> { });
+        assertEquals(1, submitted.size());
+
+        submitted.get(0).run();
+        prefetcher.prefetch(key(1), () -> { });
+        assertEquals(2, submitted.size());
+    }
+
+    @Test
+    void prefetch_saturatedExecutor_dropsInsteadOfBlocking() throws InterruptedException {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1));
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loaded = new AtomicInteger();
+        HistoryPrefetcher prefetcher = new HistoryPrefetcher(executor, cache, true);
+        try {
+            prefetcher.prefetch(key(1), () -> awaitQuietly(release));
+            prefetcher.prefetch(key(2), loaded::incrementAndGet);
+            prefetcher.prefetch(key(3), loaded::incrementAndGet);
+
+            release.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+            assertEquals(1, loaded.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static HistoryCache.Key key(int page) {
+        return new HistoryCache.Key(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 31), page, 10);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
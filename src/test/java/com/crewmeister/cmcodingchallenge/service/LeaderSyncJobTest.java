@@ -0,0 +1,100 @@
+package com.crewmeister.cmcodingchallenge.service;
+
+import com.crewmeister.cmcodingchallenge.entity.SyncRequest;
+import com.crewmeister.cmcodingchallenge.exception.BundesBankApiException;
+import com.crewmeister.cmcodingchallenge.repository.SyncRequestRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LeaderSyncJobTest {
+
+    @Mock private ClusterCoordinator coordinator;
+    @Mock private SyncRequestRepository syncRequestRepository;
+    @Mock private ExchangeRateService exchangeRateService;
+
+    private LeaderSyncJob job;
+
+    @BeforeEach
+    void setUp() {
+        job = new LeaderSyncJob(coordinator, syncRequestRepository, exchangeRateService);
+    }
+
+    @Test
+    void processSyncRequests_leader_loadsAndRemovesEachRequest() {
+        SyncRequest january = request(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31));
+        SyncRequest day = request(LocalDate.of(2024, 2, 5), LocalDate.of(2024, 2, 5));
+        leader();
+        when(syncRequestRepository.findTop20ByOrderByRequestedAtAsc()).thenReturn(List.of(january, day));
+
+        job.processSyncRequests();
+
+        verify(exchangeRateService).ensureRangeLoaded(january.getStartDate(), january.getEndDate());
+        verify(exchangeRateService).ensureRangeLoaded(day.getStartDate(), day.getEndDate());
+        verify(syncRequestRepository).delete(january);
+        verify(syncRequestRepository).delete(day);
+    }
+
+    @Test
+    void processSyncRequests_upstreamFailure_keepsRequestAndStops() {
+        SyncRequest january = request(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31));
+        SyncRequest day = request(LocalDate.of(2024, 2, 5), LocalDate.of(2024, 2, 5));
+        leader();
+        when(syncRequestRepository.findTop20ByOrderByRequestedAtAsc()).thenReturn(List.of(january, day));
+        doThrow(new BundesBankApiException("timeout", 504))
+                .when(exchangeRateService).ensureRangeLoaded(january.getStartDate(), january.getEndDate());
+
+        job.processSyncRequests();
+
+        verify(syncRequestRepository, never()).delete(any());
+        verify(exchangeRateService, never()).ensureRangeLoaded(day.getStartDate(), day.getEndDate());
+    }
+
+    @Test
+    void processSyncRequests_follower_leavesQueueAlone() {
+        when(coordinator.isEnabled()).thenReturn(true);
+        when(coordinator.isLeader()).thenReturn(false);
+
+        job.processSyncRequests();
+
+        verifyNoInteractions(syncRequestRepository, exchangeRateService);
+    }
+
+    @Test
+    void syncRecentDays_leader_loadsUpToToday() {
+        leader();
+
+        job.syncRecentDays();
+
+        verify(exchangeRateService).ensureRangeLoaded(any(), eq(LocalDate.now()));
+    }
+
+    @Test
+    void syncRecentDays_follower_doesNothing() {
+        when(coordinator.isEnabled()).thenReturn(true);
+        when(coordinator.isLeader()).thenReturn(false);
+
+        job.syncRecentDays();
+
+        verifyNoInteractions(exchangeRateService);
+    }
+
+    private void leader() {
+        when(coordinator.isEnabled()).thenReturn(true);
+        when(coordinator.isLeader()).thenReturn(true);
+    }
+
+    private static SyncRequest request(LocalDate start, LocalDate end) {
+        return new SyncRequest(start, end, "node-b", Instant.now());
+    }
+}
@@ -0,0 +1,149 @@
+package com.crewmeister.cmcodingchallenge.service;
+
+import com.crewmeister.cmcodingchallenge.dto.RateRow;
+import com.crewmeister.cmcodingchallenge.event.RatesIngestedEvent;
+import com.crewmeister.cmcodingchallenge.store.RateStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RateFeedTest {
+
+    private static final LocalDate YESTERDAY = LocalDate.now().minusDays(1);
+
+    @Mock private RateStore rateStore;
+    @Mock private ExchangeRateService exchangeRateService;
+    @Mock private ClusterCoordinator clusterCoordinator;
+
+    private final ExchangeRateMapper mapper = new ExchangeRateMapper(ForkJoinPool.commonPool());
+    private final ObjectMapper objectMapper = JsonMapper.builder().addModule(new JavaTimeModule()).build();
+
+    @Test
+    void onRatesIngested_publishesEachDayOnce() {
+        RateFeed feed = feed(Runnable::run, 16);
+        feed.subscribe();
+        when(rateStore.findRowsOn(YESTERDAY)).thenReturn(fullDay(YESTERDAY));
+
+        feed.onRatesIngested(new RatesIngestedEvent(fullDay(YESTERDAY)));
+        feed.onRatesIngested(new RatesIngestedEvent(List.of(row(YESTERDAY, "ZAR"))));
+
+        verify(rateStore, times(1)).findRowsOn(YESTERDAY);
+    }
+
+    @Test
+    void onRatesIngested_partialDayWaitsForFullTable() {
+        RateFeed feed = feed(Runnable::run, 16);
+        feed.subscribe();
+        when(rateStore.findRowsOn(YESTERDAY))
+                .thenReturn(List.of(row(YESTERDAY, "USD")), fullDay(YESTERDAY));
+
+        feed.onRatesIngested(new RatesIngestedEvent(List.of(row(YESTERDAY, "USD"))));
+        feed.onRatesIngested(new RatesIngestedEvent(fullDay(YESTERDAY)));
+        feed.onRatesIngested(new RatesIngestedEvent(List.of(row(YESTERDAY, "ZAR"))));
+
+        verify(rateStore, times(2)).findRowsOn(YESTERDAY);
+    }
+
+    @Test
+    void onRatesIngested_withoutSubscribers_skipsLookup() {
+        RateFeed feed = feed(Runnable::run, 16);
+
+        feed.onRatesIngested(new RatesIngestedEvent(fullDay(YESTERDAY)));
+
+        verifyNoInteractions(rateStore);
+    }
+
+    @Test
+    void heartbeat_overflowingBuffer_disconnectsOnlyThatSubscriber() {
+        List<Runnable> pending = new ArrayList<>();
+        RateFeed feed = feed(pending::add, 2);
+        feed.subscribe();
+
+        feed.heartbeat();
+        feed.heartbeat();
+        assertEquals(1, feed.subscriberCount());
+
+        feed.heartbeat();
+        assertEquals(0, feed.subscriberCount());
+        assertEquals(1, pending.size());
+    }
+
+    @Test
+    void pollPublication_runsOnFeedExecutorOneAtATime() {
+        DayOfWeek today = LocalDate.now().getDayOfWeek();
+        assumeFalse(today == DayOfWeek.SATURDAY || today == DayOfWeek.SUNDAY, "no publication on weekends");
+        List<Runnable> pending = new ArrayList<>();
+        RateFeed feed = feed(pending::add, 16);
+        feed.subscribe();
+        when(clusterCoordinator.isLeader()).thenReturn(true);
+
+        feed.pollPublication();
+        feed.pollPublication();
+        verifyNoInteractions(exchangeRateService);
+        assertEquals(1, pending.size());
+
+        pending.get(0).run();
+        verify(exchangeRateService).getExchangeRatesOnDate("EUR", LocalDate.now(), null);
+    }
+
+    @Test
+    void expireStalledSends_dropsSubscriberBlockedInSend() throws InterruptedException {
+        ExecutorService sendThread = Executors.newSingleThreadExecutor();
+        RateFeed feed = new RateFeed(rateStore, mapper, exchangeRateService, clusterCoordinator,
+                objectMapper, sendThread, 16, 60_000, 0, 20, 7);
+        SseEmitter emitter = feed.subscribe();
+        try {
+            // Holding the emitter's lock keeps the send thread blocked inside send
+            synchronized (emitter) {
+                feed.heartbeat();
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                while (feed.subscriberCount() > 0 && System.nanoTime() < deadline) {
+                    feed.expireStalledSends();
+                    Thread.sleep(10);
+                }
+                assertEquals(0, feed.subscriberCount());
+            }
+        } finally {
+            sendThread.shutdown();
+            assertTrue(sendThread.awaitTermination(5, TimeUnit.SECONDS));
+        }
+    }
+
+    private RateFeed feed(Executor executor, int bufferSize) {
+        return new RateFeed(rateStore, mapper, exchangeRateService, clusterCoordinator,
+                objectMapper, executor, bufferSize, 60_000, 10_000, 20, 7);
+    }
+
+    private static List<RateRow> fullDay(LocalDate date) {
+        List<RateRow> rows = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            rows.add(row(date, "C" + (char) ('A' + i) + "X"));
+        }
+        return rows;
+    }
+
+    private static RateRow row(LocalDate date, String currency) {
+        return new RateRow(date, currency, BigDecimal.ONE);
+    }
+}
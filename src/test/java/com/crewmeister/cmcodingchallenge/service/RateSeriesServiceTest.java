@@ -0,0 +1,96 @@
+package com.crewmeister.cmcodingchallenge.service;
+
+import com.crewmeister.cmcodingchallenge.dto.RateRow;
+import com.crewmeister.cmcodingchallenge.dto.RateSeriesResponse;
+import com.crewmeister.cmcodingchallenge.store.RateDateIndex;
+import com.crewmeister.cmcodingchallenge.store.RateStore;
+import com.crewmeister.cmcodingchallenge.service.RateSeriesService.Aggregation;
+import com.crewmeister.cmcodingchallenge.service.RateSeriesService.Resolution;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RateSeriesServiceTest {
+
+    @Mock private ExchangeRateService exchangeRateService;
+    @Mock private RateStore rateStore;
+
+    private RateSeriesService service;
+
+    // Mon 2024-01-29 .. Fri 2024-02-02 spans a month boundary inside one week
+    private final List<RateRow> rows = List.of(
+            row("2024-01-29", "1.0800"),
+            row("2024-01-30", "1.0900"),
+            row("2024-01-31", "1.0700"),
+            row("2024-02-01", "1.0850"),
+            row("2024-02-02", "1.0750"));
+
+    @BeforeEach
+    void setUp() {
+        // Not loaded yet, so series reads go to the store
+        service = new RateSeriesService(exchangeRateService, new RateDateIndex(rateStore, 7));
+    }
+
+    @Test
+    void getSeries_dayResolution_returnsOnePointPerObservation() {
+        LocalDate from = LocalDate.of(2024, 1, 29);
+        LocalDate to = LocalDate.of(2024, 2, 2);
+        when(exchangeRateService.checkRange(from, to)).thenReturn(to);
+        when(exchangeRateService.validateCurrency("usd")).thenReturn("USD");
+        when(rateStore.findSeries("USD", from, to)).thenReturn(rows);
+
+        RateSeriesResponse response = service.getSeries("usd", from, to, "day", "last");
+
+        verify(exchangeRateService).ensureRangeLoaded(from, to);
+        assertEquals(List.of("epochDay", "rate"), response.getFields());
+        assertEquals(5, response.getPoints().length);
+        assertEquals(LocalDate.of(2024, 1, 29).toEpochDay(), response.getPoints()[0][0]);
+        assertEquals(new BigDecimal("1.0800"), response.getPoints()[0][1]);
+    }
+
+    @Test
+    void downsample_weekOhlc_foldsAcrossMonthBoundary() {
+        Number[][] points = RateSeriesService.downsample(rows, Resolution.WEEK, Aggregation.OHLC);
+
+        assertEquals(1, points.length);
+        assertArrayEquals(new Number[]{LocalDate.of(2024, 1, 29).toEpochDay(),
+                new BigDecimal("1.0800"), new BigDecimal("1.0900"), new BigDecimal("1.0700"), new BigDecimal("1.0750")},
+                points[0]);
+    }
+
+    @Test
+    void downsample_monthAvgAndLast_splitAtMonthStart() {
+        Number[][] avg = RateSeriesService.downsample(rows, Resolution.MONTH, Aggregation.AVG);
+        Number[][] last = RateSeriesService.downsample(rows, Resolution.MONTH, Aggregation.LAST);
+
+        assertEquals(2, avg.length);
+        assertEquals(LocalDate.of(2024, 2, 1).toEpochDay(), avg[1][0]);
+        assertEquals(new BigDecimal("1.080000"), avg[0][1]);
+        assertEquals(new BigDecimal("1.080000"), avg[1][1]);
+        assertEquals(new BigDecimal("1.0700"), last[0][1]);
+        assertEquals(new BigDecimal("1.0750"), last[1][1]);
+    }
+
+    @Test
+    void getSeries_unknownResolution_throws() {
+        LocalDate date = LocalDate.of(2024, 1, 29);
+        when(exchangeRateService.validateCurrency("USD")).thenReturn("USD");
+
+        assertThrows(IllegalArgumentException.class, () -> service.getSeries("USD", date, date, "hour", "last"));
+        verifyNoInteractions(rateStore);
+    }
+
+    private static RateRow row(String date, String rate) {
+        return new RateRow(LocalDate.parse(date), "USD", new BigDecimal(rate));
+    }
+}
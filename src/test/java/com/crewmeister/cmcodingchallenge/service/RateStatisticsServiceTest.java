@@ -0,0 +1,195 @@
+package com.crewmeister.cmcodingchallenge.service;
+
+import com.crewmeister.cmcodingchallenge.dto.RateRow;
+import com.crewmeister.cmcodingchallenge.dto.RateStatistics;
+import com.crewmeister.cmcodingchallenge.dto.RateStatisticsResponse;
+import com.crewmeister.cmcodingchallenge.entity.RateAggregate;
+import com.crewmeister.cmcodingchallenge.entity.RateAggregate.Period;
+import com.crewmeister.cmcodingchallenge.event.RatesIngestedEvent;
+import com.crewmeister.cmcodingchallenge.repository.RateAggregateRepository;
+import com.crewmeister.cmcodingchallenge.store.RateDateIndex;
+import com.crewmeister.cmcodingchallenge.store.RateStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RateStatisticsServiceTest {
+
+    @Mock private ExchangeRateService exchangeRateService;
+    @Mock private RateStore rateStore;
+    @Mock private RateAggregateRepository aggregateRepository;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private RateDateIndex rateDateIndex;
+    private RateStatisticsService service;
+
+    @BeforeEach
+    void setUp() {
+        rateDateIndex = new RateDateIndex(rateStore, 7);
+        service = new RateStatisticsService(exchangeRateService, rateStore, rateDateIndex, aggregateRepository,
+                transactionManager, Runnable::run);
+    }
+
+    @Test
+    void getStatistics_monthWindow_combinesAggregatesAndScansOnlyEdges() {
+        LocalDate from = LocalDate.of(2024, 1, 15);
+        LocalDate to = LocalDate.of(2024, 3, 10);
+        loadIndex(row(LocalDate.of(2024, 1, 15), "1.09"),
+                row(LocalDate.of(2024, 2, 1), "1.08"), row(LocalDate.of(2024, 2, 2), "1.10"));
+        when(exchangeRateService.checkRange(from, to)).thenReturn(to);
+        when(exchangeRateService.validateCurrency("usd")).thenReturn("USD");
+        // Agrees with the index on the count, so it is used as stored
+        RateAggregate februaryAggregate = aggregate(Period.MONTH, LocalDate.of(2024, 2, 1), "1.08", "1.10");
+        februaryAggregate.setMax(new BigDecimal("1.200000"));
+        when(aggregateRepository.findByTargetCurrencyAndPeriodAndPeriodStartBetween("USD", Period.MONTH, LocalDate.of(2024, 1, 1), to))
+                .thenReturn(List.of(februaryAggregate));
+        when(aggregateRepository.findByTargetCurrencyAndPeriodAndPeriodStartBetween("USD", Period.YEAR, LocalDate.of(2024, 1, 1), to))
+                .thenReturn(List.of());
+
+        RateStatisticsResponse response = service.getStatistics("usd", from, to, "month");
+
+        assertEquals("month", response.getWindow());
+        assertEquals(2, response.getPeriods().size());
+        RateStatistics february = response.getPeriods().get(1);
+        assertEquals(LocalDate.of(2024, 2, 1), february.getPeriodStart());
+        assertEquals(2, february.getCount());
+        assertEquals(new BigDecimal("1.090000"), february.getAverage());
+        assertEquals(new BigDecimal("1.200000"), february.getMax());
+        assertEquals(new BigDecimal("0.010000"), february.getVolatility());
+        verify(exchangeRateService).ensureRangeLoaded(from, to);
+        verify(rateStore, never()).findSeries(any(), any(), any());
+    }
+
+    @Test
+    void getStatistics_aggregateBehindStoredRates_readsTheRates() {
+        LocalDate from = LocalDate.of(2024, 2, 1);
+        LocalDate to = LocalDate.of(2024, 2, 29);
+        // The range was just loaded and its aggregate update is still queued
+        loadIndex(row(from, "1.08"), row(from.plusDays(1), "1.10"), row(from.plusDays(4), "1.30"));
+        when(exchangeRateService.checkRange(from, to)).thenReturn(to);
+        when(exchangeRateService.validateCurrency("USD")).thenReturn("USD");
+        when(aggregateRepository.findByTargetCurrencyAndPeriodAndPeriodStartBetween("USD", Period.MONTH, from, to))
+                .thenReturn(List.of(aggregate(Period.MONTH, from, "1.08", "1.10")));
+        when(aggregateRepository.findByTargetCurrencyAndPeriodAndPeriodStartBetween("USD", Period.YEAR, LocalDate.of(2024, 1, 1), to))
+                .thenReturn(List.of());
+
+        RateStatistics february = service.getStatistics("USD", from, to, "month").getPeriods().get(0);
+
+        assertEquals(3, february.getCount());
+        assertEquals(new BigDecimal("1.300000"), february.getMax());
+    }
+
+    @Test
+    void getStatistics_missingYearAggregate_readsTheRates() {
+        LocalDate from = LocalDate.of(2023, 1, 1);
+        LocalDate to = LocalDate.of(2023, 12, 31);
+        loadIndex(row(LocalDate.of(2023, 3, 1), "1.06"), row(LocalDate.of(2023, 9, 1), "1.08"));
+        when(exchangeRateService.checkRange(from, to)).thenReturn(to);
+        when(exchangeRateService.validateCurrency("USD")).thenReturn("USD");
+        when(aggregateRepository.findByTargetCurrencyAndPeriodAndPeriodStartBetween(eq("USD"), any(), eq(from), eq(to)))
+                .thenReturn(List.of());
+
+        RateStatisticsResponse response = service.getStatistics("USD", from, to, "year");
+
+        assertEquals(1, response.getPeriods().size());
+        assertEquals(2, response.getPeriods().get(0).getCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reconcileAggregates_rebuildsMissingAndStaleOnes() {
+        LocalDate february = LocalDate.of(2024, 2, 1);
+        loadIndex(row(february, "1.08"), row(february.plusDays(1), "1.10"));
+        RateAggregate stale = aggregate(Period.MONTH, february, "1.08");
+        when(aggregateRepository.findAll()).thenReturn(List.of(stale));
+
+        service.reconcileAggregates();
+
+        ArgumentCaptor<List<RateAggregate>> saved = ArgumentCaptor.forClass(List.class);
+        verify(aggregateRepository).saveAll(saved.capture());
+        assertEquals(2, saved.getValue().size());
+        assertEquals(2, stale.getCount());
+        assertEquals(new BigDecimal("1.100000"), stale.getLast());
+        RateAggregate year = saved.getValue().stream()
+                .filter(a -> a.getPeriod() == Period.YEAR).findFirst().orElseThrow();
+        assertEquals(LocalDate.of(2024, 1, 1), year.getPeriodStart());
+        assertEquals(2, year.getCount());
+    }
+
+    @Test
+    void reconcileAggregates_matchingAggregates_areLeftAlone() {
+        LocalDate february = LocalDate.of(2024, 2, 1);
+        loadIndex(row(february, "1.08"));
+        when(aggregateRepository.findAll()).thenReturn(List.of(
+                aggregate(Period.MONTH, february, "1.08"),
+                aggregate(Period.YEAR, LocalDate.of(2024, 1, 1), "1.08")));
+
+        service.reconcileAggregates();
+
+        verify(aggregateRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void getStatistics_invalidWindow_throwsException() {
+        when(exchangeRateService.validateCurrency("USD")).thenReturn("USD");
+        assertThrows(IllegalArgumentException.class, () ->
+                service.getStatistics("USD", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 2, 1), "decade"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void onRatesIngested_updatesMonthAndYearAggregates() {
+        RateAggregate month = aggregate(Period.MONTH, LocalDate.of(2024, 2, 1), "1.08", "1.10");
+        when(aggregateRepository.findByTargetCurrencyInAndPeriodStartIn(anyCollection(), anyCollection()))
+                .thenReturn(List.of(month));
+
+        service.onRatesIngested(new RatesIngestedEvent(List.of(row(LocalDate.of(2024, 2, 20), "1.12"))));
+
+        ArgumentCaptor<List<RateAggregate>> saved = ArgumentCaptor.forClass(List.class);
+        verify(aggregateRepository).saveAll(saved.capture());
+        assertEquals(2, saved.getValue().size());
+        assertEquals(3, month.getCount());
+        assertEquals(new BigDecimal("1.12"), month.getMax());
+        assertEquals(new BigDecimal("1.12"), month.getLast());
+        RateAggregate year = new ArrayList<>(saved.getValue()).stream()
+                .filter(a -> a.getPeriod() == Period.YEAR).findFirst().orElseThrow();
+        assertEquals(1, year.getCount());
+    }
+
+    private RateAggregate aggregate(Period period, LocalDate start, String... rates) {
+        RateStatsAccumulator acc = new RateStatsAccumulator();
+        LocalDate day = start;
+        for (String rate : rates) {
+            acc.add(day, new BigDecimal(rate));
+            day = day.plusDays(1);
+        }
+        RateAggregate aggregate = new RateAggregate("USD", period, start);
+        acc.writeTo(aggregate);
+        return aggregate;
+    }
+
+    private void loadIndex(RateRow... rows) {
+        when(rateStore.findAllRows()).thenReturn(List.of(rows));
+        rateDateIndex.load();
+    }
+
+    private RateRow row(LocalDate date, String rate) {
+        return new RateRow(date, "USD", new BigDecimal(rate));
+    }
+}
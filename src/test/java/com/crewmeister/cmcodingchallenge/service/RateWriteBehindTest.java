@@ -0,0 +1,170 @@
+package com.crewmeister.cmcodingchallenge.service;
+
+import com.crewmeister.cmcodingchallenge.dto.RateRow;
+import com.crewmeister.cmcodingchallenge.event.RatesIngestedEvent;
+import com.crewmeister.cmcodingchallenge.store.RateStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RateWriteBehindTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2024, 1, 15);
+
+    @Mock private RateStore rateStore;
+    @Mock private ApplicationEventPublisher eventPublisher;
+    @Mock private PlatformTransactionManager transactionManager;
+    @Mock private ScheduledExecutorService flushScheduler;
+
+    @Test
+    void flush_coalescesRequestsIntoBatches() {
+        RateWriteBehind writeBehind = new RateWriteBehind(rateStore, eventPublisher, transactionManager, true, 100, 3, 3, 200, flushScheduler);
+        RateRow usd = row(MONDAY, "USD", "1.0856");
+        RateRow gbp = row(MONDAY, "GBP", "0.8612");
+        RateRow jpy = row(MONDAY, "JPY", "160.12");
+        RateRow next = row(MONDAY.plusDays(1), "USD", "1.0890");
+        when(rateStore.insertMissing(any())).thenAnswer(call -> call.getArgument(0));
+
+        writeBehind.enqueue(List.of(usd, gbp));
+        writeBehind.enqueue(List.of(jpy, next));
+        verifyNoInteractions(rateStore);
+
+        writeBehind.flush();
+
+        verify(rateStore).insertMissing(List.of(usd, gbp, jpy));
+        verify(rateStore).insertMissing(List.of(next));
+        verify(eventPublisher, times(2)).publishEvent(any(RatesIngestedEvent.class));
+        assertEquals(0, writeBehind.queuedCount());
+        assertTrue(writeBehind.pendingDates(MONDAY, MONDAY.plusDays(1)).isEmpty());
+    }
+
+    @Test
+    void queuedRows_areReadableUntilStored() {
+        RateWriteBehind writeBehind = new RateWriteBehind(rateStore, eventPublisher, transactionManager, true, 100, 10, 3, 200, flushScheduler);
+        RateRow storedUsd = row(MONDAY, "USD", "1.0856");
+        writeBehind.enqueue(List.of(row(MONDAY, "USD", "1.0856"), row(MONDAY, "GBP", "0.8612")));
+
+        List<RateRow> merged = writeBehind.withPending(List.of(storedUsd), List.of(MONDAY));
+
+        assertEquals(2, merged.size());
+        assertEquals(Optional.of(new BigDecimal("0.8612")), writeBehind.pendingRate("GBP", MONDAY));
+        assertEquals(MONDAY, writeBehind.pendingDates(MONDAY.minusDays(3), MONDAY).first());
+        List<RateRow> nothingQueued = List.of(row(MONDAY.plusDays(1), "USD", "1.0890"));
+        assertSame(nothingQueued, writeBehind.withPending(nothingQueued, List.of(MONDAY.plusDays(1))));
+    }
+
+    @Test
+    void fullQueue_producerStoresItsOwnRows() {
+        RateWriteBehind writeBehind = new RateWriteBehind(rateStore, eventPublisher, transactionManager, true, 2, 10, 3, 200, flushScheduler);
+        writeBehind.enqueue(List.of(row(MONDAY, "USD", "1.0856"), row(MONDAY, "GBP", "0.8612")));
+
+        List<RateRow> overflow = List.of(row(MONDAY, "JPY", "160.12"));
+        writeBehind.enqueue(overflow);
+
+        verify(rateStore).insertMissing(overflow);
+        assertEquals(2, writeBehind.queuedCount());
+        assertTrue(writeBehind.pendingRate("JPY", MONDAY).isEmpty());
+    }
+
+    @Test
+    void failedFlush_keepsRowsQueued() {
+        RateWriteBehind writeBehind = new RateWriteBehind(rateStore, eventPublisher, transactionManager, true, 100, 10, 3, 200, flushScheduler);
+        when(rateStore.insertMissing(any())).thenThrow(new IllegalStateException("database down"));
+        writeBehind.enqueue(List.of(row(MONDAY, "USD", "1.0856")));
+
+        writeBehind.flush();
+
+        assertEquals(1, writeBehind.queuedCount());
+        assertTrue(writeBehind.pendingRate("USD", MONDAY).isPresent());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void close_flushesAndStoresLaterRowsDirectly() {
+        RateWriteBehind writeBehind = new RateWriteBehind(rateStore, eventPublisher, transactionManager, true, 100, 10, 3, 200, flushScheduler);
+        List<RateRow> queued = List.of(row(MONDAY, "USD", "1.0856"));
+        writeBehind.enqueue(queued);
+
+        writeBehind.close();
+        List<RateRow> late = List.of(row(MONDAY, "GBP", "0.8612"));
+        writeBehind.enqueue(late);
+
+        verify(rateStore).insertMissing(queued);
+        verify(rateStore).insertMissing(late);
+        assertEquals(0, writeBehind.queuedCount());
+    }
+
+    @Test
+    void completionCallback_runsOnceAllItsRowsAreStored() {
+        RateWriteBehind writeBehind = new RateWriteBehind(rateStore, eventPublisher, transactionManager, true, 100, 1, 3, 200, flushScheduler);
+        when(rateStore.insertMissing(any())).thenAnswer(call -> call.getArgument(0))
+                .thenThrow(new IllegalStateException("database down"))
+                .thenAnswer(call -> call.getArgument(0));
+        List<String> completed = new ArrayList<>();
+        writeBehind.enqueue(List.of(row(MONDAY, "USD", "1.0856"), row(MONDAY, "GBP", "0.8612")), () -> completed.add("first"));
+        writeBehind.enqueue(List.of(row(MONDAY, "JPY", "160.12")), () -> completed.add("second"));
+
+        writeBehind.flush();
+        assertEquals(List.of(), completed);
+
+        writeBehind.flush();
+        assertEquals(List.of("first", "second"), completed);
+    }
+
+    @Test
+    void failingBatch_isDeadLetteredWithItsCallbacksAfterMaxAttempts() {
+        RateWriteBehind writeBehind = new RateWriteBehind(rateStore, eventPublisher, transactionManager, true, 100, 1, 3, 200, flushScheduler);
+        RateRow usd = row(MONDAY, "USD", "1.0856");
+        RateRow gbp = row(MONDAY, "GBP", "0.8612");
+        RateRow jpy = row(MONDAY, "JPY", "160.12");
+        when(rateStore.insertMissing(any())).thenAnswer(call -> call.getArgument(0));
+        when(rateStore.insertMissing(List.of(gbp))).thenThrow(new IllegalStateException("value too large"));
+        List<String> completed = new ArrayList<>();
+        writeBehind.enqueue(List.of(usd, gbp), () -> completed.add("first"));
+        writeBehind.enqueue(List.of(jpy), () -> completed.add("second"));
+
+        writeBehind.flush();
+        writeBehind.flush();
+        assertEquals(2, writeBehind.queuedCount());
+
+        writeBehind.flush();
+
+        assertEquals(0, writeBehind.queuedCount());
+        assertEquals(1, writeBehind.deadLetteredCount());
+        assertTrue(writeBehind.pendingRate("GBP", MONDAY).isEmpty());
+        assertEquals(List.of("second"), completed);
+    }
+
+    @Test
+    void conflictingInsert_isRetriedOnce() {
+        RateWriteBehind writeBehind = new RateWriteBehind(rateStore, eventPublisher, transactionManager, false, 100, 10, 3, 200, flushScheduler);
+        List<RateRow> rows = List.of(row(MONDAY, "USD", "1.0856"));
+        when(rateStore.insertMissing(rows)).thenThrow(new DuplicateKeyException("exchange_rates unique key"))
+                .thenReturn(List.of());
+
+        writeBehind.enqueue(rows);
+
+        verify(rateStore, times(2)).insertMissing(rows);
+        verifyNoInteractions(eventPublisher);
+    }
+
+    private static RateRow row(LocalDate date, String currency, String rate) {
+        return new RateRow(date, currency, new BigDecimal(rate));
+    }
+}
@@ -0,0 +1,69 @@
+package com.crewmeister.cmcodingchallenge.service;
+
+import com.crewmeister.cmcodingchallenge.dto.RateRow;
+import com.crewmeister.cmcodingchallenge.event.RatesIngestedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RebasedRateTablesTest {
+
+    private static final LocalDate DATE = LocalDate.of(2024, 1, 15);
+
+    private final Map<String, BigDecimal> eurRates = new TreeMap<>(Map.of(
+            "CHF", new BigDecimal("0.9339"),
+            "GBP", new BigDecimal("0.8612"),
+            "JPY", new BigDecimal("160.17"),
+            "USD", new BigDecimal("1.0856")));
+
+    @Test
+    void rebase_dividesByBaseAndAddsEur() {
+        RebasedRateTables tables = new RebasedRateTables(100, "none");
+
+        Map<String, BigDecimal> usd = tables.rebase(DATE, "USD", eurRates);
+
+        assertEquals(List.of("CHF", "EUR", "GBP", "JPY"), List.copyOf(usd.keySet()));
+        assertEquals(new BigDecimal("0.9211495947"), usd.get("EUR"));
+        assertEquals(new BigDecimal("0.8602616065"), usd.get("CHF"));
+        assertEquals(new BigDecimal("147.5405306"), usd.get("JPY"));
+    }
+
+    @Test
+    void rebase_keepsPrecisionForSmallRates() {
+        RebasedRateTables tables = new RebasedRateTables(100, "none");
+
+        Map<String, BigDecimal> jpy = tables.rebase(DATE, "JPY", eurRates);
+
+        assertEquals(new BigDecimal("0.006243366423"), jpy.get("EUR"));
+    }
+
+    @Test
+    void rebase_isComputedOncePerDateAndBase() {
+        RebasedRateTables tables = new RebasedRateTables(100, "none");
+
+        assertSame(tables.rebase(DATE, "USD", eurRates), tables.rebase(DATE, "USD", eurRates));
+    }
+
+    @Test
+    void rebase_unknownBase_returnsNull() {
+        RebasedRateTables tables = new RebasedRateTables(100, "none");
+
+        assertNull(tables.rebase(DATE, "ZAR", eurRates));
+    }
+
+    @Test
+    void onRatesIngested_dropsTablesInRange() {
+        RebasedRateTables tables = new RebasedRateTables(100, "none");
+        Map<String, BigDecimal> before = tables.rebase(DATE, "USD", eurRates);
+
+        tables.onRatesIngested(new RatesIngestedEvent(List.of(new RateRow(DATE, "ZAR", BigDecimal.TEN))));
+
+        assertNotSame(before, tables.rebase(DATE, "USD", eurRates));
+    }
+}
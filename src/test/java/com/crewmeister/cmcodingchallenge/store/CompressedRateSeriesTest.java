@@ -0,0 +1,133 @@
+package com.crewmeister.cmcodingchallenge.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressedRateSeriesTest {
+
+    private static final int FIRST_DAY = 10592; // 1999-01-01
+
+    @Test
+    void decode_roundTripsARandomWalkAcrossBlocks() {
+        int[] days = new int[1000];
+        long[] rates = randomWalk(days, 42);
+
+        CompressedRateSeries series = CompressedRateSeries.encode(days, rates, days.length);
+        int[] decodedDays = new int[series.size()];
+        long[] decodedRates = new long[series.size()];
+        series.decode(decodedDays, decodedRates);
+
+        assertArrayEquals(days, decodedDays);
+        assertArrayEquals(rates, decodedRates);
+        assertEquals(days[days.length - 1], series.lastDay());
+    }
+
+    @Test
+    void floor_resolvesGapsAndBlockBoundaries() {
+        int[] days = new int[200];
+        long[] rates = randomWalk(days, 7);
+        CompressedRateSeries series = CompressedRateSeries.encode(days, rates, days.length);
+        CompressedRateSeries.Observation found = new CompressedRateSeries.Observation();
+
+        for (int i : new int[]{0, 63, 64, 65, 127, 128, 199}) {
+            assertTrue(series.floor(days[i], found));
+            assertEquals(days[i], found.epochDay);
+            assertEquals(rates[i], found.scaledRate);
+            if (i + 1 < days.length && days[i + 1] - days[i] > 1) {
+                assertTrue(series.floor(days[i + 1] - 1, found));
+                assertEquals(days[i], found.epochDay);
+            }
+        }
+        assertFalse(series.floor(days[0] - 1, found));
+        assertTrue(series.floor(days[199] + 30, found));
+        assertEquals(rates[199], found.scaledRate);
+    }
+
+    @Test
+    void forEach_decodesOnlyTheRequestedRange() {
+        int[] days = new int[300];
+        long[] rates = randomWalk(days, 3);
+        CompressedRateSeries series = CompressedRateSeries.encode(days, rates, days.length);
+
+        List<Integer> seen = new ArrayList<>();
+        series.forEach(days[70], days[140], (day, rate) -> {
+            seen.add(day);
+            assertEquals(rates[seen.size() + 69], rate);
+        });
+
+        assertEquals(71, seen.size());
+        assertEquals(days[70], seen.get(0));
+        assertEquals(days[140], seen.get(70));
+        List<Integer> none = new ArrayList<>();
+        series.forEach(days[299] + 1, days[299] + 10, (day, rate) -> none.add(day));
+        assertTrue(none.isEmpty());
+    }
+
+    @Test
+    void count_matchesTheObservationsAForEachScanSees() {
+        int[] days = new int[300];
+        long[] rates = randomWalk(days, 5);
+        CompressedRateSeries series = CompressedRateSeries.encode(days, rates, days.length);
+
+        int[][] ranges = {{days[0], days[299]}, {days[0] - 10, days[0] - 1}, {days[63], days[64]},
+                {days[10] + 1, days[200] - 1}, {days[128], days[128]}, {days[299] - 5, days[299] + 40}};
+        for (int[] range : ranges) {
+            int[] seen = new int[1];
+            series.forEach(range[0], range[1], (day, rate) -> seen[0]++);
+            assertEquals(seen[0], series.count(range[0], range[1]), () -> range[0] + ".." + range[1]);
+        }
+        assertEquals(0, series.count(days[5], days[4]));
+    }
+
+    @Test
+    void encode_keepsLargeJumpsAndNegativeDeltas() {
+        int[] days = {FIRST_DAY, FIRST_DAY + 1, FIRST_DAY + 4000};
+        long[] rates = {160_120_000L, 1L, Long.MAX_VALUE / 4};
+
+        CompressedRateSeries series = CompressedRateSeries.encode(days, rates, 3);
+        int[] decodedDays = new int[3];
+        long[] decodedRates = new long[3];
+        series.decode(decodedDays, decodedRates);
+
+        assertArrayEquals(days, decodedDays);
+        assertArrayEquals(rates, decodedRates);
+    }
+
+    @Test
+    void encode_takesAFewBytesPerDailyObservation() {
+        int[] days = new int[6500];
+        long[] rates = randomWalk(days, 11);
+
+        CompressedRateSeries series = CompressedRateSeries.encode(days, rates, days.length);
+
+        assertTrue(series.heapBytes() < days.length * 5L, () -> series.heapBytes() + " bytes");
+    }
+
+    @Test
+    void encode_rejectsUnorderedDays() {
+        assertThrows(IllegalArgumentException.class,
+                () -> CompressedRateSeries.encode(new int[]{FIRST_DAY + 1, FIRST_DAY}, new long[]{1, 2}, 2));
+    }
+
+    /**
+     * Business days from 1999 with a rate around 1.1 moving up to 50 basis points a day.
+     */
+    private static long[] randomWalk(int[] days, long seed) {
+        Random random = new Random(seed);
+        long[] rates = new long[days.length];
+        int day = FIRST_DAY;
+        long rate = 1_100_000L;
+        for (int i = 0; i < days.length; i++) {
+            days[i] = day;
+            rates[i] = rate;
+            day += random.nextInt(10) == 0 ? 3 : 1;
+            rate += random.nextInt(11_001) - 5_500;
+        }
+        return rates;
+    }
+}
@@ -0,0 +1,137 @@
+package com.crewmeister.cmcodingchallenge.store;
+
+import com.crewmeister.cmcodingchallenge.dto.RateRow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class RateDateIndexTest {
+
+    private RateStore rateStore;
+    private RateDateIndex index;
+
+    @BeforeEach
+    void setUp() {
+        rateStore = mock(RateStore.class);
+        index = new RateDateIndex(rateStore, 7);
+    }
+
+    @Test
+    void findOnOrBefore_resolvesExactAndPreviousDays() {
+        index.merge(rows("USD", "2024-01-02", "2024-01-03", "2024-01-05"));
+
+        assertEquals(LocalDate.of(2024, 1, 3), index.findOnOrBefore("USD", LocalDate.of(2024, 1, 3)).get().getDate());
+        assertEquals(LocalDate.of(2024, 1, 3), index.findOnOrBefore("USD", LocalDate.of(2024, 1, 4)).get().getDate());
+        assertEquals(LocalDate.of(2024, 1, 5), index.findOnOrBefore("USD", LocalDate.of(2024, 1, 7)).get().getDate());
+        assertTrue(index.findOnOrBefore("USD", LocalDate.of(2024, 1, 1)).isEmpty());
+        assertTrue(index.findOnOrBefore("GBP", LocalDate.of(2024, 1, 3)).isEmpty());
+    }
+
+    @Test
+    void findOnOrBefore_ignoresRatesOlderThanLookback() {
+        index.merge(rows("USD", "2024-01-02"));
+
+        assertTrue(index.findOnOrBefore("USD", LocalDate.of(2024, 1, 9)).isPresent());
+        assertTrue(index.findOnOrBefore("USD", LocalDate.of(2024, 1, 10)).isEmpty());
+    }
+
+    @Test
+    void merge_interleavesNewDaysAndReplacesExistingOnes() {
+        index.merge(rows("USD", "2024-01-02", "2024-01-05"));
+        index.merge(List.of(
+                new RateRow(LocalDate.of(2024, 1, 3), "USD", new BigDecimal("2.0")),
+                new RateRow(LocalDate.of(2024, 1, 5), "USD", new BigDecimal("3.0"))));
+
+        // Rates come back at the store's scale
+        assertEquals(new BigDecimal("2.000000"), index.findOnOrBefore("USD", LocalDate.of(2024, 1, 4)).get().getRate());
+        assertEquals(new BigDecimal("3.000000"), index.findOnOrBefore("USD", LocalDate.of(2024, 1, 5)).get().getRate());
+        assertEquals(new BigDecimal("1.000000"), index.findOnOrBefore("USD", LocalDate.of(2024, 1, 2)).get().getRate());
+        assertTrue(index.hasRatesAfter("USD", LocalDate.of(2024, 1, 4)));
+        assertFalse(index.hasRatesAfter("USD", LocalDate.of(2024, 1, 5)));
+    }
+
+    @Test
+    void load_buildsIndexFromStoredRates() {
+        when(rateStore.findAllRows()).thenReturn(rows("USD", "2024-01-05", "2024-01-02"));
+
+        index.load();
+
+        assertEquals(LocalDate.of(2024, 1, 2), index.findOnOrBefore("USD", LocalDate.of(2024, 1, 4)).get().getDate());
+    }
+
+    @Test
+    void findSeries_readsStoreUntilLoadedThenDecodesFromMemory() {
+        LocalDate from = LocalDate.of(2024, 1, 3);
+        LocalDate to = LocalDate.of(2024, 1, 4);
+        List<RateRow> stored = rows("USD", "2024-01-02", "2024-01-03", "2024-01-04", "2024-01-05");
+        when(rateStore.findSeries("USD", from, to)).thenReturn(stored.subList(1, 3));
+        when(rateStore.findAllRows()).thenReturn(new ArrayList<>(stored));
+
+        assertEquals(2, index.findSeries("USD", from, to).size());
+        index.load();
+
+        List<RateRow> series = index.findSeries("USD", from, to);
+        assertEquals(List.of(new RateRow(from, "USD", new BigDecimal("1.000000")),
+                new RateRow(to, "USD", new BigDecimal("1.000000"))), series);
+        assertTrue(index.findSeries("GBP", from, to).isEmpty());
+        verify(rateStore, times(1)).findSeries(any(), any(), any());
+    }
+
+    @Test
+    void findDates_pagesStoredDaysNewestFirstOnceLoaded() {
+        List<RateRow> stored = rows("USD", "2024-01-05", "2024-01-02", "2024-01-04", "2024-01-03");
+        stored.addAll(rows("GBP", "2024-01-03", "2024-01-08"));
+        when(rateStore.findAllRows()).thenReturn(stored);
+        index.load();
+        LocalDate from = LocalDate.of(2024, 1, 3);
+
+        Page<LocalDate> page = index.findDates(from, LocalDate.of(2024, 1, 31), PageRequest.of(1, 2));
+
+        assertEquals(List.of(LocalDate.of(2024, 1, 4), from), page.getContent());
+        assertEquals(4, page.getTotalElements());
+        assertEquals(Optional.of(from), index.findMinDate(from, LocalDate.of(2024, 1, 7)));
+        assertEquals(Optional.of(LocalDate.of(2024, 1, 5)), index.findMaxDate(from, LocalDate.of(2024, 1, 7)));
+        assertTrue(index.findMinDate(LocalDate.of(2024, 1, 6), LocalDate.of(2024, 1, 7)).isEmpty());
+
+        index.merge(rows("USD", "2024-01-10"));
+        assertEquals(LocalDate.of(2024, 1, 10),
+                index.findDates(from, LocalDate.of(2024, 1, 31), Pageable.unpaged()).getContent().get(0));
+        verify(rateStore, never()).findDates(any(), any(), any());
+    }
+
+    @Test
+    void countRates_isUnknownUntilLoaded() {
+        LocalDate from = LocalDate.of(2024, 1, 3);
+        LocalDate to = LocalDate.of(2024, 1, 31);
+        when(rateStore.findAllRows()).thenReturn(rows("USD", "2024-01-02", "2024-01-03", "2024-01-05"));
+
+        assertTrue(index.countRates("USD", from, to).isEmpty());
+        index.load();
+
+        assertEquals(OptionalInt.of(2), index.countRates("USD", from, to));
+        assertEquals(OptionalInt.of(0), index.countRates("GBP", from, to));
+        assertEquals(3, index.findAllRows().size());
+        verify(rateStore, times(1)).findAllRows();
+    }
+
+    private static List<RateRow> rows(String currency, String... dates) {
+        List<RateRow> rows = new ArrayList<>();
+        for (String date : dates) {
+            rows.add(new RateRow(LocalDate.parse(date), currency, new BigDecimal("1.0")));
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,50 @@
+package com.crewmeister.cmcodingchallenge.store;
+
+import com.crewmeister.cmcodingchallenge.dto.RateRow;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writeThenOpen_servesRatesByCurrencyAndDay() throws Exception {
+        Path file = directory.resolve("rates.snapshot");
+        LocalDate monday = LocalDate.of(2024, 1, 15);
+        RateSnapshot.write(file, List.of(
+                new RateRow(monday, "USD", new BigDecimal("1.085600")),
+                new RateRow(monday, "GBP", new BigDecimal("0.861200")),
+                new RateRow(monday.plusDays(3), "USD", new BigDecimal("1.0901"))));
+
+        RateSnapshot snapshot = RateSnapshot.open(file);
+
+        assertEquals(4, snapshot.getDayCount());
+        assertEquals(2, snapshot.getCurrencyCount());
+        assertEquals(Optional.of(new BigDecimal("1.085600")), snapshot.rate("USD", monday));
+        assertEquals(Optional.of(new BigDecimal("1.090100")), snapshot.rate("USD", monday.plusDays(3)));
+        assertTrue(snapshot.rate("GBP", monday.plusDays(3)).isEmpty());
+        assertTrue(snapshot.rate("USD", monday.minusDays(1)).isEmpty());
+        assertTrue(snapshot.rate("JPY", monday).isEmpty());
+        assertEquals(2, snapshot.ratesOn(monday).size());
+        assertTrue(snapshot.ratesOn(monday.plusDays(1)).isEmpty());
+    }
+
+    @Test
+    void open_foreignFile_isRejected() throws Exception {
+        Path file = directory.resolve("garbage.snapshot");
+        Files.write(file, new byte[64]);
+
+        assertThrows(IllegalArgumentException.class, () -> RateSnapshot.open(file));
+    }
+}
@@ -0,0 +1,109 @@
+package com.crewmeister.cmcodingchallenge.store;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RawResponseArchiveTest {
+
+    @TempDir
+    Path directory;
+
+    private RawResponseArchive archive;
+
+    @BeforeEach
+    void setUp() {
+        archive = new RawResponseArchive(true, directory.toString(), 0);
+    }
+
+    @Test
+    void store_thenFind_returnsValidatorsAndBody() {
+        archive.store("/data/BBEX3/D..EUR.BB.AC.000?startPeriod=2024-01-01", "<xml/>", "\"v1\"", "Mon, 15 Jan 2024 10:00:00 GMT");
+
+        Optional<ArchivedResponse> found = archive.find("/data/BBEX3/D..EUR.BB.AC.000?startPeriod=2024-01-01");
+
+        assertTrue(found.isPresent());
+        assertEquals("\"v1\"", found.get().getEtag());
+        assertEquals("Mon, 15 Jan 2024 10:00:00 GMT", found.get().getLastModified());
+        assertEquals(RawResponseArchive.contentHash("<xml/>"), found.get().getContentHash());
+        assertEquals(Optional.of("<xml/>"), archive.readBody(found.get()));
+    }
+
+    @Test
+    void store_identicalBodies_areStoredOnce() throws Exception {
+        archive.store("/data/a", "<same/>", null, null);
+        archive.store("/data/b", "<same/>", null, null);
+
+        long bodies;
+        try (Stream<Path> files = Files.list(directory)) {
+            bodies = files.filter(p -> p.toString().endsWith(".xml.gz")).count();
+        }
+        assertEquals(1, bodies);
+        assertEquals(2, archive.list().size());
+    }
+
+    @Test
+    void markIngested_holdsForTheSameBodyOnly() {
+        String path = "/data/BBEX3/D..EUR.BB.AC.000?startPeriod=2024-01-01";
+        archive.store(path, "<v1/>", "\"v1\"", null);
+        assertFalse(archive.find(path).get().isIngested());
+
+        archive.markIngested(path, RawResponseArchive.contentHash("<other/>"));
+        assertFalse(archive.find(path).get().isIngested());
+        archive.markIngested(path, RawResponseArchive.contentHash("<v1/>"));
+        assertTrue(archive.find(path).get().isIngested());
+
+        assertTrue(archive.store(path, "<v1/>", "\"v1\"", null).isIngested());
+        assertFalse(archive.store(path, "<v2/>", "\"v2\"", null).isIngested());
+        assertFalse(archive.find(path).get().isIngested());
+    }
+
+    @Test
+    void prune_pastMaxBytes_dropsLeastRecentlyFetchedPaths() throws Exception {
+        RawResponseArchive bounded = new RawResponseArchive(true, directory.toString(), 4096);
+        Random random = new Random(42);
+        for (int i = 0; i < 8; i++) {
+            // Incompressible bodies of about 1 KB each
+            byte[] bytes = new byte[768];
+            random.nextBytes(bytes);
+            bounded.store("/data/" + i, Base64.getEncoder().encodeToString(bytes), null, null);
+            Thread.sleep(2);
+        }
+        bounded.prune();
+
+        long size;
+        try (Stream<Path> files = Files.list(directory)) {
+            size = files.mapToLong(p -> p.toFile().length()).sum();
+        }
+        assertTrue(size <= 4096, "archive holds " + size + " bytes");
+        assertTrue(bounded.find("/data/7").isPresent());
+        assertTrue(bounded.find("/data/0").isEmpty());
+        assertTrue(bounded.readBody(bounded.find("/data/7").get()).isPresent());
+    }
+
+    @Test
+    void store_nullBody_isNotArchived() {
+        ArchivedResponse response = archive.store("/data/a", null, "\"v1\"", null);
+
+        assertFalse(response.isIngested());
+        assertTrue(archive.find("/data/a").isEmpty());
+    }
+
+    @Test
+    void find_disabledArchive_returnsEmpty() {
+        RawResponseArchive disabled = new RawResponseArchive(false, directory.toString(), 0);
+        disabled.store("/data/a", "<xml/>", null, null);
+
+        assertTrue(disabled.find("/data/a").isEmpty());
+        assertTrue(disabled.list().isEmpty());
+    }
+}
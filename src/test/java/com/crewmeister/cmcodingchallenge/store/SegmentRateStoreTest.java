@@ -0,0 +1,127 @@
+package com.crewmeister.cmcodingchallenge.store;
+
+import com.crewmeister.cmcodingchallenge.dto.RateRow;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentRateStoreTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2024, 1, 15);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void insertMissing_skipsStoredAndDuplicateRows() throws Exception {
+        SegmentRateStore store = open(16);
+        store.insertMissing(List.of(row(MONDAY, "USD", "1.0856")));
+
+        List<RateRow> inserted = store.insertMissing(List.of(
+                row(MONDAY, "USD", "1.1111"), row(MONDAY, "GBP", "0.8612"), row(MONDAY, "GBP", "0.8612")));
+
+        assertEquals(List.of(row(MONDAY, "GBP", "0.8612")), inserted);
+        assertEquals(Optional.of(new BigDecimal("1.085600")), store.findRate("USD", MONDAY));
+        assertEquals(2, store.findRowsOn(MONDAY).size());
+        assertTrue(store.insertMissing(List.of(row(MONDAY, "GBP", "0.8612"))).isEmpty());
+        assertEquals(2, store.segmentCount());
+    }
+
+    @Test
+    void rangeQueries_mergeSegmentsInDateOrder() throws Exception {
+        SegmentRateStore store = open(16);
+        // A backfill of older days arrives after newer ones
+        store.insertMissing(weekdays(MONDAY.plusWeeks(1), 5, "USD", "GBP"));
+        store.insertMissing(weekdays(MONDAY, 5, "USD", "GBP"));
+
+        List<RateRow> series = store.findSeries("USD", MONDAY.plusDays(3), MONDAY.plusDays(8));
+        assertEquals(List.of(MONDAY.plusDays(3), MONDAY.plusDays(4), MONDAY.plusDays(7), MONDAY.plusDays(8)),
+                series.stream().map(RateRow::getDate).collect(Collectors.toList()));
+        assertEquals(Optional.of(MONDAY.plusDays(7)), store.findMinDate(MONDAY.plusDays(5), MONDAY.plusDays(30)));
+        assertEquals(Optional.of(MONDAY.plusDays(4)), store.findMaxDate(MONDAY, MONDAY.plusDays(6)));
+        assertTrue(store.findMinDate(MONDAY.plusDays(5), MONDAY.plusDays(6)).isEmpty());
+        assertEquals(4, store.findRowsOnDates(List.of(MONDAY.plusDays(7), MONDAY, MONDAY.plusDays(5))).size());
+        assertEquals(20, store.findAllRows().size());
+    }
+
+    @Test
+    void findDates_pagesNewestFirst() throws Exception {
+        SegmentRateStore store = open(16);
+        store.insertMissing(weekdays(MONDAY, 10, "USD"));
+
+        Page<LocalDate> page = store.findDates(MONDAY, MONDAY.plusDays(30), PageRequest.of(1, 4));
+
+        assertEquals(10, page.getTotalElements());
+        assertEquals(3, page.getTotalPages());
+        assertEquals(List.of(MONDAY.plusDays(7), MONDAY.plusDays(4), MONDAY.plusDays(3), MONDAY.plusDays(2)),
+                page.getContent());
+    }
+
+    @Test
+    void manySmallInserts_areCompactedAndSurviveReopen() throws Exception {
+        SegmentRateStore store = open(3);
+        List<RateRow> days = weekdays(MONDAY, 200, "USD", "GBP", "JPY");
+        for (int i = 0; i < days.size(); i += 30) {
+            store.insertMissing(days.subList(i, Math.min(i + 30, days.size())));
+        }
+        assertTrue(store.segmentCount() <= 3);
+
+        SegmentRateStore reopened = open(3);
+
+        assertEquals(days.size(), reopened.findAllRows().size());
+        assertEquals(store.findSeries("JPY", MONDAY, MONDAY.plusYears(1)), reopened.findSeries("JPY", MONDAY, MONDAY.plusYears(1)));
+        assertEquals(Optional.of(new BigDecimal("1.000000")), reopened.findRate("GBP", MONDAY));
+    }
+
+    @Test
+    void open_dropsSegmentsAlreadyMergedByACompaction() throws Exception {
+        RateSegment.write(directory, 0, List.of(row(MONDAY, "USD", "1.0856")), -1);
+        RateSegment.write(directory, 1, List.of(row(MONDAY, "GBP", "0.8612")), -1);
+        RateSegment.write(directory, 2, List.of(row(MONDAY, "GBP", "0.8612"), row(MONDAY, "USD", "1.0856")), 1);
+        Files.writeString(directory.resolve(RateSegment.fileName(3) + ".tmp"), "partial");
+
+        SegmentRateStore store = open(16);
+
+        assertEquals(1, store.segmentCount());
+        assertEquals(2, store.findRowsOn(MONDAY).size());
+        assertFalse(Files.exists(directory.resolve(RateSegment.fileName(0))));
+        assertFalse(Files.exists(directory.resolve(RateSegment.fileName(3) + ".tmp")));
+    }
+
+    private SegmentRateStore open(int maxSegments) throws Exception {
+        SegmentRateStore store = new SegmentRateStore(directory.toString(), maxSegments);
+        store.open();
+        return store;
+    }
+
+    private static List<RateRow> weekdays(LocalDate from, int count, String... currencies) {
+        List<RateRow> rows = new ArrayList<>();
+        LocalDate day = from;
+        for (int added = 0; added < count; day = day.plusDays(1)) {
+            if (day.getDayOfWeek().getValue() >= 6) {
+                continue;
+            }
+            for (String currency : currencies) {
+                rows.add(row(day, currency, "1.0"));
+            }
+            added++;
+        }
+        return rows;
+    }
+
+    private static RateRow row(LocalDate date, String currency, String rate) {
+        return new RateRow(date, currency, new BigDecimal(rate));
+    }
+}
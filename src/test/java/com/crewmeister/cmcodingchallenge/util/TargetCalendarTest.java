@@ -0,0 +1,35 @@
+package com.crewmeister.cmcodingchallenge.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TargetCalendarTest {
+
+    @Test
+    void easterSunday_matchesKnownDates() {
+        assertEquals(LocalDate.of(2000, 4, 23), TargetCalendar.easterSunday(2000));
+        assertEquals(LocalDate.of(2024, 3, 31), TargetCalendar.easterSunday(2024));
+        assertEquals(LocalDate.of(2026, 4, 5), TargetCalendar.easterSunday(2026));
+    }
+
+    @Test
+    void isBusinessDay_skipsWeekendsAndClosingDays() {
+        assertTrue(TargetCalendar.isBusinessDay(LocalDate.of(2024, 3, 28)));
+        assertFalse(TargetCalendar.isBusinessDay(LocalDate.of(2024, 3, 29)));
+        assertFalse(TargetCalendar.isBusinessDay(LocalDate.of(2024, 3, 30)));
+        assertFalse(TargetCalendar.isBusinessDay(LocalDate.of(2024, 4, 1)));
+        assertFalse(TargetCalendar.isBusinessDay(LocalDate.of(2024, 5, 1)));
+        assertFalse(TargetCalendar.isBusinessDay(LocalDate.of(2024, 12, 26)));
+        assertTrue(TargetCalendar.isBusinessDay(LocalDate.of(2024, 12, 31)));
+    }
+
+    @Test
+    void isBusinessDay_beforeTwoThousand_onlyClosedOnNewYearAndChristmas() {
+        assertTrue(TargetCalendar.isBusinessDay(LocalDate.of(1999, 4, 2)));
+        assertTrue(TargetCalendar.isBusinessDay(LocalDate.of(1999, 12, 27)));
+        assertFalse(TargetCalendar.isBusinessDay(LocalDate.of(1999, 12, 31)));
+    }
+}